@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j;
+
+/**
+ * 接收模型加载的进度，参考{@link Model#loadAsync(java.nio.file.Path, Model.Options)}
+ * 
+ * 回调在加载线程中执行(并行加载常量时可能来自多个线程)，实现应尽量轻量
+ */
+public interface LoadListener {
+
+	public static final LoadListener NONE = new LoadListener() {
+	};
+
+	/**
+	 * 模型文件解析完成，只回调一次，parsedBytes与totalBytes相等
+	 * 
+	 * protobuf的解析由一次调用完成，没有中间进度，需要进度的调用者应以{@link #onNodesBuilt(int, int)}及{@link #onConstantsLoaded(int, int)}为准
+	 * 
+	 * @param parsedBytes
+	 * @param totalBytes
+	 */
+	public default void onBytesParsed(long parsedBytes, long totalBytes) {
+	}
+
+	/**
+	 * @param builtNodes
+	 *            已创建的节点数量
+	 * @param totalNodes
+	 */
+	public default void onNodesBuilt(int builtNodes, int totalNodes) {
+	}
+
+	/**
+	 * @param loadedConstants
+	 *            已解码并分配内存的常量数量
+	 * @param totalConstants
+	 */
+	public default void onConstantsLoaded(int loadedConstants, int totalConstants) {
+	}
+
+	/**
+	 * 加载过程中会定期检查，返回true时放弃加载，释放已分配的内存并抛出{@link java.util.concurrent.CancellationException}
+	 * 
+	 * @return
+	 */
+	public default boolean isCancelled() {
+		return false;
+	}
+
+}
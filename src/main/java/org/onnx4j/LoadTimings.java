@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 模型加载过程中各阶段的耗时
+ */
+public final class LoadTimings {
+
+	public enum Phase {
+
+		/**
+		 * 读取或映射模型文件
+		 */
+		READ,
+
+		/**
+		 * 解析protobuf
+		 */
+		PARSE,
+
+		/**
+		 * 创建节点及其属性
+		 */
+		NODES,
+
+		/**
+		 * 解码常量并分配内存(延迟加载时不包括)
+		 */
+		CONSTANTS,
+
+		/**
+		 * 推导节点间的依赖关系
+		 */
+		DAG
+
+	}
+
+	private final long[] nanos = new long[Phase.values().length];
+
+	public <T> T measure(Phase phase, Supplier<T> supplier) {
+		long start = System.nanoTime();
+		try {
+			return supplier.get();
+		} finally {
+			this.nanos[phase.ordinal()] += System.nanoTime() - start;
+		}
+	}
+
+	public void measure(Phase phase, Runnable runnable) {
+		this.measure(phase, () -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	public long get(Phase phase, TimeUnit unit) {
+		return unit.convert(this.nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+	}
+
+	public long getTotal(TimeUnit unit) {
+		long total = 0L;
+		for (long nanos : this.nanos) {
+			total += nanos;
+		}
+		return unit.convert(total, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("LoadTimings [");
+		for (Phase phase : Phase.values()) {
+			sb.append(phase.name().toLowerCase()).append('=').append(this.get(phase, TimeUnit.MILLISECONDS))
+					.append("ms, ");
+		}
+		return sb.append("total=").append(this.getTotal(TimeUnit.MILLISECONDS)).append("ms]").toString();
+	}
+
+}
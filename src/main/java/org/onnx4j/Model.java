@@ -16,64 +16,302 @@
  */
 package org.onnx4j;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
-import org.onnx4j.Tensor.Options;
+import org.onnx4j.LoadTimings.Phase;
 import org.onnx4j.exceptions.ModelException;
 import org.onnx4j.exceptions.ModelException.ModelExceptionEnums;
 import org.onnx4j.model.Graph;
+import org.onnx4j.model.graph.Constant;
 import org.onnx4j.opsets.operator.OperatorSetId;
 import org.onnx4j.prototypes.OnnxProto3;
-import org.onnx4j.prototypes.OnnxProto3.ModelProto;
 import org.onnx4j.prototypes.OnnxProto3.Version;
+import org.onnx4j.tensor.MemoryBudget;
+import org.onnx4j.tensor.MemoryLease;
+import org.onnx4j.tensor.MemoryMetrics;
+import org.onnx4j.tensor.SharedTensorStore;
+import org.onnx4j.utils.DirectBufferDealloc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+
 public class Model extends OnnxObject implements AutoCloseable {
 
 	private static Logger logger = LoggerFactory.getLogger(Model.class);
 
+	//
+	// 读取、解析模型及预加载常量均为阻塞操作，在独立的守护线程中执行，不占用ForkJoinPool.commonPool()
+	//
+	private static final ExecutorService LOADER_EXECUTOR = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("onnx4j-loader-%d").setDaemon(true).build());
+
+	public static class Options {
+
+		private Tensor.Options tensorOptions = Tensor.options();
+
+		private boolean lazyConstants = false;
+
+		private boolean prefetchConstants = false;
+
+		private int loadParallelism = 1;
+
+		private LoadListener loadListener = LoadListener.NONE;
+
+		private SharedTensorStore sharedTensorStore;
+
+		private Options() {
+		}
+
+		private Options copy() {
+			Options options = new Options();
+			options.tensorOptions = this.tensorOptions;
+			options.lazyConstants = this.lazyConstants;
+			options.prefetchConstants = this.prefetchConstants;
+			options.loadParallelism = this.loadParallelism;
+			options.loadListener = this.loadListener;
+			options.sharedTensorStore = this.sharedTensorStore;
+			return options;
+		}
+
+		public Tensor.Options getTensorOptions() {
+			return tensorOptions;
+		}
+
+		public Options setTensorOptions(Tensor.Options tensorOptions) {
+			this.tensorOptions = tensorOptions;
+			return this;
+		}
+
+		public boolean isLazyConstants() {
+			return lazyConstants;
+		}
+
+		/**
+		 * 常量(initializer)的Tensor延迟到第一次调用{@link Constant#getTensor()}时才解码并分配内存
+		 * 
+		 * @param lazyConstants
+		 * @return
+		 */
+		public Options setLazyConstants(boolean lazyConstants) {
+			this.lazyConstants = lazyConstants;
+			return this;
+		}
+
+		public boolean isPrefetchConstants() {
+			return prefetchConstants;
+		}
+
+		/**
+		 * 延迟加载常量时，模型构建完成后在后台线程中预先解码所有常量，参考{@link Model#prefetchConstants()}
+		 * 
+		 * @param prefetchConstants
+		 * @return
+		 */
+		public Options setPrefetchConstants(boolean prefetchConstants) {
+			this.prefetchConstants = prefetchConstants;
+			return this;
+		}
+
+		public int getLoadParallelism() {
+			return loadParallelism;
+		}
+
+		/**
+		 * 构建模型时在ForkJoinPool中以指定的并行度解码常量并分配内存，默认为1(在构建线程中顺序加载)。
+		 * 并行加载的结果与顺序加载一致
+		 * 
+		 * @param loadParallelism
+		 * @return
+		 */
+		public Options setLoadParallelism(int loadParallelism) {
+			if (loadParallelism < 1)
+				throw new IllegalArgumentException("Load parallelism must be positive: " + loadParallelism);
+
+			this.loadParallelism = loadParallelism;
+			return this;
+		}
+
+		public LoadListener getLoadListener() {
+			return loadListener;
+		}
+
+		/**
+		 * 接收加载进度，并可通过{@link LoadListener#isCancelled()}放弃加载
+		 * 
+		 * @param loadListener
+		 * @return
+		 */
+		public Options setLoadListener(LoadListener loadListener) {
+			this.loadListener = (loadListener != null) ? loadListener : LoadListener.NONE;
+			return this;
+		}
+
+		public SharedTensorStore getSharedTensorStore() {
+			return sharedTensorStore;
+		}
+
+		/**
+		 * 多个模型使用同一个store时，内容相同的常量及Tensor属性只保留一份数据，
+		 * 最后一个引用它的Model关闭时才释放
+		 * 
+		 * @param sharedTensorStore
+		 *            为null时不共享
+		 * @return
+		 */
+		public Options setSharedTensorStore(SharedTensorStore sharedTensorStore) {
+			this.sharedTensorStore = sharedTensorStore;
+			return this;
+		}
+
+	}
+
+	public static Options options() {
+		return new Options();
+	}
+
 	private long irVersion;
 	private long modelVersion;
 	private Graph graph;
 	private OperatorSetId[] opsetIds;
-	private Options tensorOptions;
+	private Options options;
+	private Tensor.Options tensorOptions;
 	private TensorManager<Tensor> tensorManager;
+	private ByteBuffer mappedModel;
+	private MemoryLease mappingLease;
+	private Path baseDir;
+	private CompletableFuture<Void> prefetch;
+	private LoadTimings loadTimings;
+	private volatile boolean closed = false;
 
-	private static OnnxProto3.ModelProto loadOnnxModel(String onnxModelPath) throws FileNotFoundException, IOException {
-		OnnxProto3.ModelProto onnxModel;
+	private static byte[] readOnnxModel(String onnxModelPath) {
+		try {
+			byte[] onnxModelBytes = Files.readAllBytes(Paths.get(onnxModelPath));
+			logger.info("Model loaded from \"{}\" ({} bytes)", onnxModelPath, onnxModelBytes.length);
+			return onnxModelBytes;
+		} catch (NoSuchFileException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_NOT_EXISTS, e, onnxModelPath);
+		} catch (IOException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_UNREADABLE, e, onnxModelPath, e.toString());
+		}
+	}
 
-		try (InputStream onnxModelInputStream = new FileInputStream(onnxModelPath)) {
-			onnxModel = OnnxProto3.ModelProto.parseFrom(onnxModelInputStream);
+	private static OnnxProto3.ModelProto parseOnnxModel(byte[] onnxModelBytes) {
+		try {
+			OnnxProto3.ModelProto onnxModel = OnnxProto3.ModelProto.parseFrom(onnxModelBytes);
 			assert onnxModel != null;
-			logger.info("Model loaded from \"{}\"", onnxModelPath);
 			return onnxModel;
-		} catch (Exception e) {
-			throw new ModelException(ModelExceptionEnums.MODEL_NOT_EXISTS, onnxModelPath);
+		} catch (InvalidProtocolBufferException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_UNPARSABLE, e, e.getMessage());
+		}
+	}
+
+	static ModelException wrapException(ModelExceptionEnums exceptionEnum, Throwable cause, Object... args) {
+		ModelException modelException = new ModelException(exceptionEnum, args);
+		modelException.initCause(cause);
+		return modelException;
+	}
+
+	private static MappedByteBuffer mapOnnxModel(Path onnxModelPath) {
+		try (FileChannel channel = FileChannel.open(onnxModelPath, StandardOpenOption.READ)) {
+			//
+			// protobuf单个消息的上限为2GB，更大的模型需要以external data的形式保存权重
+			//
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new ModelException(ModelExceptionEnums.MODEL_TOO_LARGE, onnxModelPath, channel.size());
+
+			MappedByteBuffer mappedModel = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			logger.info("Model mapped from \"{}\" ({} bytes)", onnxModelPath, channel.size());
+			return mappedModel;
+		} catch (NoSuchFileException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_NOT_EXISTS, e, onnxModelPath);
+		} catch (IOException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_UNREADABLE, e, onnxModelPath, e.toString());
+		}
+	}
+
+	private static OnnxProto3.ModelProto parseOnnxModel(ByteBuffer mappedModel) {
+		try {
+			//
+			// 以不可变的方式包装映射区域并开启aliasing，使得解析后的bytes字段(如raw_data)直接引用映射区域，而不是复制到堆中
+			//
+			CodedInputStream input = UnsafeByteOperations.unsafeWrap(mappedModel).newCodedInput();
+			input.enableAliasing(true);
+			input.setSizeLimit(Integer.MAX_VALUE);
+			return OnnxProto3.ModelProto.parseFrom(input);
+		} catch (IOException e) {
+			DirectBufferDealloc.deallocateDirectBuffer(mappedModel);
+			throw Model.wrapException(ModelExceptionEnums.MODEL_UNPARSABLE, e, e.getMessage());
 		}
 	}
 
 	public Model(OnnxProto3.ModelProto onnxModel, Tensor.Options tensorOptions) {
+		this(onnxModel, tensorOptions, null);
+	}
+
+	/**
+	 * @param onnxModel
+	 * @param tensorOptions
+	 * @param baseDir
+	 *            模型文件所在目录，external data中的location均相对于此目录
+	 */
+	public Model(OnnxProto3.ModelProto onnxModel, Tensor.Options tensorOptions, Path baseDir) {
+		this(onnxModel, Model.options().setTensorOptions(tensorOptions), baseDir);
+	}
+
+	public Model(OnnxProto3.ModelProto onnxModel, Options options, Path baseDir) {
+		this(onnxModel, options, baseDir, new LoadTimings(), null);
+	}
+
+	/**
+	 * @param mappedModel
+	 *            模型文件的映射区域，Model关闭或构建失败时释放
+	 */
+	private Model(OnnxProto3.ModelProto onnxModel, Options options, Path baseDir, LoadTimings loadTimings,
+			ByteBuffer mappedModel) {
 		super(onnxModel.getDocString());
 
-		this.doCheck(onnxModel);
-		
-		this.tensorManager = new TensorManager<Tensor>() {
+		this.tensorManager = Model.newTensorManager();
+		this.mappedModel = mappedModel;
+		this.loadTimings = loadTimings;
+		this.options = options;
+		this.tensorOptions = this.newTensorOptions();
+		this.baseDir = baseDir;
 
-			@Override
-			protected void dispose(Tensor tensor) {
-				tensor.close();
-			}
-			
-		};
-		this.tensorOptions = tensorOptions;
-		this.irVersion = onnxModel.getIrVersion();
-		this.modelVersion = onnxModel.getModelVersion();
-		this.opsetIds = OperatorSetId.from(onnxModel.getOpsetImportList());
-		this.graph = new Graph(this, onnxModel.getGraph());
+		try {
+			this.doCheck(onnxModel.getIrVersion());
+
+			long modelBytes = (mappedModel != null) ? mappedModel.capacity() : onnxModel.getSerializedSize();
+			options.getLoadListener().onBytesParsed(modelBytes, modelBytes);
+			this.checkCancelled();
+
+			this.irVersion = onnxModel.getIrVersion();
+			this.modelVersion = onnxModel.getModelVersion();
+			this.opsetIds = OperatorSetId.from(onnxModel.getOpsetImportList());
+			this.graph = new Graph(this, onnxModel.getGraph());
+		} catch (RuntimeException | Error e) {
+			this.release();
+			throw e;
+		}
 
 		super.docString = onnxModel.getDocString();
 
@@ -86,6 +324,11 @@ public class Model extends OnnxObject implements AutoCloseable {
 			}
 			logger.debug("{}", modelInfo.replaceAll("[ \n]", ""));
 		}
+
+		logger.info("Model built, {}", this.loadTimings);
+
+		if (options.isLazyConstants() && options.isPrefetchConstants())
+			this.prefetchConstants();
 	}
 
 	public Model(String onnxModelPath) throws FileNotFoundException, IOException {
@@ -93,7 +336,124 @@ public class Model extends OnnxObject implements AutoCloseable {
 	}
 
 	public Model(String onnxModelPath, Tensor.Options tensorOptions) throws FileNotFoundException, IOException {
-		this(loadOnnxModel(onnxModelPath), tensorOptions);
+		this(onnxModelPath, Model.options().setTensorOptions(tensorOptions));
+	}
+
+	public Model(String onnxModelPath, Options options) throws FileNotFoundException, IOException {
+		this(onnxModelPath, options, new LoadTimings());
+	}
+
+	private Model(String onnxModelPath, Options options, LoadTimings loadTimings) {
+		this(loadTimings.measure(Phase.READ, () -> readOnnxModel(onnxModelPath)), options,
+				Paths.get(onnxModelPath).toAbsolutePath().getParent(), loadTimings);
+	}
+
+	private Model(byte[] onnxModelBytes, Options options, Path baseDir, LoadTimings loadTimings) {
+		this(loadTimings.measure(Phase.PARSE, () -> parseOnnxModel(onnxModelBytes)), options, baseDir, loadTimings,
+				null);
+	}
+
+	/**
+	 * 通过内存映射的方式加载模型，所有raw_data形式的常量均直接引用映射区域(只读)，不再复制到独立分配的内存中。
+	 * 映射区域在Model关闭时释放。
+	 * 
+	 * @param onnxModelPath
+	 */
+	public Model(Path onnxModelPath) {
+		this(onnxModelPath, Tensor.options());
+	}
+
+	public Model(Path onnxModelPath, Tensor.Options tensorOptions) {
+		this(onnxModelPath, Model.options().setTensorOptions(tensorOptions));
+	}
+
+	public Model(Path onnxModelPath, Options options) {
+		this(onnxModelPath, options, new LoadTimings());
+	}
+
+	private Model(Path onnxModelPath, Options options, LoadTimings loadTimings) {
+		this(loadTimings.measure(Phase.READ, () -> mapOnnxModel(onnxModelPath)), options,
+				onnxModelPath.toAbsolutePath().getParent(), loadTimings);
+	}
+
+	private Model(ByteBuffer mappedModel, Options options, Path baseDir, LoadTimings loadTimings) {
+		this(loadTimings.measure(Phase.PARSE, () -> parseOnnxModel(mappedModel)), options, baseDir, loadTimings,
+				mappedModel);
+	}
+
+	/**
+	 * 由预先编译好的模型缓存构建Model，不再解析ModelProto，参考{@link ModelCache}
+	 * 
+	 * @param mappedModel
+	 *            缓存文件的映射区域，Model关闭时释放
+	 * @param graphLoader
+	 *            以构建中的Model创建Graph
+	 */
+	Model(String docString, long irVersion, long modelVersion, OperatorSetId[] opsetIds, Options options,
+			Path baseDir, ByteBuffer mappedModel, LoadTimings loadTimings, Function<Model, Graph> graphLoader) {
+		super(docString);
+
+		this.tensorManager = Model.newTensorManager();
+		this.loadTimings = loadTimings;
+		this.options = options;
+		this.baseDir = baseDir;
+		this.mappedModel = mappedModel;
+		this.tensorOptions = this.newTensorOptions();
+		this.irVersion = irVersion;
+		this.modelVersion = modelVersion;
+		this.opsetIds = opsetIds;
+
+		try {
+			this.doCheck(irVersion);
+
+			options.getLoadListener().onBytesParsed(mappedModel.capacity(), mappedModel.capacity());
+			this.checkCancelled();
+			this.graph = graphLoader.apply(this);
+		} catch (RuntimeException | Error e) {
+			this.release();
+			throw e;
+		}
+
+		logger.info("Model built, {}", this.loadTimings);
+
+		if (options.isLazyConstants() && options.isPrefetchConstants())
+			this.prefetchConstants();
+	}
+
+	/**
+	 * 每个模型使用Tensor.Options的副本，映射加载时附加映射区域的有效期，使引用映射区域的Tensor在模型关闭后不能再读取
+	 * <p>
+	 * 设置了内存预算时，为模型创建其下级预算，单独统计该模型的内存占用；下级预算不另设上限，沿用上级预算的策略
+	 */
+	private Tensor.Options newTensorOptions() {
+		Tensor.Options tensorOptions = this.options.getTensorOptions().copy();
+		MemoryBudget parentBudget = tensorOptions.getMemoryBudget();
+		if (parentBudget != null) {
+			tensorOptions.setMemoryBudget(new MemoryBudget(
+					String.format("%s/model@%x", parentBudget.getName(), System.identityHashCode(this)),
+					parentBudget, Long.MAX_VALUE, parentBudget.getPolicy(), parentBudget.getTimeoutMillis()));
+		}
+		if (this.mappedModel != null) {
+			this.mappingLease = new MemoryLease("the mapped model");
+			tensorOptions.setMemoryLease(this.mappingLease);
+		}
+		return tensorOptions;
+	}
+
+	private static TensorManager<Tensor> newTensorManager() {
+		return new TensorManager<Tensor>() {
+
+			@Override
+			protected void dispose(Tensor tensor) {
+				tensor.close();
+			}
+
+			@Override
+			protected long sizeOf(Tensor tensor) {
+				return Math.max(tensor.getMemoryBytes(), 0L);
+			}
+
+		};
 	}
 
 	public Graph getGraph() {
@@ -112,25 +472,209 @@ public class Model extends OnnxObject implements AutoCloseable {
 		return this.opsetIds;
 	}
 
-	public Options getTensorOptions() {
+	public Options getOptions() {
+		return options;
+	}
+
+	/**
+	 * @return 模型的常量等Tensor所使用的Options，为{@link Options#getTensorOptions()}的副本
+	 */
+	public Tensor.Options getTensorOptions() {
 		return tensorOptions;
 	}
 
+	/**
+	 * 获取模型文件所在目录
+	 * 
+	 * @return 模型不是从文件加载时返回null
+	 */
+	public Path getBaseDir() {
+		return baseDir;
+	}
+
+	/**
+	 * @return 构建模型时各阶段的耗时
+	 */
+	public LoadTimings getLoadTimings() {
+		return loadTimings;
+	}
+
 	public TensorManager<Tensor> getTensorManager() {
 		return tensorManager;
 	}
+
+	/**
+	 * @return 为模型创建的内存预算，统计该模型的Tensor占用的堆外内存；
+	 *         {@link Tensor.Options#setMemoryBudget(MemoryBudget)}设置为null而不计入预算时返回null
+	 * @see Tensor.Options#setMemoryBudget(MemoryBudget)
+	 */
+	public MemoryMetrics getMemoryMetrics() {
+		return tensorOptions.getMemoryBudget();
+	}
 	
+	/**
+	 * 在后台的守护线程中解码所有尚未加载的常量，重复调用返回同一个Future
+	 * 
+	 * @return 所有常量加载完成(或模型已关闭)时完成
+	 */
+	public synchronized CompletableFuture<Void> prefetchConstants() {
+		if (this.prefetch == null) {
+			this.prefetch = CompletableFuture.runAsync(() -> {
+				for (Constant constant : this.graph.getConstants()) {
+					if (this.closed)
+						break;
+
+					try {
+						constant.getTensor();
+					} catch (Exception e) {
+						if (this.closed)
+							break;
+
+						//
+						// 异常会在下一次调用getTensor()时重新抛出
+						//
+						logger.warn("Constant \"{}\" can not be prefetched: {}", constant.getName(), e.getMessage());
+					}
+				}
+			}, LOADER_EXECUTOR);
+		}
+
+		return this.prefetch;
+	}
+
+	/**
+	 * @return 是否已调用过{@link #close()}
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * 释放所有Tensor及模型文件的映射区域，重复调用无副作用
+	 */
 	@Override
 	public void close() throws Exception {
+		//
+		// 等待正在进行的预加载结束，避免在TensorManager关闭后再注册新的Tensor
+		//
+		CompletableFuture<Void> prefetch;
+		synchronized (this) {
+			if (this.closed)
+				return;
+
+			this.closed = true;
+			prefetch = this.prefetch;
+		}
+		if (prefetch != null)
+			prefetch.join();
+
 		this.tensorManager.close();
+
+		//
+		// 常量及其视图可能引用映射区域，必须在所有Tensor释放之后才能解除映射；
+		// 调用者仍持有的视图此后读取时抛出IllegalStateException，而不是访问已解除映射的内存
+		//
+		if (this.mappingLease != null)
+			this.mappingLease.revoke();
+		if (this.mappedModel != null) {
+			DirectBufferDealloc.deallocateDirectBuffer(this.mappedModel);
+			this.mappedModel = null;
+		}
+	}
+
+	/**
+	 * 检查加载是否已被放弃
+	 * 
+	 * @throws CancellationException
+	 */
+	public void checkCancelled() {
+		if (this.options.getLoadListener().isCancelled())
+			throw new CancellationException("Loading of model has been cancelled");
+	}
+
+	/**
+	 * 构建失败时释放已分配的内存
+	 */
+	private void release() {
+		try {
+			this.close();
+		} catch (Exception e) {
+			logger.warn("Model can not be released: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 在独立的守护线程中加载模型，参考{@link #loadAsync(Path, Options, Executor)}
+	 */
+	public static CompletableFuture<Model> loadAsync(Path onnxModelPath, Options options) {
+		return Model.loadAsync(onnxModelPath, options, LOADER_EXECUTOR);
+	}
+
+	/**
+	 * 在executor中以内存映射的方式加载模型
+	 * 
+	 * 调用返回的Future的cancel()将在下一个检查点(节点或常量创建之间)放弃加载，并释放已分配的内存
+	 * 
+	 * @param onnxModelPath
+	 * @param options
+	 *            可通过{@link Options#setLoadListener(LoadListener)}接收加载进度(按节点及常量的数量，字节数只在解析完成时报告一次)
+	 * @param executor
+	 * @return
+	 */
+	public static CompletableFuture<Model> loadAsync(Path onnxModelPath, Options options, Executor executor) {
+		CompletableFuture<Model> future = new CompletableFuture<Model>();
+		LoadListener loadListener = options.getLoadListener();
+		Options asyncOptions = options.copy().setLoadListener(new LoadListener() {
+
+			@Override
+			public void onBytesParsed(long parsedBytes, long totalBytes) {
+				loadListener.onBytesParsed(parsedBytes, totalBytes);
+			}
+
+			@Override
+			public void onNodesBuilt(int builtNodes, int totalNodes) {
+				loadListener.onNodesBuilt(builtNodes, totalNodes);
+			}
+
+			@Override
+			public void onConstantsLoaded(int loadedConstants, int totalConstants) {
+				loadListener.onConstantsLoaded(loadedConstants, totalConstants);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return future.isCancelled() || loadListener.isCancelled();
+			}
+
+		});
+
+		executor.execute(() -> {
+			if (future.isCancelled())
+				return;
+
+			try {
+				Model model = new Model(onnxModelPath, asyncOptions);
+
+				//
+				// 在构建完成之后才被取消，交付失败时由此释放
+				//
+				if (future.complete(model) == false)
+					model.release();
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+
+		return future;
 	}
 
 	/**
 	 * 对传入的模型进行必要的合法性检查
 	 * 
-	 * @param onnxModel
+	 * @param modelIrVersion
+	 *            模型声明的IR版本号，由ModelProto或模型缓存读取
 	 */
-	private void doCheck(ModelProto onnxModel) {
+	private void doCheck(long modelIrVersion) {
 		//
 		// 检查模型的ONNX IR版本是否在支持的范围内
 		// 若
@@ -139,7 +683,6 @@ public class Model extends OnnxObject implements AutoCloseable {
 		// 模型声明的IR版本号大于于ONNX IR支持的最大版本号
 		// 则被认为改模型不被Forwarder支持，抛出Runtime Exception
 		//
-		long modelIrVersion = onnxModel.getIrVersion();
 		if (modelIrVersion > Version.IR_VERSION_VALUE || modelIrVersion < Version._START_VERSION_VALUE)
 			throw new ModelException(ModelExceptionEnums.IR_VER_UNSUPPORTED, modelIrVersion, Version.IR_VERSION_VALUE);
 	}
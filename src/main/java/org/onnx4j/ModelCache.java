@@ -0,0 +1,846 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import org.onnx4j.LoadTimings.Phase;
+import org.onnx4j.exceptions.ModelException;
+import org.onnx4j.exceptions.ModelException.ModelExceptionEnums;
+import org.onnx4j.model.Graph;
+import org.onnx4j.model.graph.Constant;
+import org.onnx4j.model.graph.Node;
+import org.onnx4j.model.graph.SparseConstant;
+import org.onnx4j.model.graph.exchanges.GraphInput;
+import org.onnx4j.model.graph.exchanges.GraphOutput;
+import org.onnx4j.model.graph.node.Attribute;
+import org.onnx4j.model.graph.node.Attributes;
+import org.onnx4j.model.graph.node.attributes.FloatAttribute;
+import org.onnx4j.model.graph.node.attributes.FloatsAttribute;
+import org.onnx4j.model.graph.node.attributes.IntAttribute;
+import org.onnx4j.model.graph.node.attributes.IntsAttribute;
+import org.onnx4j.model.graph.node.attributes.SparseTensorAttribute;
+import org.onnx4j.model.graph.node.attributes.StringAttribute;
+import org.onnx4j.model.graph.node.attributes.StringsAttribute;
+import org.onnx4j.model.graph.node.attributes.TensorAttribute;
+import org.onnx4j.model.graph.node.attributes.TensorsAttribute;
+import org.onnx4j.opsets.operator.OperatorSetId;
+import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.QuantizationParams;
+import org.onnx4j.tensor.Shape;
+import org.onnx4j.tensor.SparseTensor;
+import org.onnx4j.tensor.StringData;
+import org.onnx4j.tensor.TensorBuilder;
+import org.onnx4j.tensor.TensorStorage;
+import org.onnx4j.tensor.ValueInfo;
+import org.onnx4j.utils.BufferUtil;
+import org.onnx4j.utils.DirectBufferDealloc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.ImmutableGraph;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Longs;
+
+/**
+ * 预编译的模型缓存
+ * 
+ * 将已加载的Model保存为带版本号的二进制文件，其中包含按拓扑排序的节点、已确定类型的属性以及按64字节对齐的权重数据。
+ * 再次打开时通过内存映射读取，跳过protobuf解析、DAG推导以及权重的解码与复制，Options为DIRECT、小端字节序时权重直接引用映射区域。
+ * 
+ * <pre>
+ * header   : magic(8) | version(4) | alignment(4) | sourceSize(8) | sourceLastModified(8)
+ *            | metadataOffset(8) | metadataLength(8) | blobsOffset(8) | blobsLength(8)
+ * metadata : model | opsets | graph | nodes | edges | constants | inputs | outputs (big-endian)
+ * tensor   : name | docString | dataType | shape | quantization | blobOffset | blobLength
+ * blobs    : tensor data in raw_data format (little-endian), each aligned to 64 bytes
+ * </pre>
+ * 
+ * 缓存文件上限为2GB，与protobuf格式的模型一致。
+ */
+public final class ModelCache {
+
+	private static Logger logger = LoggerFactory.getLogger(ModelCache.class);
+
+	private static final byte[] MAGIC = "ONNX4JMC".getBytes(StandardCharsets.US_ASCII);
+
+	public static final int FORMAT_VERSION = 3;
+
+	public static final int ALIGNMENT = 64;
+
+	private static final int HEADER_SIZE = 64;
+
+	private static final byte ATTR_INT = 1;
+	private static final byte ATTR_INTS = 2;
+	private static final byte ATTR_FLOAT = 3;
+	private static final byte ATTR_FLOATS = 4;
+	private static final byte ATTR_STRING = 5;
+	private static final byte ATTR_STRINGS = 6;
+	private static final byte ATTR_TENSOR = 7;
+	private static final byte ATTR_TENSORS = 8;
+	private static final byte ATTR_SPARSE_TENSOR = 9;
+
+	private ModelCache() {
+	}
+
+	/**
+	 * 优先打开与ONNX模型文件对应且未过期的缓存，否则加载ONNX模型并重新生成缓存
+	 * 
+	 * @param onnxModelPath
+	 * @param cachePath
+	 * @param options
+	 * @return
+	 */
+	public static Model load(Path onnxModelPath, Path cachePath, Model.Options options) {
+		if (ModelCache.isUpToDate(cachePath, onnxModelPath)) {
+			try {
+				return ModelCache.open(cachePath, options);
+			} catch (ModelException e) {
+				logger.warn("Model cache \"{}\" is ignored: {}", cachePath, e.getMessage());
+			}
+		}
+
+		Model model = new Model(onnxModelPath, options);
+		try {
+			ModelCache.save(model, cachePath, onnxModelPath);
+		} catch (IOException | RuntimeException e) {
+			//
+			// 模型本身已加载成功，无法缓存(如超过2GB、含有无法缓存的属性)时仍返回该模型，并删除过期的缓存
+			//
+			logger.warn("Model cache \"{}\" can not be saved: {}", cachePath, e.toString());
+			try {
+				Files.deleteIfExists(cachePath);
+			} catch (IOException deleteException) {
+				logger.warn("Model cache \"{}\" can not be deleted: {}", cachePath, deleteException.toString());
+			}
+		} catch (Throwable e) {
+			//
+			// 模型不会再交给调用者，由此释放
+			//
+			try {
+				model.close();
+			} catch (Exception closeException) {
+				e.addSuppressed(closeException);
+			}
+			throw e;
+		}
+		return model;
+	}
+
+	/**
+	 * @return 缓存存在、格式版本一致，并且记录的模型文件大小与修改时间均与当前文件相同
+	 */
+	public static boolean isUpToDate(Path cachePath, Path onnxModelPath) {
+		if (Files.isRegularFile(cachePath) == false)
+			return false;
+
+		try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0)
+				;
+			header.flip();
+
+			if (ModelCache.checkHeader(header) != null)
+				return false;
+
+			return header.getLong(16) == Files.size(onnxModelPath)
+					&& header.getLong(24) == Files.getLastModifiedTime(onnxModelPath).toMillis();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public static void save(Model model, Path cachePath) throws IOException {
+		ModelCache.save(model, cachePath, null);
+	}
+
+	private static void save(Model model, Path cachePath, Path onnxModelPath) throws IOException {
+		Writer writer = new Writer();
+		writer.writeModel(model);
+		byte[] metadata = writer.metadata.toByteArray();
+
+		long blobsOffset = ModelCache.align(HEADER_SIZE + metadata.length);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.putInt(ALIGNMENT);
+		header.putLong(onnxModelPath != null ? Files.size(onnxModelPath) : -1L);
+		header.putLong(onnxModelPath != null ? Files.getLastModifiedTime(onnxModelPath).toMillis() : -1L);
+		header.putLong(HEADER_SIZE);
+		header.putLong(metadata.length);
+		header.putLong(blobsOffset);
+		header.putLong(writer.blobsLength);
+		header.flip();
+
+		if (blobsOffset + writer.blobsLength > Integer.MAX_VALUE)
+			throw new IOException(String.format("%s bytes exceeds the 2GB limit of model cache",
+					blobsOffset + writer.blobsLength));
+
+		//
+		// 先写入临时文件再替换，避免其它进程读到不完整的缓存
+		//
+		Path tempPath = Files.createTempFile(cachePath.toAbsolutePath().getParent(), cachePath.getFileName().toString(),
+				".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ModelCache.writeFully(channel, header, 0L);
+				ModelCache.writeFully(channel, ByteBuffer.wrap(metadata), HEADER_SIZE);
+				for (int n = 0; n < writer.blobTensors.size(); n++) {
+					ModelCache.writeFully(channel, Writer.littleEndianData(writer.blobTensors.get(n)),
+							blobsOffset + writer.blobOffsets.get(n));
+				}
+				if (channel.size() < blobsOffset)
+					ModelCache.writeFully(channel, ByteBuffer.allocate(1), blobsOffset - 1);
+				channel.force(true);
+			}
+
+			try {
+				Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+
+		logger.info("Model cache saved to \"{}\" ({} bytes)", cachePath, blobsOffset + writer.blobsLength);
+	}
+
+	public static Model open(Path cachePath) {
+		return ModelCache.open(cachePath, Model.options());
+	}
+
+	/**
+	 * 通过内存映射打开模型缓存，映射区域在Model关闭时释放
+	 * 
+	 * @param cachePath
+	 * @param options
+	 * @return
+	 */
+	public static Model open(Path cachePath, Model.Options options) {
+		LoadTimings loadTimings = new LoadTimings();
+		MappedByteBuffer mapped = loadTimings.measure(Phase.READ, () -> ModelCache.map(cachePath));
+
+		Reader reader = null;
+		try {
+			String invalidReason = ModelCache.checkHeader(mapped);
+			if (invalidReason != null)
+				throw new ModelException(ModelExceptionEnums.MODEL_CACHE_INVALID, cachePath, invalidReason);
+
+			long metadataOffset = mapped.getLong(32);
+			long metadataLength = mapped.getLong(40);
+			long blobsOffset = mapped.getLong(48);
+			long blobsLength = mapped.getLong(56);
+			if (metadataOffset + metadataLength > mapped.capacity() || blobsOffset + blobsLength > mapped.capacity())
+				throw new ModelException(ModelExceptionEnums.MODEL_CACHE_INVALID, cachePath, "file is truncated");
+
+			ByteBuffer metadata = mapped.duplicate();
+			metadata.limit((int) (metadataOffset + metadataLength)).position((int) metadataOffset);
+
+			ByteBuffer blobs = mapped.duplicate();
+			blobs.limit((int) (blobsOffset + blobsLength)).position((int) blobsOffset);
+
+			reader = new Reader(metadata.slice(), blobs.slice(), options, loadTimings);
+			Model model = reader.readModel(cachePath.toAbsolutePath().getParent(), mapped);
+			logger.info("Model opened from cache \"{}\" ({} bytes)", cachePath, mapped.capacity());
+			return model;
+		} catch (ModelException | CancellationException e) {
+			ModelCache.unmap(mapped, reader);
+			throw e;
+		} catch (RuntimeException e) {
+			ModelCache.unmap(mapped, reader);
+			throw Model.wrapException(ModelExceptionEnums.MODEL_CACHE_INVALID, e, cachePath, e.toString());
+		}
+	}
+
+	/**
+	 * 打开失败时解除映射；映射区域已交给Model时由其在构建失败时释放，不能再次释放
+	 */
+	private static void unmap(MappedByteBuffer mapped, Reader reader) {
+		if (reader == null || reader.mappingTransferred == false)
+			DirectBufferDealloc.deallocateDirectBuffer(mapped);
+	}
+
+	private static MappedByteBuffer map(Path cachePath) {
+		try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new ModelException(ModelExceptionEnums.MODEL_TOO_LARGE, cachePath, channel.size());
+
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_NOT_EXISTS, e, cachePath);
+		} catch (IOException e) {
+			throw Model.wrapException(ModelExceptionEnums.MODEL_UNREADABLE, e, cachePath, e.toString());
+		}
+	}
+
+	/**
+	 * @return 头部不合法的原因，合法时返回null
+	 */
+	private static String checkHeader(ByteBuffer header) {
+		if (header.limit() < HEADER_SIZE)
+			return "file is truncated";
+
+		byte[] magic = new byte[MAGIC.length];
+		ByteBuffer duplicate = header.duplicate();
+		duplicate.position(0);
+		duplicate.get(magic);
+		if (Arrays.equals(MAGIC, magic) == false)
+			return "not a model cache";
+
+		int version = header.getInt(8);
+		if (version != FORMAT_VERSION)
+			return String.format("format version %s is not supported, expected %s", version, FORMAT_VERSION);
+
+		if (header.getInt(12) != ALIGNMENT)
+			return String.format("alignment %s is not supported, expected %s", header.getInt(12), ALIGNMENT);
+
+		return null;
+	}
+
+	private static long align(long offset) {
+		return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+		ByteBuffer buffer = src.duplicate();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static DataType dataTypeOf(int code) {
+		for (DataType dataType : DataType.values()) {
+			if (dataType.getCode() == code)
+				return dataType;
+		}
+		return null;
+	}
+
+	private static class Writer {
+
+		private ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+		private DataOutputStream out = new DataOutputStream(this.metadata);
+		//
+		// 权重在写入文件时才逐个转换为小端字节序，写入元数据时只检查能否缓存并计算偏移量
+		//
+		private List<Tensor> blobTensors = new ArrayList<Tensor>();
+		private List<Long> blobOffsets = new ArrayList<Long>();
+		private long blobsLength = 0L;
+
+		private void writeModel(Model model) throws IOException {
+			this.writeString(model.getDocString());
+			this.out.writeLong(model.getIrVersion());
+			this.out.writeLong(model.getModelVersion());
+
+			this.out.writeInt(model.getOpsetIds().length);
+			for (OperatorSetId opsetId : model.getOpsetIds()) {
+				this.writeString(opsetId.getDomain());
+				this.out.writeLong(opsetId.getOpsetVersion());
+			}
+
+			Graph graph = model.getGraph();
+			this.writeString(graph.getName());
+			this.writeString(graph.getDocString());
+
+			List<Node> sortedNodes = graph.getSortedNodes();
+			Map<Node, Integer> indexes = new IdentityHashMap<Node, Integer>();
+			this.out.writeInt(sortedNodes.size());
+			for (Node node : sortedNodes) {
+				indexes.put(node, indexes.size());
+				this.writeNode(node);
+			}
+
+			List<int[]> edges = new ArrayList<int[]>();
+			for (Node node : sortedNodes) {
+				for (Node successor : graph.successors(node)) {
+					edges.add(new int[] { indexes.get(node), indexes.get(successor) });
+				}
+			}
+			this.out.writeInt(edges.size());
+			for (int[] edge : edges) {
+				this.out.writeInt(edge[0]);
+				this.out.writeInt(edge[1]);
+			}
+
+			this.out.writeInt(graph.getConstants().length);
+			for (Constant constant : graph.getConstants()) {
+				this.writeTensor(constant.getTensor());
+			}
+
+			this.out.writeInt(graph.getSparseConstants().length);
+			for (SparseConstant sparseConstant : graph.getSparseConstants()) {
+				this.writeSparseTensor(sparseConstant.getSparseTensor());
+			}
+
+			this.out.writeInt(graph.getInputs().length);
+			for (GraphInput input : graph.getInputs()) {
+				this.writeString(input.getName());
+				this.writeString(input.getDocString());
+				this.writeValueInfo(input.getValueInfo());
+			}
+
+			this.out.writeInt(graph.getOutputs().length);
+			for (GraphOutput output : graph.getOutputs()) {
+				this.writeString(output.getName());
+				this.writeString(output.getDocString());
+				this.writeValueInfo(output.getValueInfo());
+				Integer index = (output.getNode() != null) ? indexes.get(output.getNode()) : null;
+				this.out.writeInt(index != null ? index : -1);
+			}
+
+			this.out.flush();
+		}
+
+		private void writeNode(Node node) throws IOException {
+			this.writeString(node.getName());
+			this.writeString(node.getDocString());
+			this.writeString(node.getDomain());
+			this.writeString(node.getOpType());
+			this.writeStrings(Arrays.asList(node.getInputNames()));
+			this.writeStrings(Arrays.asList(node.getOutputNames()));
+
+			this.out.writeInt(node.getAttrs().getAttrs().size());
+			for (Attribute<?> attr : node.getAttrs().getAttrs()) {
+				this.writeString(attr.getName());
+				this.writeString(attr.getDocString());
+
+				if (attr instanceof IntAttribute) {
+					this.out.writeByte(ATTR_INT);
+					this.out.writeLong(((IntAttribute) attr).getValue());
+				} else if (attr instanceof IntsAttribute) {
+					this.out.writeByte(ATTR_INTS);
+					List<Long> values = ((IntsAttribute) attr).getValue();
+					this.out.writeInt(values.size());
+					for (int n = 0; n < values.size(); n++)
+						this.out.writeLong(values.get(n));
+				} else if (attr instanceof FloatAttribute) {
+					this.out.writeByte(ATTR_FLOAT);
+					this.out.writeFloat(((FloatAttribute) attr).getValue());
+				} else if (attr instanceof FloatsAttribute) {
+					this.out.writeByte(ATTR_FLOATS);
+					List<Float> values = ((FloatsAttribute) attr).getValue();
+					this.out.writeInt(values.size());
+					for (int n = 0; n < values.size(); n++)
+						this.out.writeFloat(values.get(n));
+				} else if (attr instanceof StringAttribute) {
+					this.out.writeByte(ATTR_STRING);
+					this.writeString(((StringAttribute) attr).getValue());
+				} else if (attr instanceof StringsAttribute) {
+					this.out.writeByte(ATTR_STRINGS);
+					this.writeStrings(((StringsAttribute) attr).getValue());
+				} else if (attr instanceof TensorAttribute) {
+					this.out.writeByte(ATTR_TENSOR);
+					this.writeTensor(((TensorAttribute) attr).getValue());
+				} else if (attr instanceof TensorsAttribute) {
+					this.out.writeByte(ATTR_TENSORS);
+					List<Tensor> values = ((TensorsAttribute) attr).getValue();
+					this.out.writeInt(values.size());
+					for (Tensor tensor : values)
+						this.writeTensor(tensor);
+				} else if (attr instanceof SparseTensorAttribute) {
+					this.out.writeByte(ATTR_SPARSE_TENSOR);
+					this.writeSparseTensor(((SparseTensorAttribute) attr).getValue());
+				} else {
+					throw new UnsupportedOperationException(String.format(
+							"Unable to cache the attribute \"%s\" of %s", attr.getName(), attr.getClass().getName()));
+				}
+			}
+		}
+
+		private void writeTensor(Tensor tensor) throws IOException {
+			this.writeString(tensor.getName());
+			this.writeString(tensor.getDocString());
+			this.out.writeInt(tensor.getDataType().getCode());
+			this.writeShape(tensor.getValueInfo().getShape());
+			this.writeQuantization(tensor.getQuantization());
+
+			TensorStorage storage = tensor.getStorage();
+			if (storage.getChunkCount() > 1)
+				throw new IOException(String.format(
+						"[Tensor:%s] is held in chunked storage, which model cache can not store", tensor.getName()));
+
+			long length = storage.byteSize();
+			long offset = ModelCache.align(this.blobsLength);
+			if (offset + length > Integer.MAX_VALUE)
+				throw new IOException(String.format("%s bytes of tensors exceeds the 2GB limit of model cache",
+						offset + length));
+
+			this.blobTensors.add(tensor);
+			this.blobOffsets.add(offset);
+			this.blobsLength = offset + length;
+
+			this.out.writeLong(offset);
+			this.out.writeLong(length);
+		}
+
+		private void writeSparseTensor(SparseTensor sparseTensor) throws IOException {
+			this.writeString(sparseTensor.getName());
+			this.writeString(sparseTensor.getDocString());
+			this.out.writeByte(sparseTensor.getLayout().ordinal());
+			this.writeShape(sparseTensor.getShape());
+			this.writeTensor(sparseTensor.getValues());
+			this.writeTensor(sparseTensor.getIndices());
+			if (SparseTensor.Layout.CSR == sparseTensor.getLayout())
+				this.writeTensor(sparseTensor.getRowPointers());
+		}
+
+		private void writeValueInfo(ValueInfo valueInfo) throws IOException {
+			this.out.writeInt(valueInfo.getDataType() != null ? valueInfo.getDataType().getCode() : -1);
+			this.writeShape(valueInfo.getShape());
+			this.writeQuantization(valueInfo.getQuantization());
+		}
+
+		private void writeQuantization(QuantizationParams quantization) throws IOException {
+			if (quantization == null) {
+				this.out.writeInt(-1);
+				return;
+			}
+
+			this.out.writeInt(quantization.getDataType().getCode());
+			this.out.writeInt(quantization.getAxis());
+			this.out.writeInt(quantization.getCount());
+			for (int n = 0; n < quantization.getCount(); n++) {
+				this.out.writeFloat(quantization.getScale(n));
+				this.out.writeLong(quantization.getZeroPoint(n));
+			}
+		}
+
+		private void writeShape(Shape shape) throws IOException {
+			this.out.writeInt(shape.dims());
+			for (long dim : shape.toArray())
+				this.out.writeLong(dim);
+		}
+
+		private void writeStrings(List<String> values) throws IOException {
+			this.out.writeInt(values.size());
+			for (String value : values)
+				this.writeString(value);
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				this.out.writeInt(-1);
+				return;
+			}
+
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			this.out.writeInt(bytes.length);
+			this.out.write(bytes);
+		}
+
+		/**
+		 * 权重统一按raw_data的格式(小端字节序)保存
+		 */
+		private static ByteBuffer littleEndianData(Tensor tensor) {
+			ByteBuffer data = tensor.getData();
+			DataType dataType = tensor.getDataType();
+			if (ByteOrder.LITTLE_ENDIAN.equals(data.order())
+					|| (dataType.isVariableLength() == false && dataType.getComponentSize() == Byte.BYTES))
+				return data;
+
+			ByteBuffer littleEndianData = ByteBuffer.allocate(data.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+			if (dataType.isVariableLength())
+				StringData.copy(littleEndianData, data);
+			else
+				BufferUtil.copy(littleEndianData, data, dataType.getComponentSize());
+			littleEndianData.flip();
+			return littleEndianData;
+		}
+
+	}
+
+	private static class Reader {
+
+		private ByteBuffer metadata;
+		private ByteBuffer blobs;
+		private Model.Options options;
+		private LoadTimings loadTimings;
+
+		//
+		// 映射区域是否已交给Model，此后由Model负责释放
+		//
+		private boolean mappingTransferred = false;
+
+		private Reader(ByteBuffer metadata, ByteBuffer blobs, Model.Options options, LoadTimings loadTimings) {
+			this.metadata = metadata;
+			this.blobs = blobs;
+			this.options = options;
+			this.loadTimings = loadTimings;
+		}
+
+		private Model readModel(Path baseDir, ByteBuffer mapped) {
+			String docString = this.readString();
+			long irVersion = this.metadata.getLong();
+			long modelVersion = this.metadata.getLong();
+
+			OperatorSetId[] opsetIds = new OperatorSetId[this.metadata.getInt()];
+			for (int n = 0; n < opsetIds.length; n++) {
+				opsetIds[n] = new OperatorSetId(this.readString(), this.metadata.getLong());
+			}
+
+			this.mappingTransferred = true;
+			return new Model(docString, irVersion, modelVersion, opsetIds, this.options, baseDir, mapped,
+					this.loadTimings, this::readGraph);
+		}
+
+		private Graph readGraph(Model model) {
+			String name = this.readString();
+			String docString = this.readString();
+
+			Node[] nodes = new Node[this.metadata.getInt()];
+			this.loadTimings.measure(Phase.NODES, () -> {
+				for (int n = 0; n < nodes.length; n++) {
+					model.checkCancelled();
+					nodes[n] = this.readNode(model);
+					this.options.getLoadListener().onNodesBuilt(n + 1, nodes.length);
+				}
+			});
+
+			com.google.common.graph.Graph<Node> dag = this.loadTimings.measure(Phase.DAG, () -> {
+				ImmutableGraph.Builder<Node> builder = GraphBuilder.directed().allowsSelfLoops(false)
+						.<Node>immutable();
+				for (Node node : nodes) {
+					builder.addNode(node);
+				}
+
+				int numEdges = this.metadata.getInt();
+				for (int n = 0; n < numEdges; n++) {
+					builder.putEdge(nodes[this.metadata.getInt()], nodes[this.metadata.getInt()]);
+				}
+				return builder.build();
+			});
+
+			Constant[] constants = new Constant[this.metadata.getInt()];
+			for (int n = 0; n < constants.length; n++) {
+				String constantName = this.readString();
+				String constantDocString = this.readString();
+				DataType dataType = ModelCache.dataTypeOf(this.metadata.getInt());
+				Shape shape = this.readShape();
+				QuantizationParams quantization = this.readQuantization();
+				ByteBuffer blob = this.readBlob();
+				constants[n] = new Constant(model, constantName, constantDocString,
+						() -> TensorBuilder.builder(dataType, shape, blob, model.getTensorOptions())
+								.name(constantName)
+								.docString(constantDocString)
+								.quantization(quantization)
+								.manager(model.getTensorManager())
+								.share(model.getOptions().getSharedTensorStore())
+								.build(),
+						true);
+			}
+
+			if (this.options.isLazyConstants() == false)
+				this.loadTimings.measure(Phase.CONSTANTS,
+						() -> Constant.loadAll(constants, this.options.getLoadParallelism(),
+								this.options.getLoadListener()));
+
+			SparseConstant[] sparseConstants = new SparseConstant[this.metadata.getInt()];
+			for (int n = 0; n < sparseConstants.length; n++) {
+				sparseConstants[n] = new SparseConstant(this.readSparseTensor(model));
+			}
+
+			GraphInput[] inputs = new GraphInput[this.metadata.getInt()];
+			for (int n = 0; n < inputs.length; n++) {
+				inputs[n] = new GraphInput(this.readString(), this.readString(), this.readValueInfo());
+			}
+
+			GraphOutput[] outputs = new GraphOutput[this.metadata.getInt()];
+			for (int n = 0; n < outputs.length; n++) {
+				String outputName = this.readString();
+				String outputDocString = this.readString();
+				ValueInfo valueInfo = this.readValueInfo();
+				int index = this.metadata.getInt();
+				outputs[n] = new GraphOutput(index >= 0 ? nodes[index] : null, outputName, outputDocString, valueInfo);
+			}
+
+			return new Graph(model, name, docString, dag, Arrays.asList(nodes), constants, sparseConstants, inputs,
+					outputs);
+		}
+
+		private Node readNode(Model model) {
+			String name = this.readString();
+			String docString = this.readString();
+			String domain = this.readString();
+			String opType = this.readString();
+			String[] inputNames = this.readStrings().toArray(new String[0]);
+			String[] outputNames = this.readStrings().toArray(new String[0]);
+
+			List<Attribute<?>> attrs = new ArrayList<Attribute<?>>();
+			int numAttrs = this.metadata.getInt();
+			for (int n = 0; n < numAttrs; n++) {
+				String attrName = this.readString();
+				String attrDocString = this.readString();
+				byte type = this.metadata.get();
+				switch (type) {
+				case ATTR_INT:
+					attrs.add(new IntAttribute(attrName, attrDocString, this.metadata.getLong()));
+					break;
+				case ATTR_INTS: {
+					long[] values = new long[this.metadata.getInt()];
+					this.metadata.asLongBuffer().get(values);
+					this.metadata.position(this.metadata.position() + values.length * Long.BYTES);
+					attrs.add(new IntsAttribute(attrName, attrDocString, Longs.asList(values)));
+					break;
+				}
+				case ATTR_FLOAT:
+					attrs.add(new FloatAttribute(attrName, attrDocString, this.metadata.getFloat()));
+					break;
+				case ATTR_FLOATS: {
+					float[] values = new float[this.metadata.getInt()];
+					this.metadata.asFloatBuffer().get(values);
+					this.metadata.position(this.metadata.position() + values.length * Float.BYTES);
+					attrs.add(new FloatsAttribute(attrName, attrDocString, Floats.asList(values)));
+					break;
+				}
+				case ATTR_STRING:
+					attrs.add(new StringAttribute(attrName, attrDocString, this.readString()));
+					break;
+				case ATTR_STRINGS:
+					attrs.add(new StringsAttribute(attrName, attrDocString, this.readStrings()));
+					break;
+				case ATTR_TENSOR:
+					attrs.add(new TensorAttribute(attrName, attrDocString, this.readTensor(model)));
+					break;
+				case ATTR_TENSORS: {
+					List<Tensor> tensors = new ArrayList<Tensor>();
+					int numTensors = this.metadata.getInt();
+					for (int m = 0; m < numTensors; m++)
+						tensors.add(this.readTensor(model));
+					attrs.add(new TensorsAttribute(attrName, attrDocString, tensors));
+					break;
+				}
+				case ATTR_SPARSE_TENSOR:
+					attrs.add(new SparseTensorAttribute(attrName, attrDocString, this.readSparseTensor(model)));
+					break;
+				default:
+					throw new IllegalStateException(
+							String.format("Unknown type %s of attribute \"%s\"", type, attrName));
+				}
+			}
+
+			return new Node(name, docString, domain, opType, inputNames, outputNames, new Attributes(attrs));
+		}
+
+		private Tensor readTensor(Model model) {
+			String name = this.readString();
+			String docString = this.readString();
+			DataType dataType = ModelCache.dataTypeOf(this.metadata.getInt());
+			Shape shape = this.readShape();
+			QuantizationParams quantization = this.readQuantization();
+			return TensorBuilder.builder(dataType, shape, this.readBlob(), model.getTensorOptions())
+					.name(name)
+					.docString(docString)
+					.quantization(quantization)
+					.manager(model.getTensorManager())
+					.share(model.getOptions().getSharedTensorStore())
+					.build();
+		}
+
+		private ByteBuffer readBlob() {
+			long offset = this.metadata.getLong();
+			long length = this.metadata.getLong();
+			ByteBuffer blob = this.blobs.duplicate();
+			blob.limit((int) (offset + length)).position((int) offset);
+			return blob.slice();
+		}
+
+		private SparseTensor readSparseTensor(Model model) {
+			String name = this.readString();
+			String docString = this.readString();
+			SparseTensor.Layout layout = SparseTensor.Layout.values()[this.metadata.get()];
+			Shape shape = this.readShape();
+			Tensor values = this.readTensor(model);
+			Tensor indices = this.readTensor(model);
+			return (SparseTensor.Layout.CSR == layout)
+					? SparseTensor.csr(name, docString, shape, values, this.readTensor(model), indices)
+					: SparseTensor.coo(name, docString, shape, values, indices);
+		}
+
+		private ValueInfo readValueInfo() {
+			DataType dataType = ModelCache.dataTypeOf(this.metadata.getInt());
+			Shape shape = this.readShape();
+			return new ValueInfo(dataType, shape, this.readQuantization());
+		}
+
+		private QuantizationParams readQuantization() {
+			DataType dataType = ModelCache.dataTypeOf(this.metadata.getInt());
+			if (dataType == null)
+				return null;
+
+			int axis = this.metadata.getInt();
+			float[] scales = new float[this.metadata.getInt()];
+			long[] zeroPoints = new long[scales.length];
+			for (int n = 0; n < scales.length; n++) {
+				scales[n] = this.metadata.getFloat();
+				zeroPoints[n] = this.metadata.getLong();
+			}
+			return (QuantizationParams.PER_TENSOR == axis)
+					? QuantizationParams.perTensor(dataType, scales[0], zeroPoints[0])
+					: QuantizationParams.perAxis(dataType, axis, scales, zeroPoints);
+		}
+
+		private Shape readShape() {
+			long[] shape = new long[this.metadata.getInt()];
+			for (int n = 0; n < shape.length; n++)
+				shape[n] = this.metadata.getLong();
+			return Shape.create(shape);
+		}
+
+		private List<String> readStrings() {
+			List<String> values = new ArrayList<String>();
+			int numValues = this.metadata.getInt();
+			for (int n = 0; n < numValues; n++)
+				values.add(this.readString());
+			return values;
+		}
+
+		private String readString() {
+			int length = this.metadata.getInt();
+			if (length < 0)
+				return null;
+
+			byte[] bytes = new byte[length];
+			this.metadata.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	}
+
+}
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 可原子替换的Model引用
+ * 
+ * 每次请求通过{@link #pin()}固定当前版本的Model，直到{@link Pin#close()}为止该Model都不会被关闭；
+ * {@link #swap(Model)}立即使新请求使用新的Model，旧Model在最后一个Pin释放后才关闭并释放内存，
+ * 替换过程中不阻塞任何请求
+ * 
+ * <pre>
+ * try (ModelHandle.Pin pin = handle.pin()) {
+ * 	backend.execute(pin.getModel(), inputs);
+ * }
+ * </pre>
+ */
+public class ModelHandle implements AutoCloseable {
+
+	private static Logger logger = LoggerFactory.getLogger(ModelHandle.class);
+
+	private final AtomicReference<Version> current;
+
+	private final AtomicInteger versionCounter = new AtomicInteger();
+
+	public ModelHandle(Model model) {
+		this.current = new AtomicReference<Version>(new Version(model, this.versionCounter.incrementAndGet()));
+	}
+
+	/**
+	 * 固定当前版本的Model
+	 * 
+	 * @return 使用完毕后必须关闭
+	 * @throws IllegalStateException
+	 *             ModelHandle已关闭
+	 */
+	public Pin pin() {
+		while (true) {
+			Version version = this.current.get();
+			if (version == null)
+				throw new IllegalStateException("The ModelHandle has closed.");
+
+			//
+			// 获取引用与swap之间存在竞争，引用计数已归零说明该版本已被替换并关闭，重新读取当前版本
+			//
+			if (version.retain())
+				return new Pin(version);
+		}
+	}
+
+	/**
+	 * 以新的Model替换当前Model，此后的{@link #pin()}均返回新的Model
+	 * 
+	 * @param model
+	 * @return 旧Model关闭时完成
+	 */
+	public CompletableFuture<Void> swap(Model model) {
+		Version previous;
+		Version next = new Version(model, this.versionCounter.incrementAndGet());
+		do {
+			previous = this.current.get();
+			if (previous == null)
+				throw new IllegalStateException("The ModelHandle has closed.");
+		} while (this.current.compareAndSet(previous, next) == false);
+
+		logger.info("Model swapped from version {} to {}", previous.number, next.number);
+		previous.release();
+		return previous.retired;
+	}
+
+	/**
+	 * @return 当前版本号，从1开始，每次swap加1
+	 */
+	public int getVersion() {
+		Version version = this.current.get();
+		if (version == null)
+			throw new IllegalStateException("The ModelHandle has closed.");
+
+		return version.number;
+	}
+
+	/**
+	 * 不再接受新的pin，当前Model在最后一个Pin释放后关闭
+	 */
+	@Override
+	public void close() {
+		Version version = this.current.getAndSet(null);
+		if (version != null)
+			version.release();
+	}
+
+	/**
+	 * 对某个版本Model的一次引用
+	 */
+	public static class Pin implements AutoCloseable {
+
+		private final Version version;
+
+		//
+		// 同一个Pin可能在多个线程中关闭，只允许释放一次引用
+		//
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		private Pin(Version version) {
+			this.version = version;
+		}
+
+		public Model getModel() {
+			if (this.released.get())
+				throw new IllegalStateException("The pin has been released.");
+
+			return this.version.model;
+		}
+
+		public int getVersion() {
+			if (this.released.get())
+				throw new IllegalStateException("The pin has been released.");
+
+			return this.version.number;
+		}
+
+		@Override
+		public void close() {
+			if (this.released.compareAndSet(false, true))
+				this.version.release();
+		}
+
+	}
+
+	private static class Version {
+
+		private final Model model;
+
+		private final int number;
+
+		//
+		// ModelHandle自身持有一个引用，被替换或ModelHandle关闭时释放
+		//
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		private final CompletableFuture<Void> retired = new CompletableFuture<Void>();
+
+		private Version(Model model, int number) {
+			this.model = model;
+			this.number = number;
+		}
+
+		private boolean retain() {
+			while (true) {
+				int count = this.references.get();
+				if (count <= 0)
+					return false;
+				if (this.references.compareAndSet(count, count + 1))
+					return true;
+			}
+		}
+
+		private void release() {
+			if (this.references.decrementAndGet() != 0)
+				return;
+
+			try {
+				this.model.close();
+				logger.info("Model of version {} has been released", this.number);
+				this.retired.complete(null);
+			} catch (Exception e) {
+				logger.error("Model of version {} can not be released", this.number, e);
+				this.retired.completeExceptionally(e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.onnx4j.Outputs.Output;
+import org.onnx4j.tensor.BufferDeallocator;
+import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.Shape;
+
+/**
+ * 调用者预先登记的输出目的地
+ * 
+ * 后端可通过{@link Binding#allocate(DataType, Shape)}直接在调用者的buffer上计算最终输出，
+ * 否则在执行结束后由{@link #write(Outputs)}一次性批量复制，避免先生成Tensor再逐元素读取
+ * 
+ * <pre>
+ * OutputBindings bindings = OutputBindings.create().bind("prob", probs).bind("feature", directBuffer);
+ * Outputs outputs = backend.execute(model, inputs);
+ * bindings.write(outputs);
+ * </pre>
+ */
+public final class OutputBindings {
+
+	public static class Binding {
+
+		private String name;
+		private ByteBuffer buffer;
+		private Object array;
+
+		//
+		// 由allocate()返回、直接写入buffer的Tensor，write()时无需再复制
+		//
+		private Tensor inPlace;
+
+		private Binding(String name, ByteBuffer buffer, Object array) {
+			this.name = name;
+			this.buffer = buffer;
+			this.array = array;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return 绑定的ByteBuffer，绑定的是数组时返回null
+		 */
+		public ByteBuffer getBuffer() {
+			return this.buffer;
+		}
+
+		/**
+		 * @return 绑定的基本类型数组，绑定的是ByteBuffer时返回null
+		 */
+		public Object getArray() {
+			return this.array;
+		}
+
+		/**
+		 * 在绑定的buffer上创建输出Tensor，后端计算结果直接写入调用者的内存
+		 * 
+		 * @param dataType
+		 * @param shape
+		 * @return 关闭时不释放buffer；绑定的是数组或buffer剩余空间不足时返回null，此时应另行分配并在结束后{@link #write(Tensor)}
+		 */
+		public Tensor allocate(DataType dataType, Shape shape) {
+			if (this.buffer == null || dataType.isVariableLength())
+				return null;
+
+			long byteSize = shape.numElements() * dataType.getUnitSize();
+			if (byteSize > this.buffer.remaining())
+				return null;
+
+			ByteBuffer data = this.buffer.duplicate();
+			data.limit(data.position() + (int) byteSize);
+			this.inPlace = new Tensor(this.name, null, dataType, shape, data.slice().order(this.buffer.order()),
+					BufferDeallocator.NONE);
+			return this.inPlace;
+		}
+
+		/**
+		 * 将输出批量复制至绑定的buffer或数组，输出即{@link #allocate(DataType, Shape)}所创建的Tensor时不做任何事
+		 * 
+		 * @param output
+		 * @throws IllegalArgumentException
+		 *             数组的类型与输出的DataType不符，如COMPLEX64或INT64的输出不能写入float[]
+		 */
+		public void write(Tensor output) {
+			if (output == this.inPlace)
+				return;
+
+			if (this.array != null && OutputBindings.accepts(this.array, output.getDataType()) == false)
+				throw new IllegalArgumentException(String.format("%s output \"%s\" can not be written to %s",
+						output.getDataType(), this.name, this.array.getClass().getSimpleName()));
+
+			if (this.buffer != null) {
+				output.copyTo(this.buffer.duplicate().order(this.buffer.order()));
+			} else if (this.array instanceof float[]) {
+				float[] dst = (float[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			} else if (this.array instanceof double[]) {
+				double[] dst = (double[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			} else if (this.array instanceof short[]) {
+				short[] dst = (short[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			} else if (this.array instanceof int[]) {
+				int[] dst = (int[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			} else if (this.array instanceof long[]) {
+				long[] dst = (long[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			} else if (this.array instanceof byte[]) {
+				byte[] dst = (byte[]) this.array;
+				output.copyTo(dst, 0, 0L, OutputBindings.length(output, dst.length));
+			}
+		}
+
+	}
+
+	private Map<String, Binding> bindings = new LinkedHashMap<String, Binding>();
+
+	public static OutputBindings create() {
+		return new OutputBindings();
+	}
+
+	private OutputBindings() {
+	}
+
+	/**
+	 * 绑定ByteBuffer，输出按buffer的字节序从其当前位置写入，buffer的位置不变
+	 * 
+	 * @param name
+	 *            输出名
+	 * @param buffer
+	 *            如direct buffer，不能为只读
+	 * @return this
+	 */
+	public OutputBindings bind(String name, ByteBuffer buffer) {
+		if (buffer.isReadOnly())
+			throw new IllegalArgumentException(String.format("Output \"%s\" can not be bound to a read-only buffer", name));
+
+		this.bindings.put(name, new Binding(name, buffer, null));
+		return this;
+	}
+
+	/**
+	 * 绑定基本类型数组，支持byte[]、short[]、int[]、long[]、float[]、double[]
+	 * 
+	 * @param name
+	 *            输出名
+	 * @param array
+	 * @return this
+	 */
+	public OutputBindings bind(String name, Object array) {
+		if (array instanceof ByteBuffer)
+			return this.bind(name, (ByteBuffer) array);
+
+		if ((array instanceof byte[] || array instanceof short[] || array instanceof int[] || array instanceof long[]
+				|| array instanceof float[] || array instanceof double[]) == false)
+			throw new IllegalArgumentException(String.format("Output \"%s\" can not be bound to %s", name,
+					array == null ? null : array.getClass().getSimpleName()));
+
+		this.bindings.put(name, new Binding(name, null, array));
+		return this;
+	}
+
+	public Binding get(String name) {
+		return this.bindings.get(name);
+	}
+
+	public boolean isBound(String name) {
+		return this.bindings.containsKey(name);
+	}
+
+	public Binding[] get() {
+		Binding[] bindingArray = new Binding[this.bindings.size()];
+		return this.bindings.values().toArray(bindingArray);
+	}
+
+	/**
+	 * 将已绑定的输出写入对应的buffer或数组，未绑定或非{@link Tensor}的输出被忽略
+	 * 
+	 * @param outputs
+	 */
+	public void write(Outputs outputs) {
+		for (Output output : outputs.get()) {
+			Binding binding = this.bindings.get(output.getName());
+			Object tensor = output.getTensor();
+			if (binding != null && tensor instanceof Tensor)
+				binding.write((Tensor) tensor);
+		}
+	}
+
+	/**
+	 * @return 数组的类型能否容纳dataType的元素，FLOAT16及BFLOAT16可转换为float或保留原始的16位数据
+	 */
+	private static boolean accepts(Object array, DataType dataType) {
+		switch (dataType) {
+		case INT8:
+		case UINT8:
+		case BOOL:
+			return array instanceof byte[];
+		case INT16:
+		case UINT16:
+			return array instanceof short[];
+		case FLOAT16:
+		case BFLOAT16:
+			return array instanceof short[] || array instanceof float[];
+		case INT32:
+		case UINT32:
+			return array instanceof int[];
+		case INT64:
+		case UINT64:
+			return array instanceof long[];
+		case FLOAT:
+			return array instanceof float[];
+		case DOUBLE:
+			return array instanceof double[];
+		default:
+			return false;
+		}
+	}
+
+	private static int length(Tensor output, int capacity) {
+		if (output.getElementSize() > capacity)
+			throw new IndexOutOfBoundsException(String.format("[Tensor:%s] of %s elements does not fit %s",
+					output.getName(), output.getElementSize(), capacity));
+
+		return (int) output.getElementSize();
+	}
+
+}
@@ -18,12 +18,30 @@ package org.onnx4j;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.onnx4j.tensor.BufferDeallocator;
+import org.onnx4j.tensor.BufferPool;
 import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.MemoryBudget;
+import org.onnx4j.tensor.MemoryLease;
+import org.onnx4j.tensor.QuantizationParams;
 import org.onnx4j.tensor.Shape;
+import org.onnx4j.tensor.StringArray;
+import org.onnx4j.tensor.TensorBuilder;
 import org.onnx4j.tensor.TensorDump;
+import org.onnx4j.tensor.TensorStorage;
 import org.onnx4j.tensor.ValueInfo;
-import org.onnx4j.utils.DirectBufferDealloc;
+import org.onnx4j.utils.BufferUtil;
+import org.onnx4j.utils.HalfFloatUtil;
+import org.onnx4j.utils.ResourceCleaner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,7 +51,12 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 
 	public enum AllocationMode {
 
-		DIRECT, HEAP
+		DIRECT, HEAP,
+
+		/**
+		 * 从{@link BufferPool}中分配直接内存，Tensor关闭时归还，内容不保证为0
+		 */
+		POOLED
 
 	}
 
@@ -43,9 +66,28 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 
 		private ByteOrder byteOrder = ByteOrder.nativeOrder();
 
+		private BufferPool bufferPool = BufferPool.getDefault();
+
+		private int alignment = 0;
+
+		private MemoryBudget memoryBudget = MemoryBudget.getGlobal();
+
+		private MemoryLease memoryLease;
+
 		private Options() {
 		}
 
+		Options copy() {
+			Options options = new Options();
+			options.allocationMode = this.allocationMode;
+			options.byteOrder = this.byteOrder;
+			options.bufferPool = this.bufferPool;
+			options.alignment = this.alignment;
+			options.memoryBudget = this.memoryBudget;
+			options.memoryLease = this.memoryLease;
+			return options;
+		}
+
 		public AllocationMode getAllocationMode() {
 			return allocationMode;
 		}
@@ -64,24 +106,220 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 			return this;
 		}
 
+		public BufferPool getBufferPool() {
+			return bufferPool;
+		}
+
+		/**
+		 * 仅对{@link AllocationMode#POOLED}有效
+		 * 
+		 * @param bufferPool
+		 * @return
+		 */
+		public Options setBufferPool(BufferPool bufferPool) {
+			this.bufferPool = bufferPool;
+			return this;
+		}
+
+		public int getAlignment() {
+			return alignment;
+		}
+
+		/**
+		 * 数据起始地址按alignment字节对齐(如64，即缓存行及AVX-512的宽度)，对DIRECT及POOLED有效。
+		 * 无法满足对齐要求的零拷贝数据(如模型文件中的raw_data)将被复制
+		 * 
+		 * @param alignment
+		 *            2的幂，0表示不要求对齐
+		 * @return
+		 */
+		public Options setAlignment(int alignment) {
+			if (alignment < 0 || (alignment & (alignment - 1)) != 0)
+				throw new IllegalArgumentException("Alignment must be 0 or a power of 2: " + alignment);
+
+			this.alignment = alignment;
+			return this;
+		}
+
+		public MemoryBudget getMemoryBudget() {
+			return memoryBudget;
+		}
+
+		/**
+		 * 堆外内存(DIRECT及POOLED)计入的预算，如为每个模型单独创建的MemoryBudget；为null时不计入
+		 * 
+		 * @param memoryBudget
+		 * @return
+		 */
+		public Options setMemoryBudget(MemoryBudget memoryBudget) {
+			this.memoryBudget = memoryBudget;
+			return this;
+		}
+
+		public MemoryLease getMemoryLease() {
+			return memoryLease;
+		}
+
+		/**
+		 * 零拷贝创建的Tensor(如直接引用映射区域的raw_data)所引用内存的有效期，由{@link Model}为每个映射加载的模型设置
+		 * 
+		 * @param memoryLease
+		 * @return
+		 */
+		public Options setMemoryLease(MemoryLease memoryLease) {
+			this.memoryLease = memoryLease;
+			return this;
+		}
+
 	}
 
 	public static Options options() {
 		return new Options();
 	}
 
-	private ValueInfo valueInfo;
+	private final ValueInfo valueInfo;
 	private ByteBuffer dataBuffer;
+	private BufferDeallocator deallocator;
+
+	//
+	// 超过2GB的数据分块存放，此时dataBuffer为null
+	//
+	private TensorStorage storage;
+
+	//
+	// 只读的数据及各类型视图，首次访问时创建，避免每次读取都分配对象
+	//
+	private volatile ByteBuffer readOnlyData;
+	private volatile ShortBuffer shortView;
+	private volatile IntBuffer intView;
+	private volatile LongBuffer longView;
+	private volatile FloatBuffer floatView;
+	private volatile DoubleBuffer doubleView;
+
+	//
+	// 视图中各维度的步长(以元素为单位)，为null时按行优先连续存放
+	//
+	private long[] strides;
+
+	//
+	// 数据不归该Tensor所有时(如映射区域的切片)，内存被其持有者回收后不能再读取
+	//
+	private MemoryLease memoryLease;
+
+	//
+	// 未调用close()即被回收时，由Cleaner释放内存；视图与其源Tensor共享同一个Release
+	//
+	private Reference reference;
+	private ResourceCleaner.Cleanable cleanable;
 
 	public Tensor(String name, String docString, DataType dataType, Shape shape, ByteBuffer dataBuffer) {
+		this(name, docString, dataType, shape, dataBuffer, BufferDeallocator.defaultOf(dataBuffer));
+	}
+
+	public Tensor(String name, String docString, DataType dataType, Shape shape, ByteBuffer dataBuffer,
+			BufferDeallocator deallocator) {
+		this(name, docString, new ValueInfo(dataType, shape), dataBuffer, deallocator);
+	}
+
+	/**
+	 * @param valueInfo
+	 *            数据类型、形状及量化参数，创建后不可更改
+	 */
+	public Tensor(String name, String docString, ValueInfo valueInfo, ByteBuffer dataBuffer,
+			BufferDeallocator deallocator) {
 		super(name, docString);
 
 		if (dataBuffer == null || dataBuffer.capacity() <= 0)
 			throw new IllegalArgumentException("Databuffer is null or empty");
 
 		this.name = name;
-		this.valueInfo = new ValueInfo(dataType, shape);
+		this.valueInfo = valueInfo;
 		this.dataBuffer = dataBuffer;
+		this.deallocator = deallocator;
+
+		if (deallocator != BufferDeallocator.NONE)
+			this.registerRelease();
+	}
+
+	/**
+	 * 以分块存储创建Tensor，用于超过2GB的数据
+	 * 
+	 * @param storage
+	 *            Tensor关闭时释放
+	 */
+	public Tensor(String name, String docString, DataType dataType, Shape shape, TensorStorage storage) {
+		this(name, docString, new ValueInfo(dataType, shape), storage);
+	}
+
+	/**
+	 * 以分块存储创建Tensor，用于超过2GB的数据
+	 * 
+	 * @param valueInfo
+	 *            数据类型、形状及量化参数，创建后不可更改
+	 * @param storage
+	 *            Tensor关闭时释放
+	 */
+	public Tensor(String name, String docString, ValueInfo valueInfo, TensorStorage storage) {
+		super(name, docString);
+
+		if (storage == null || storage.byteSize() <= 0)
+			throw new IllegalArgumentException("Storage is null or empty");
+
+		this.name = name;
+		this.valueInfo = valueInfo;
+		this.storage = storage;
+		this.registerRelease();
+	}
+
+	/**
+	 * 创建与源Tensor共享数据的视图，源Tensor及视图全部关闭后才释放内存
+	 * 
+	 * @param strides
+	 *            各维度的步长，以元素为单位，相对于源Tensor数据的起始位置
+	 * @param elementOffset
+	 *            视图首个元素在源Tensor数据中的位置
+	 */
+	private Tensor(Tensor source, Shape shape, long[] strides, long elementOffset) {
+		super(source.name, source.docString);
+
+		int unitSize = source.getDataType().getUnitSize();
+		long extent = 1L;
+		for (int n = 0; n < strides.length; n++) {
+			if (shape.get(n) <= 0)
+				throw new IllegalArgumentException(String.format("View of [Tensor:%s] shaped %s is empty",
+						source.name, shape));
+
+			extent += (shape.get(n) - 1) * strides[n];
+		}
+
+		ByteBuffer dataBuffer = source.dataBuffer.duplicate();
+		int base = dataBuffer.position();
+		dataBuffer.limit(Tensor.toInt(base + (elementOffset + extent) * unitSize));
+		dataBuffer.position(Tensor.toInt(base + elementOffset * unitSize));
+
+		this.name = source.name;
+		//
+		// 视图的维度可能已变化，仅保留逐Tensor的量化参数
+		//
+		QuantizationParams quantization = source.getQuantization();
+		this.valueInfo = new ValueInfo(source.getDataType(), shape,
+				(quantization != null && quantization.isPerAxis() == false) ? quantization : null);
+		this.dataBuffer = dataBuffer.slice().order(source.dataBuffer.order());
+		this.deallocator = BufferDeallocator.NONE;
+		this.strides = Tensor.isDense(shape.toArray(), strides) ? null : strides;
+		this.memoryLease = source.memoryLease;
+
+		if (source.reference != null)
+			this.registerReference(source.reference.release.retain());
+	}
+
+	private void registerRelease() {
+		this.registerReference(new Release(this.dataBuffer, this.deallocator, this.storage));
+	}
+
+	private void registerReference(Release release) {
+		this.reference = new Reference(this.name, release);
+		this.cleanable = ResourceCleaner.register(this, this.reference);
 	}
 
 	public String getName() {
@@ -89,7 +327,7 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 	}
 
 	/**
-	 * 获取Tensor数据部分(ByteBuffer)的内存占用量
+	 * 获取Tensor数据部分(ByteBuffer)的内存占用量，不含对齐及内存池取整所填充的部分
 	 * 
 	 * @return 占用字节数
 	 */
@@ -97,6 +335,9 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 		if (this.dataBuffer != null)
 			return this.dataBuffer.capacity();
 
+		if (this.storage != null)
+			return this.storage.byteSize();
+
 		return -1L;
 	}
 
@@ -110,13 +351,35 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 	 * @return 元素总数量
 	 */
 	public long getElementSize() {
-		return this.getMemoryBytes() / this.valueInfo.getDataType().getUnitSize();
+		return this.valueInfo.getShape().numElements();
 	}
 
 	public DataType getDataType() {
 		return this.valueInfo.getDataType();
 	}
 
+	/**
+	 * 获取量化参数，只能在创建时经由TensorBuilder.quantization()指定
+	 * 
+	 * @return 非量化数据返回null
+	 */
+	public QuantizationParams getQuantization() {
+		return this.valueInfo.getQuantization();
+	}
+
+	public MemoryLease getMemoryLease() {
+		return this.memoryLease;
+	}
+
+	/**
+	 * 设置所引用内存的有效期，仅应由提供该内存者在创建Tensor时调用，参考{@link MemoryLease}
+	 * 
+	 * @param memoryLease
+	 */
+	public void setMemoryLease(MemoryLease memoryLease) {
+		this.memoryLease = memoryLease;
+	}
+
 	public int getRanks() {
 		return this.valueInfo.getRank();
 	}
@@ -125,15 +388,816 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 	 * 返回当前数据缓存的只读引用
 	 * 
 	 * @return
+	 * @throws IllegalStateException
+	 *             数据超过2GB，无法由单个ByteBuffer表示，应使用{@link #getStorage()}；或数据不连续，应使用{@link #contiguous(Options)}
 	 */
 	public ByteBuffer getData() {
+		this.checkOpen();
+		this.checkContiguous();
+
+		if (this.dataBuffer == null && this.storage != null) {
+			if (this.storage.getChunkCount() > 1)
+				throw new IllegalStateException(String.format(
+						"[Tensor:%s] has %s bytes, which can not be held in a single ByteBuffer, use getStorage() instead",
+						this.name, this.storage.byteSize()));
+
+			return this.storage.getChunk(0).asReadOnlyBuffer().order(this.storage.order());
+		}
+
 		return this.dataBuffer.slice().asReadOnlyBuffer().order(this.dataBuffer.order());
 	}
 
+	/**
+	 * 以long偏移量访问数据，适用于任意大小的Tensor，返回的TensorStorage与Tensor共享数据
+	 * 
+	 * @return
+	 */
+	public TensorStorage getStorage() {
+		this.checkOpen();
+		this.checkContiguous();
+
+		if (this.storage != null)
+			return this.storage;
+
+		return TensorStorage.wrap(this.dataBuffer.duplicate().order(this.dataBuffer.order()));
+	}
+
+	/**
+	 * 返回缓存的只读数据，位置从0开始。与{@link #getData()}不同，调用者不应修改其position及limit，只应使用绝对位置读取
+	 * 
+	 * @return
+	 * @throws IllegalStateException
+	 *             数据超过2GB，无法由单个ByteBuffer表示
+	 */
+	public ByteBuffer getReadOnlyData() {
+		this.checkOpen();
+
+		ByteBuffer readOnlyData = this.readOnlyData;
+		if (readOnlyData == null)
+			this.readOnlyData = readOnlyData = this.getData();
+
+		return readOnlyData;
+	}
+
+	/**
+	 * 获取STRING类型元素的只读视图，元素以CharSequence读取，不为每个元素创建String
+	 * 
+	 * @return 仅在Tensor关闭前有效
+	 */
+	public StringArray getStrings() {
+		if (DataType.STRING != this.getDataType())
+			throw new UnsupportedOperationException(
+					String.format("[Tensor:%s] of %s has no strings", this.name, this.getDataType()));
+
+		return new StringArray(this.getReadOnlyData());
+	}
+
+	/**
+	 * 以下类型视图均为缓存的只读视图，下标以对应类型的元素为单位，只应使用绝对位置读取
+	 */
+	public ShortBuffer getShortView() {
+		this.checkOpen();
+
+		ShortBuffer view = this.shortView;
+		if (view == null)
+			this.shortView = view = this.getReadOnlyData().asShortBuffer();
+
+		return view;
+	}
+
+	public IntBuffer getIntView() {
+		this.checkOpen();
+
+		IntBuffer view = this.intView;
+		if (view == null)
+			this.intView = view = this.getReadOnlyData().asIntBuffer();
+
+		return view;
+	}
+
+	public LongBuffer getLongView() {
+		this.checkOpen();
+
+		LongBuffer view = this.longView;
+		if (view == null)
+			this.longView = view = this.getReadOnlyData().asLongBuffer();
+
+		return view;
+	}
+
+	public FloatBuffer getFloatView() {
+		this.checkOpen();
+
+		FloatBuffer view = this.floatView;
+		if (view == null)
+			this.floatView = view = this.getReadOnlyData().asFloatBuffer();
+
+		return view;
+	}
+
+	public DoubleBuffer getDoubleView() {
+		this.checkOpen();
+
+		DoubleBuffer view = this.doubleView;
+		if (view == null)
+			this.doubleView = view = this.getReadOnlyData().asDoubleBuffer();
+
+		return view;
+	}
+
+	//
+	// 按下标读取单个元素，下标以对应类型的元素为单位(如COMPLEX64按float读取时，实部与虚部各占一个下标)，不分配对象
+	//
+
+	public byte getByte(long index) {
+		if (this.isStrided())
+			return this.dataBuffer.get(this.stridedOffset(index, Byte.BYTES));
+
+		return this.isChunked() ? this.storage.get(index) : this.getReadOnlyData().get(Tensor.toInt(index));
+	}
+
+	public short getShort(long index) {
+		if (this.isStrided())
+			return this.dataBuffer.getShort(this.stridedOffset(index, Short.BYTES));
+
+		return this.isChunked() ? this.storage.getShort(index * Short.BYTES)
+				: this.getShortView().get(Tensor.toInt(index));
+	}
+
+	public int getInt(long index) {
+		if (this.isStrided())
+			return this.dataBuffer.getInt(this.stridedOffset(index, Integer.BYTES));
+
+		return this.isChunked() ? this.storage.getInt(index * Integer.BYTES)
+				: this.getIntView().get(Tensor.toInt(index));
+	}
+
+	public long getLong(long index) {
+		if (this.isStrided())
+			return this.dataBuffer.getLong(this.stridedOffset(index, Long.BYTES));
+
+		return this.isChunked() ? this.storage.getLong(index * Long.BYTES)
+				: this.getLongView().get(Tensor.toInt(index));
+	}
+
+	/**
+	 * FLOAT16及BFLOAT16按元素下标读取并转换为float
+	 */
+	public float getFloat(long index) {
+		if (DataType.FLOAT16 == this.getDataType())
+			return HalfFloatUtil.toFloat(this.getShort(index));
+		if (DataType.BFLOAT16 == this.getDataType())
+			return HalfFloatUtil.bfloat16ToFloat(this.getShort(index));
+
+		if (this.isStrided())
+			return this.dataBuffer.getFloat(this.stridedOffset(index, Float.BYTES));
+
+		return this.isChunked() ? this.storage.getFloat(index * Float.BYTES)
+				: this.getFloatView().get(Tensor.toInt(index));
+	}
+
+	public double getDouble(long index) {
+		if (this.isStrided())
+			return this.dataBuffer.getDouble(this.stridedOffset(index, Double.BYTES));
+
+		return this.isChunked() ? this.storage.getDouble(index * Double.BYTES)
+				: this.getDoubleView().get(Tensor.toInt(index));
+	}
+
+	//
+	// 从下标srcIndex起复制length个元素至dst，不分配对象(超过2GB的分块数据除外)；数据为本机字节序时整块复制
+	// dst的类型须与DataType一致，否则抛出IllegalArgumentException；复数只能复制至ByteBuffer
+	//
+
+	public void copyTo(byte[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("byte[]", DataType.INT8, DataType.UINT8, DataType.BOOL);
+		if (this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, this.stridedCapacity(Byte.BYTES), dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getByte(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex, dst, dstOffset, length);
+			return;
+		}
+
+		ByteBuffer src = this.getReadOnlyData();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Byte.BYTES, dst,
+				BufferUtil.ARRAY_BASE_OFFSET + (long) dstOffset * Byte.BYTES, length * Byte.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	/**
+	 * FLOAT16及BFLOAT16复制其原始的16位数据
+	 */
+	public void copyTo(short[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("short[]", DataType.INT16, DataType.UINT16, DataType.FLOAT16, DataType.BFLOAT16);
+		if (this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, this.stridedCapacity(Short.BYTES), dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getShort(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex * Short.BYTES, dst, dstOffset, length);
+			return;
+		}
+
+		ShortBuffer src = this.getShortView();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Short.BYTES, dst,
+				BufferUtil.SHORT_ARRAY_BASE_OFFSET + (long) dstOffset * Short.BYTES, length * Short.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	public void copyTo(int[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("int[]", DataType.INT32, DataType.UINT32);
+		if (this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, this.stridedCapacity(Integer.BYTES), dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getInt(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex * Integer.BYTES, dst, dstOffset, length);
+			return;
+		}
+
+		IntBuffer src = this.getIntView();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Integer.BYTES, dst,
+				BufferUtil.INT_ARRAY_BASE_OFFSET + (long) dstOffset * Integer.BYTES, length * Integer.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	public void copyTo(long[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("long[]", DataType.INT64, DataType.UINT64);
+		if (this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, this.stridedCapacity(Long.BYTES), dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getLong(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex * Long.BYTES, dst, dstOffset, length);
+			return;
+		}
+
+		LongBuffer src = this.getLongView();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Long.BYTES, dst,
+				BufferUtil.LONG_ARRAY_BASE_OFFSET + (long) dstOffset * Long.BYTES, length * Long.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	/**
+	 * FLOAT16及BFLOAT16转换为float，可按块读取而不必将整个Tensor转换为float
+	 */
+	public void copyTo(float[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("float[]", DataType.FLOAT, DataType.FLOAT16, DataType.BFLOAT16);
+		boolean isHalf = DataType.FLOAT16 == this.getDataType() || DataType.BFLOAT16 == this.getDataType();
+		if (isHalf && this.isStrided() == false && this.isChunked() == false) {
+			if (DataType.FLOAT16 == this.getDataType())
+				HalfFloatUtil.toFloat(this.getShortView(), Tensor.toInt(srcIndex), dst, dstOffset, length);
+			else
+				HalfFloatUtil.bfloat16ToFloat(this.getShortView(), Tensor.toInt(srcIndex), dst, dstOffset, length);
+			return;
+		}
+
+		if (isHalf || this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, isHalf ? this.getElementSize() : this.stridedCapacity(Float.BYTES),
+					dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getFloat(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex * Float.BYTES, dst, dstOffset, length);
+			return;
+		}
+
+		FloatBuffer src = this.getFloatView();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Float.BYTES, dst,
+				BufferUtil.FLOAT_ARRAY_BASE_OFFSET + (long) dstOffset * Float.BYTES, length * Float.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	public void copyTo(double[] dst, int dstOffset, long srcIndex, int length) {
+		this.checkArrayType("double[]", DataType.DOUBLE);
+		if (this.isStrided()) {
+			Tensor.checkRange(srcIndex, length, this.stridedCapacity(Double.BYTES), dst.length, dstOffset);
+			for (int n = 0; n < length; n++)
+				dst[dstOffset + n] = this.getDouble(srcIndex + n);
+			return;
+		}
+
+		if (this.isChunked()) {
+			this.storage.get(srcIndex * Double.BYTES, dst, dstOffset, length);
+			return;
+		}
+
+		DoubleBuffer src = this.getDoubleView();
+		int from = Tensor.checkRange(srcIndex, length, src.capacity(), dst.length, dstOffset);
+		if (BufferUtil.copyToArray(this.getReadOnlyData(), from * Double.BYTES, dst,
+				BufferUtil.DOUBLE_ARRAY_BASE_OFFSET + (long) dstOffset * Double.BYTES, length * Double.BYTES))
+			return;
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = src.get(from + n);
+	}
+
+	/**
+	 * 复制全部元素至dst，参考{@link #copyTo(ByteBuffer, long, long)}
+	 */
+	public void copyTo(ByteBuffer dst) {
+		this.copyTo(dst, 0L, this.getElementSize());
+	}
+
+	/**
+	 * 从下标srcIndex起复制length个元素至dst的当前位置，按dst的字节序写入，dst的位置随之前移
+	 * 
+	 * @param dst
+	 *            如调用者预先分配的direct buffer
+	 * @param srcIndex
+	 * @param length
+	 */
+	public void copyTo(ByteBuffer dst, long srcIndex, long length) {
+		DataType dataType = this.getDataType();
+		if (dataType.isVariableLength())
+			throw new UnsupportedOperationException(
+					String.format("[Tensor:%s] of %s can not be copied by element", this.name, dataType));
+
+		int unitSize = dataType.getUnitSize();
+		if (length < 0 || srcIndex < 0 || srcIndex > this.getElementSize() - length
+				|| length * unitSize > dst.remaining())
+			throw new IndexOutOfBoundsException(String.format("Can not copy [%s, +%s) of %s elements to %s bytes",
+					srcIndex, length, this.getElementSize(), dst.remaining()));
+
+		if (this.isStrided()) {
+			try (Tensor contiguous = this.contiguous(Tensor.options().setAllocationMode(AllocationMode.HEAP))) {
+				contiguous.copyTo(dst, srcIndex, length);
+			}
+			return;
+		}
+
+		if (this.isChunked()) {
+			long from = srcIndex * unitSize, to = (srcIndex + length) * unitSize;
+			for (int n = 0; n < this.storage.getChunkCount() && from < to; n++) {
+				long chunkOffset = this.storage.getChunkOffset(n);
+				ByteBuffer chunk = this.storage.getChunk(n).duplicate();
+				if (from >= chunkOffset + chunk.capacity())
+					continue;
+
+				chunk.limit(Tensor.toInt(Math.min(to - chunkOffset, chunk.capacity())));
+				chunk.position(Tensor.toInt(from - chunkOffset));
+				from = chunkOffset + chunk.limit();
+				BufferUtil.copy(dst, chunk.slice().order(this.storage.order()), dataType.getComponentSize());
+			}
+			return;
+		}
+
+		ByteBuffer src = this.getReadOnlyData().duplicate();
+		src.limit(Tensor.toInt((srcIndex + length) * unitSize)).position(Tensor.toInt(srcIndex * unitSize));
+		BufferUtil.copy(dst, src.slice().order(this.getReadOnlyData().order()), dataType.getComponentSize());
+	}
+
+	private void checkOpen() {
+		if (this.dataBuffer == null && this.storage == null)
+			throw new IllegalStateException(String.format("[Tensor:%s] has been closed", this.name));
+
+		MemoryLease memoryLease = this.memoryLease;
+		if (memoryLease != null && memoryLease.isRevoked())
+			throw new IllegalStateException(String.format("[Tensor:%s] refers to memory of %s, which has been released",
+					this.name, memoryLease.getOwner()));
+	}
+
+	/**
+	 * @return 数据超过2GB、分块存放时返回true
+	 */
+	private boolean isChunked() {
+		this.checkOpen();
+		return this.dataBuffer == null && this.storage.getChunkCount() > 1;
+	}
+
+	private boolean isStrided() {
+		this.checkOpen();
+		return this.strides != null;
+	}
+
+	/**
+	 * @param index
+	 *            按行优先顺序、以width字节为单位的下标
+	 * @param width
+	 *            读取的字节数，不能超过元素的宽度
+	 * @return 在dataBuffer中的字节位置
+	 */
+	private int stridedOffset(long index, int width) {
+		int unitSize = this.getDataType().getUnitSize();
+		if (width > unitSize)
+			throw new UnsupportedOperationException(String.format(
+					"%s-byte values can not be read from a strided view of %s tensor", width, this.getDataType()));
+
+		long byteIndex = index * width;
+		long element = byteIndex / unitSize;
+		if (index < 0 || element >= this.getElementSize())
+			throw new IndexOutOfBoundsException("Index out of range: " + index);
+
+		long[] shape = this.valueInfo.getShape().toArray();
+		long position = 0L;
+		for (int n = shape.length - 1; n >= 0; n--) {
+			position += (element % shape[n]) * this.strides[n];
+			element /= shape[n];
+		}
+		return Tensor.toInt(position * unitSize + byteIndex % unitSize);
+	}
+
+	private int stridedCapacity(int width) {
+		return Tensor.toInt(this.getElementSize() * this.getDataType().getUnitSize() / width);
+	}
+
+	private static int toInt(long index) {
+		if (index < 0 || index > Integer.MAX_VALUE)
+			throw new IndexOutOfBoundsException("Index out of range: " + index);
+
+		return (int) index;
+	}
+
+	private void checkArrayType(String arrayType, DataType... dataTypes) {
+		for (DataType dataType : dataTypes) {
+			if (dataType == this.getDataType())
+				return;
+		}
+
+		throw new IllegalArgumentException(
+				String.format("Can not copy %s tensor \"%s\" to %s", this.getDataType(), this.getName(), arrayType));
+	}
+
+	/**
+	 * @return int类型的srcIndex
+	 */
+	private static int checkRange(long srcIndex, int length, long srcCapacity, int dstLength, int dstOffset) {
+		if (length < 0 || srcIndex < 0 || srcIndex > srcCapacity - length || dstOffset < 0
+				|| dstOffset > dstLength - length)
+			throw new IndexOutOfBoundsException(String.format("Can not copy [%s, +%s) of %s elements to [%s, +%s) of %s",
+					srcIndex, length, srcCapacity, dstOffset, length, dstLength));
+
+		return (int) srcIndex;
+	}
+
 	public long[] getShape() {
 		return this.valueInfo.getShape().toArray();
 	}
 
+	/**
+	 * 获取各维度的步长
+	 * 
+	 * @return 以元素为单位的步长
+	 */
+	public long[] getStrides() {
+		return (this.strides != null) ? this.strides.clone() : Tensor.denseStrides(this.getShape());
+	}
+
+	/**
+	 * @return 数据按行优先连续存放时返回true，transpose、slice等视图的数据可能不连续
+	 */
+	public boolean isContiguous() {
+		return this.strides == null;
+	}
+
+	//
+	// 以下视图与当前Tensor共享数据而不复制，须各自关闭；源Tensor及其所有视图都关闭后才释放内存
+	//
+
+	/**
+	 * 按ONNX Reshape的规则改变形状：0表示沿用对应维度，至多一个-1由其余维度推断
+	 * 
+	 * @param shape
+	 * @return
+	 * @throws IllegalStateException
+	 *             数据不连续，应先调用{@link #contiguous(Options)}
+	 */
+	public Tensor reshape(long... shape) {
+		this.checkViewable();
+		this.checkContiguous();
+
+		long[] inputShape = this.getShape();
+		long[] outputShape = shape.clone();
+		int inferred = -1;
+		long known = 1L;
+		for (int n = 0; n < outputShape.length; n++) {
+			if (outputShape[n] == 0 && n < inputShape.length)
+				outputShape[n] = inputShape[n];
+
+			if (outputShape[n] == -1 && inferred < 0)
+				inferred = n;
+			else if (outputShape[n] > 0)
+				known = Math.multiplyExact(known, outputShape[n]);
+			else
+				throw new IllegalArgumentException("Illegal shape to reshape to: " + Arrays.toString(shape));
+		}
+		if (inferred >= 0)
+			outputShape[inferred] = this.getElementSize() / known;
+
+		if (Shape.create(outputShape).numElements() != this.getElementSize())
+			throw new IllegalArgumentException(String.format("%s elements can not be reshaped to %s",
+					this.getElementSize(), Arrays.toString(shape)));
+
+		return new Tensor(this, Shape.create(outputShape), Tensor.denseStrides(outputShape), 0L);
+	}
+
+	/**
+	 * 按perm重排各维度，perm为空时倒转所有维度
+	 * 
+	 * @param perm
+	 * @return
+	 */
+	public Tensor transpose(int... perm) {
+		this.checkViewable();
+
+		long[] inputShape = this.getShape();
+		long[] inputStrides = this.getStrides();
+		int rank = inputShape.length;
+		if (perm.length == 0) {
+			perm = new int[rank];
+			for (int n = 0; n < rank; n++)
+				perm[n] = rank - 1 - n;
+		}
+
+		if (perm.length != rank)
+			throw new IllegalArgumentException(
+					String.format("Perm %s does not match rank %s", Arrays.toString(perm), rank));
+
+		boolean[] used = new boolean[rank];
+		long[] outputShape = new long[rank];
+		long[] outputStrides = new long[rank];
+		for (int n = 0; n < rank; n++) {
+			if (perm[n] < 0 || perm[n] >= rank || used[perm[n]])
+				throw new IllegalArgumentException("Illegal perm: " + Arrays.toString(perm));
+
+			used[perm[n]] = true;
+			outputShape[n] = inputShape[perm[n]];
+			outputStrides[n] = inputStrides[perm[n]];
+		}
+
+		return new Tensor(this, Shape.create(outputShape), outputStrides, 0L);
+	}
+
+	/**
+	 * 移除长度为1的维度，axes为空时移除所有长度为1的维度
+	 * 
+	 * @param axes
+	 *            可为负数，即从最后一维倒数
+	 * @return
+	 */
+	public Tensor squeeze(int... axes) {
+		this.checkViewable();
+
+		long[] inputShape = this.getShape();
+		long[] inputStrides = this.getStrides();
+		boolean[] removed = new boolean[inputShape.length];
+		if (axes.length == 0) {
+			for (int n = 0; n < inputShape.length; n++)
+				removed[n] = inputShape[n] == 1;
+		} else {
+			for (int axis : axes) {
+				int n = Tensor.normalizeAxis(axis, inputShape.length);
+				if (inputShape[n] != 1)
+					throw new IllegalArgumentException(
+							String.format("Dimension %s of shape %s can not be squeezed", axis, this.valueInfo.getShape()));
+
+				removed[n] = true;
+			}
+		}
+
+		int rank = 0;
+		for (boolean isRemoved : removed)
+			rank += isRemoved ? 0 : 1;
+
+		long[] outputShape = new long[rank];
+		long[] outputStrides = new long[rank];
+		for (int n = 0, m = 0; n < inputShape.length; n++) {
+			if (removed[n] == false) {
+				outputShape[m] = inputShape[n];
+				outputStrides[m++] = inputStrides[n];
+			}
+		}
+
+		return new Tensor(this, Shape.create(outputShape), outputStrides, 0L);
+	}
+
+	/**
+	 * 插入长度为1的维度
+	 * 
+	 * @param axes
+	 *            插入后的维度序号，可为负数
+	 * @return
+	 */
+	public Tensor unsqueeze(int... axes) {
+		this.checkViewable();
+
+		long[] inputShape = this.getShape();
+		long[] inputStrides = this.getStrides();
+		int rank = inputShape.length + axes.length;
+		boolean[] inserted = new boolean[rank];
+		for (int axis : axes) {
+			int n = Tensor.normalizeAxis(axis, rank);
+			if (inserted[n])
+				throw new IllegalArgumentException("Duplicated axes: " + Arrays.toString(axes));
+
+			inserted[n] = true;
+		}
+
+		long[] outputShape = new long[rank];
+		long[] outputStrides = new long[rank];
+		for (int n = rank - 1, m = inputShape.length - 1; n >= 0; n--) {
+			if (inserted[n]) {
+				//
+				// 长度为1的维度的步长不影响寻址，取连续存放时的值
+				//
+				outputShape[n] = 1L;
+				outputStrides[n] = (n + 1 < rank) ? outputStrides[n + 1] * outputShape[n + 1] : 1L;
+			} else {
+				outputShape[n] = inputShape[m];
+				outputStrides[n] = inputStrides[m--];
+			}
+		}
+
+		return new Tensor(this, Shape.create(outputShape), outputStrides, 0L);
+	}
+
+	/**
+	 * 按ONNX Slice的规则截取axis维度的[start, end)部分
+	 * 
+	 * @param axis
+	 *            可为负数
+	 * @param start
+	 *            可为负数，即从末尾倒数
+	 * @param end
+	 *            可为负数，超出范围时截至末尾
+	 * @param step
+	 *            正整数
+	 * @return
+	 */
+	public Tensor slice(int axis, long start, long end, long step) {
+		this.checkViewable();
+
+		long[] shape = this.getShape().clone();
+		long[] strides = this.getStrides();
+		int n = Tensor.normalizeAxis(axis, shape.length);
+		if (step <= 0)
+			throw new IllegalArgumentException("Only positive steps are supported: " + step);
+
+		start = Math.min(Math.max((start < 0) ? start + shape[n] : start, 0L), shape[n]);
+		end = Math.min(Math.max((end < 0) ? end + shape[n] : end, 0L), shape[n]);
+		if (end <= start)
+			throw new IllegalArgumentException(String.format("Slice [%s, %s) of dimension %s is empty", start, end, axis));
+
+		long offset = start * strides[n];
+		shape[n] = (end - start + step - 1) / step;
+		strides[n] = strides[n] * step;
+		return new Tensor(this, Shape.create(shape), strides, offset);
+	}
+
+	/**
+	 * 返回连续存放的数据：已连续时返回共享数据的视图，否则按options复制
+	 * 
+	 * @param options
+	 * @return 须由调用者关闭
+	 */
+	public Tensor contiguous(Options options) {
+		this.checkViewable();
+
+		if (this.strides == null)
+			return new Tensor(this, this.valueInfo.getShape(), Tensor.denseStrides(this.getShape()), 0L);
+
+		return TensorBuilder
+				.builder(this.getDataType(), this.valueInfo.getShape(), options)
+				.name(this.name)
+				.docString(this.docString)
+				.write(this::copyStrided)
+				.build();
+	}
+
+	/**
+	 * 按行优先顺序逐个元素复制至dst，按元素的分量转换字节序
+	 */
+	private void copyStrided(ByteBuffer dst) {
+		int unitSize = this.getDataType().getUnitSize();
+		int componentSize = this.getDataType().getComponentSize();
+		long[] shape = this.getShape();
+		long[] coords = new long[shape.length];
+		long position = 0L;
+		long elementSize = this.getElementSize();
+		for (long element = 0; element < elementSize; element++) {
+			int from = Tensor.toInt(position * unitSize);
+			int to = Tensor.toInt(element * unitSize);
+			for (int n = 0; n < unitSize; n += componentSize) {
+				switch (componentSize) {
+				case Byte.BYTES:
+					dst.put(to + n, this.dataBuffer.get(from + n));
+					break;
+				case Short.BYTES:
+					dst.putShort(to + n, this.dataBuffer.getShort(from + n));
+					break;
+				case Integer.BYTES:
+					dst.putInt(to + n, this.dataBuffer.getInt(from + n));
+					break;
+				case Long.BYTES:
+					dst.putLong(to + n, this.dataBuffer.getLong(from + n));
+					break;
+				default:
+					throw new UnsupportedOperationException("Unsupported component size: " + componentSize);
+				}
+			}
+
+			for (int n = shape.length - 1; n >= 0; n--) {
+				position += this.strides[n];
+				if (++coords[n] < shape[n])
+					break;
+
+				position -= coords[n] * this.strides[n];
+				coords[n] = 0;
+			}
+		}
+	}
+
+	private void checkViewable() {
+		this.checkOpen();
+
+		if (this.dataBuffer == null)
+			throw new UnsupportedOperationException(
+					String.format("[Tensor:%s] is held in chunked storage, which views are not supported for", this.name));
+		if (this.getDataType().isVariableLength())
+			throw new UnsupportedOperationException(
+					String.format("Views of %s tensor are not supported", this.getDataType()));
+	}
+
+	private void checkContiguous() {
+		if (this.strides != null)
+			throw new IllegalStateException(String.format(
+					"[Tensor:%s] is a strided view, use contiguous() to get its data in a single ByteBuffer", this.name));
+	}
+
+	private static int normalizeAxis(int axis, int rank) {
+		int normalized = (axis < 0) ? axis + rank : axis;
+		if (normalized < 0 || normalized >= rank)
+			throw new IllegalArgumentException(String.format("Axis %s is out of rank %s", axis, rank));
+
+		return normalized;
+	}
+
+	/**
+	 * @return 步长与行优先连续存放时一致(长度为1的维度除外)时返回true
+	 */
+	private static boolean isDense(long[] shape, long[] strides) {
+		long stride = 1L;
+		for (int n = shape.length - 1; n >= 0; n--) {
+			if (shape[n] == 1)
+				continue;
+			if (strides[n] != stride)
+				return false;
+
+			stride *= shape[n];
+		}
+		return true;
+	}
+
+	/**
+	 * @return 行优先连续存放时的步长
+	 */
+	private static long[] denseStrides(long[] shape) {
+		long[] strides = new long[shape.length];
+		long stride = 1L;
+		for (int n = shape.length - 1; n >= 0; n--) {
+			strides[n] = stride;
+			stride *= shape[n];
+		}
+		return strides;
+	}
+
 	public boolean equalsIn(DataType[] constrainTypes) {
 		for (DataType dataType : constrainTypes) {
 			if (dataType.equals(this.valueInfo.getDataType()))
@@ -154,17 +1218,35 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 		if (this.equals(((Tensor) obj).valueInfo) == false)
 			return false;
 
+		if (this.dataBuffer == null)
+			return this.storage == ((Tensor) obj).storage;
+
 		return this.dataBuffer.equals(((Tensor) obj).dataBuffer);
 	}
 
 	@Override
 	public void close() {
-		if (this.dataBuffer != null) {
-			if (!DirectBufferDealloc.deallocateDirectBuffer(this.dataBuffer))
-				throw new RuntimeException(String.format("[Tensor:%s] can not be released.", this.name));
+		if (this.dataBuffer == null && this.storage == null)
+			return;
 
-			this.dataBuffer = null;
-		}
+		boolean released = (this.reference != null) ? this.reference.release()
+				: this.deallocator.deallocate(this.dataBuffer);
+		if (this.cleanable != null)
+			this.cleanable.clean();
+
+		this.dataBuffer = null;
+		this.storage = null;
+		this.readOnlyData = null;
+		this.shortView = null;
+		this.intView = null;
+		this.longView = null;
+		this.floatView = null;
+		this.doubleView = null;
+		this.reference = null;
+		this.cleanable = null;
+
+		if (!released)
+			throw new RuntimeException(String.format("[Tensor:%s] can not be released.", this.name));
 	}
 
 	@Override
@@ -172,4 +1254,81 @@ public class Tensor extends NamedOnnxObject implements AutoCloseable {
 		return TensorDump.dump(this);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Tensor及其视图共享的内存，最后一个引用释放时回收。不能引用Tensor本身，否则Tensor永远不会被回收
+	 */
+	private static class Release {
+
+		private final AtomicInteger references = new AtomicInteger(1);
+		private ByteBuffer dataBuffer;
+		private BufferDeallocator deallocator;
+		private TensorStorage storage;
+
+		private Release(ByteBuffer dataBuffer, BufferDeallocator deallocator, TensorStorage storage) {
+			this.dataBuffer = dataBuffer;
+			this.deallocator = deallocator;
+			this.storage = storage;
+		}
+
+		private Release retain() {
+			int references;
+			do {
+				references = this.references.get();
+				if (references <= 0)
+					throw new IllegalStateException("Data of tensor has been released");
+			} while (this.references.compareAndSet(references, references + 1) == false);
+
+			return this;
+		}
+
+		private boolean release() {
+			if (this.references.decrementAndGet() != 0)
+				return true;
+
+			boolean released = true;
+			if (this.dataBuffer != null)
+				released = this.deallocator.deallocate(this.dataBuffer);
+			if (this.storage != null)
+				released &= this.storage.release();
+
+			this.dataBuffer = null;
+			this.storage = null;
+			return released;
+		}
+
+	}
+
+	/**
+	 * 每个Tensor(含视图)对Release的引用，由close()或Cleaner释放，仅执行一次
+	 */
+	private static class Reference implements Runnable {
+
+		private final String name;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+		private final Release release;
+
+		private Reference(String name, Release release) {
+			this.name = name;
+			this.release = release;
+		}
+
+		private boolean release() {
+			if (this.released.compareAndSet(false, true) == false)
+				return true;
+
+			return this.release.release();
+		}
+
+		@Override
+		public void run() {
+			if (this.released.get())
+				return;
+
+			logger.warn("[Tensor:{}] was not closed and has been released by the cleaner.", this.name);
+			if (!this.release())
+				logger.error("[Tensor:{}] can not be released.", this.name);
+		}
+
+	}
+
+}
@@ -19,57 +19,214 @@ package org.onnx4j;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 管理Tensor的生命周期，close时释放所有仍被管理的Tensor
+ * 
+ * attach/detach不加锁，可被多个请求线程并发调用；close之后的attach将失败并抛出IllegalStateException，
+ * 此时若Tensor尚未被close释放，则仍由调用者负责释放
+ * 
+ * 被管理的Tensor以对象本身(而非名称)区分，多个请求线程可以同时attach同名的Tensor，并各自通过{@link #detach(String, Object)}收回
+ *
+ * @param <T_TS>
+ */
 public abstract class TensorManager<T_TS> implements AutoCloseable {
 
 	private static Logger logger = LoggerFactory.getLogger(TensorManager.class);
 
 	protected abstract void dispose(T_TS tensor);
 
-	private boolean hasClosed = false;
-	private Map<String, T_TS> tensors = new HashMap<String, T_TS>();
+	/**
+	 * @param tensor
+	 * @return 用于统计的内存占用字节数，在attach时计算
+	 */
+	protected long sizeOf(T_TS tensor) {
+		return 0L;
+	}
+
+	//
+	// ConcurrentHashMap不支持null键，未命名的Tensor以此代替
+	//
+	private static final String NULL_NAME = "\u0000null";
+
+	private final AtomicBoolean closed = new AtomicBoolean(false);
+
+	//
+	// 所有被管理的Tensor，包括被同名Tensor覆盖的，close时逐个释放
+	//
+	private final ConcurrentHashMap<Managed<T_TS>, Managed<T_TS>> managedTensors =
+			new ConcurrentHashMap<Managed<T_TS>, Managed<T_TS>>();
+
+	//
+	// 按名称查找最近attach的Tensor
+	//
+	private final ConcurrentHashMap<String, Managed<T_TS>> namedTensors = new ConcurrentHashMap<String, Managed<T_TS>>();
+
+	private final LongAdder liveCount = new LongAdder();
+
+	private final LongAdder liveBytes = new LongAdder();
 
 	public void attach(String name, T_TS tensor) {
-		this.tensors.put(name, tensor);
+		if (this.closed.get())
+			throw new IllegalStateException("The TensorManager has closed.");
+
+		Managed<T_TS> managed = new Managed<T_TS>(name, tensor, this.sizeOf(tensor));
+		if (this.managedTensors.putIfAbsent(managed, managed) == null)
+			this.count(managed, 1);
+		this.namedTensors.put(TensorManager.keyOf(name), managed);
+
+		//
+		// 与close并发时，close可能已经遍历完毕：收回刚加入的Tensor(若已被close收回，则已被释放)
+		//
+		if (this.closed.get()) {
+			this.namedTensors.remove(TensorManager.keyOf(name), managed);
+			if (this.managedTensors.remove(managed, managed))
+				this.count(managed, -1);
+			throw new IllegalStateException("The TensorManager has closed.");
+		}
 	}
 
+	/**
+	 * 收回当前以name注册的Tensor
+	 * 
+	 * 多个线程attach同名的Tensor时，收回的可能是其他线程的Tensor，此时应使用{@link #detach(String, Object)}
+	 * 
+	 * @param name
+	 */
 	public void detach(String name) {
-		this.tensors.remove(name);
+		Managed<T_TS> managed = this.namedTensors.remove(TensorManager.keyOf(name));
+		if (managed != null && this.managedTensors.remove(managed, managed))
+			this.count(managed, -1);
+	}
+
+	/**
+	 * 收回以name注册的tensor，同名的其他Tensor不受影响
+	 * 
+	 * @param name
+	 * @param tensor
+	 * @return tensor未被管理，或未以name注册时返回false
+	 */
+	public boolean detach(String name, T_TS tensor) {
+		String key = TensorManager.keyOf(name);
+		Managed<T_TS> attached = this.managedTensors.get(new Managed<T_TS>(name, tensor, 0L));
+		if (attached == null)
+			return false;
+
+		//
+		// 仍以其他名称注册的Tensor不能收回，否则该名称下残留一个不再被管理、也不会在close时释放的Tensor
+		//
+		if (key.equals(TensorManager.keyOf(attached.name)) == false
+				&& attached.equals(this.namedTensors.get(key)) == false)
+			return false;
+
+		//
+		// 以attach时记录的字节数扣减
+		//
+		if (this.managedTensors.remove(attached, attached) == false)
+			return false;
+
+		this.namedTensors.remove(key, attached);
+		this.namedTensors.remove(TensorManager.keyOf(attached.name), attached);
+		this.count(attached, -1);
+		return true;
 	}
 
 	public T_TS get(String name) {
-		return this.tensors.get(name);
+		Managed<T_TS> managed = this.namedTensors.get(TensorManager.keyOf(name));
+		return (managed != null) ? managed.tensor : null;
 	}
 
+	/**
+	 * @return 当前被管理的Tensor的快照
+	 */
 	public Map<String, T_TS> get() {
-		return Collections.unmodifiableMap(this.tensors);
+		Map<String, T_TS> tensors = new HashMap<String, T_TS>();
+		for (Managed<T_TS> managed : this.namedTensors.values()) {
+			tensors.put(managed.name, managed.tensor);
+		}
+		return Collections.unmodifiableMap(tensors);
+	}
+
+	/**
+	 * @return 被管理的Tensor数量，包括被同名Tensor覆盖的
+	 */
+	public long getLiveCount() {
+		return this.liveCount.sum();
+	}
+
+	/**
+	 * @return 被管理的Tensor的内存占用，参考{@link #sizeOf(Object)}
+	 */
+	public long getLiveBytes() {
+		return this.liveBytes.sum();
+	}
+
+	public boolean isClosed() {
+		return this.closed.get();
+	}
+
+	private static String keyOf(String name) {
+		return (name != null) ? name : NULL_NAME;
+	}
+
+	private void count(Managed<T_TS> managed, int sign) {
+		this.liveCount.add(sign);
+		this.liveBytes.add(sign * managed.bytes);
 	}
 
 	@Override
 	public void close() throws Exception {
-		if (this.hasClosed)
+		if (this.closed.compareAndSet(false, true) == false)
 			throw new IllegalStateException("The TensorManager has closed.");
 
-		for (Entry<String, T_TS> entry : this.tensors.entrySet()) {
-			try {
-				this.dispose(entry.getValue());
-				logger.debug("Tensor[{}:{}] has been released.", entry.getValue().getClass().getName(),
-						entry.getKey());
-			} catch (Exception e) {
-				logger.error("Tensor[{}:{}] can not be released.", entry.getValue().getClass().getName(),
-						entry.getKey());
-			}
-			
+		for (Managed<T_TS> managed : this.managedTensors.keySet()) {
+			if (this.managedTensors.remove(managed, managed))
+				this.dispose(managed);
 		}
+		this.namedTensors.clear();
+	}
 
-		this.tensors.clear();
-		this.tensors = null;
+	private void dispose(Managed<T_TS> managed) {
+		this.count(managed, -1);
+		try {
+			this.dispose(managed.tensor);
+			logger.debug("Tensor[{}:{}] has been released.", managed.tensor.getClass().getName(), managed.name);
+		} catch (Exception e) {
+			logger.error("Tensor[{}:{}] can not be released.", managed.tensor.getClass().getName(), managed.name);
+		}
+	}
+
+	private static class Managed<T_TS> {
+
+		private final String name;
+		private final T_TS tensor;
+		private final long bytes;
+
+		private Managed(String name, T_TS tensor, long bytes) {
+			this.name = name;
+			this.tensor = tensor;
+			this.bytes = bytes;
+		}
+
+		//
+		// 同一个Tensor只被管理一次，与名称无关
+		//
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.tensor);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Managed && ((Managed<?>) obj).tensor == this.tensor;
+		}
 
-		this.hasClosed = true;
 	}
 
 }
@@ -34,7 +34,12 @@ public class ModelException extends Onnx4jException {
 		 * 警告：注意枚举成员的顺序，不能随意调整！
 		 */
 		IR_VER_UNSUPPORTED("Model's ir version(%s) is newer than supported(%s)"),
-		MODEL_NOT_EXISTS("Model file not exists");
+		MODEL_NOT_EXISTS("Model file \"%s\" not exists"),
+		MODEL_TOO_LARGE("Model file \"%s\" has %s bytes, which exceeds the 2GB limit of protobuf"),
+		MODEL_UNPARSABLE("Model can not be parsed: %s"),
+		EXTERNAL_DATA_UNRESOLVABLE("External data of tensor \"%s\" can not be resolved: %s"),
+		MODEL_CACHE_INVALID("Model cache \"%s\" can not be used: %s"),
+		MODEL_UNREADABLE("Model file \"%s\" can not be read: %s");
 
 		public ErrorCode errorCode;
 		public String messageTemplate;
@@ -40,6 +40,7 @@ public abstract class Onnx4jException extends RuntimeException implements Except
 
 	public Onnx4jException(ExceptionEnums exceptionEnum, Object... args) {
 		super(String.format(exceptionEnum.getMessageTemplate(), args));
+		this.enums = exceptionEnum;
 	}
 
 }
\ No newline at end of file
@@ -34,7 +34,9 @@ public class TensorException extends Onnx4jException {
 		 * 警告：注意枚举成员的顺序，不能随意调整！
 		 */
 		OUTPUT_VALUE_INFO_UNDEFINED("Output of node named %s can not found value info"),
-		UNSUPPORTED_ATTRIBUTE_TYPE("Unsupported attribute type named %s");
+		UNSUPPORTED_ATTRIBUTE_TYPE("Unsupported attribute type named %s"),
+		MEMORY_BUDGET_EXCEEDED("Memory budget \"%s\" is exceeded by allocating %s bytes"),
+		MEMORY_BUDGET_TIMEOUT("Memory budget \"%s\" can not hold %s bytes within %s ms");
 
 		public ErrorCode errorCode;
 		public String messageTemplate;
@@ -16,37 +16,67 @@
  */
 package org.onnx4j.model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.onnx4j.LoadListener;
+import org.onnx4j.LoadTimings;
+import org.onnx4j.LoadTimings.Phase;
 import org.onnx4j.Model;
 import org.onnx4j.NamedOnnxObject;
+import org.onnx4j.Tensor;
 import org.onnx4j.model.graph.Constant;
 import org.onnx4j.model.graph.Node;
+import org.onnx4j.model.graph.SparseConstant;
 import org.onnx4j.model.graph.exchanges.GraphInput;
 import org.onnx4j.model.graph.exchanges.GraphOutput;
 import org.onnx4j.prototypes.OnnxProto3.GraphProto;
 import org.onnx4j.prototypes.OnnxProto3.NodeProto;
+import org.onnx4j.prototypes.OnnxProto3.StringStringEntryProto;
+import org.onnx4j.prototypes.OnnxProto3.TensorAnnotation;
 import org.onnx4j.prototypes.OnnxProto3.TensorProto;
 import org.onnx4j.prototypes.OnnxProto3.ValueInfoProto;
+import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.QuantizationParams;
+import org.onnx4j.tensor.Shape;
+import org.onnx4j.tensor.TensorBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.ImmutableGraph.Builder;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
 
 public class Graph extends NamedOnnxObject {
 
 	private static Logger logger = LoggerFactory.getLogger(Graph.class);
 
+	//
+	// GraphProto.sparse_initializer(IR version 6)，生成的OnnxProto3中尚无此字段，从unknown fields中读取
+	//
+	private static final int SPARSE_INITIALIZER_FIELD_NUMBER = 15;
+
+	//
+	// TensorAnnotation.quant_parameter_tensor_names中scale及zero point的键
+	//
+	private static final String SCALE_TENSOR = "SCALE_TENSOR";
+	private static final String ZERO_POINT_TENSOR = "ZERO_POINT_TENSOR";
+
 	private Model model;
 	private com.google.common.graph.Graph<Node> dag;
+	private List<Node> sortedNodes;
 	private Constant[] constants;
+	private SparseConstant[] sparseConstants;
 	private GraphInput[] inputs;
 	private GraphOutput[] outputs;
 
@@ -55,43 +85,55 @@ public class Graph extends NamedOnnxObject {
 		
 		this.model = model;
 
+		List<Node> definedNodes = new ArrayList<Node>(graphProto.getNodeCount());
 		Map<String, Node> nodeMapByOutName = new HashMap<String, Node>();
 		Map<String, Collection<Node>> nodesMapByInName = new HashMap<String, Collection<Node>>();
 
 		//
 		// ONNX定义中的node，一般指代ONNX4J中的OperationNode，应存在入度与出度（若为输出节点，则不存在）
 		//
-		for (NodeProto nodeProto : graphProto.getNodeList()) {
-			Node node = new Node(this.model, nodeProto, this.model.getTensorOptions());
-
-			//
-			// 保存输出名称引用，为下阶段计算依赖关系准备
-			//
-			for (String outputName : nodeProto.getOutputList()) {
-				nodeMapByOutName.put(outputName, node);
-			}
+		LoadTimings loadTimings = this.model.getLoadTimings();
+		LoadListener loadListener = this.model.getOptions().getLoadListener();
+		loadTimings.measure(Phase.NODES, () -> {
+			for (NodeProto nodeProto : graphProto.getNodeList()) {
+				this.model.checkCancelled();
+
+				Node node = new Node(this.model, nodeProto, this.model.getTensorOptions());
+				definedNodes.add(node);
+				loadListener.onNodesBuilt(definedNodes.size(), graphProto.getNodeCount());
+
+				//
+				// 保存输出名称引用，为下阶段计算依赖关系准备
+				//
+				for (String outputName : nodeProto.getOutputList()) {
+					nodeMapByOutName.put(outputName, node);
+				}
 
-			//
-			// 保存输入名称引用，为下阶段计算依赖关系准备
-			// 同一个输入名称，可能对应多个Node
-			//
-			for (String inputName : nodeProto.getInputList()) {
-				Collection<Node> nodes = nodesMapByInName.get(inputName);
-				if (nodes == null) {
-					nodes = new ArrayList<Node>();
-					nodesMapByInName.put(inputName, nodes);
+				//
+				// 保存输入名称引用，为下阶段计算依赖关系准备
+				// 同一个输入名称，可能对应多个Node
+				//
+				for (String inputName : nodeProto.getInputList()) {
+					Collection<Node> nodes = nodesMapByInName.get(inputName);
+					if (nodes == null) {
+						nodes = new ArrayList<Node>();
+						nodesMapByInName.put(inputName, nodes);
+					}
+					nodes.add(node);
 				}
-				nodes.add(node);
 			}
-		}
+		});
 
-		this.constants = this.initConstants(graphProto);
+		this.constants = loadTimings.measure(Phase.CONSTANTS, () -> this.initConstants(graphProto));
 		assert this.constants != null;
 
+		this.sparseConstants = loadTimings.measure(Phase.CONSTANTS, () -> this.initSparseConstants(graphProto));
+
 		this.inputs = this.initInputs(graphProto);
 		assert this.inputs != null && this.inputs.length > 0;
 
-		this.dag = this.buildDAG(graphProto, nodeMapByOutName, nodesMapByInName);
+		this.dag = loadTimings.measure(Phase.DAG,
+				() -> this.buildDAG(definedNodes, nodeMapByOutName, nodesMapByInName));
 		assert this.dag != null;
 		logger.debug("The definition of graph \"{}\": \"{}\"", super.name, this.dag);
 
@@ -99,6 +141,38 @@ public class Graph extends NamedOnnxObject {
 		assert this.outputs != null && this.outputs.length > 0;
 	}
 
+	/**
+	 * 由预先编译好的各部分直接构建Graph(参考{@link org.onnx4j.ModelCache})，不再解析GraphProto
+	 * 
+	 * @param model
+	 * @param name
+	 * @param docString
+	 * @param dag
+	 * @param sortedNodes
+	 *            按拓扑排序的全部节点
+	 * @param constants
+	 * @param inputs
+	 * @param outputs
+	 */
+	public Graph(Model model, String name, String docString, com.google.common.graph.Graph<Node> dag,
+			List<Node> sortedNodes, Constant[] constants, GraphInput[] inputs, GraphOutput[] outputs) {
+		this(model, name, docString, dag, sortedNodes, constants, new SparseConstant[0], inputs, outputs);
+	}
+
+	public Graph(Model model, String name, String docString, com.google.common.graph.Graph<Node> dag,
+			List<Node> sortedNodes, Constant[] constants, SparseConstant[] sparseConstants, GraphInput[] inputs,
+			GraphOutput[] outputs) {
+		super(name, docString);
+
+		this.model = model;
+		this.dag = dag;
+		this.sortedNodes = Collections.unmodifiableList(sortedNodes);
+		this.constants = constants;
+		this.sparseConstants = sparseConstants;
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
 	public GraphInput[] getInputs() {
 		return this.inputs;
 	}
@@ -129,6 +203,24 @@ public class Graph extends NamedOnnxObject {
 		return this.constants;
 	}
 
+	/**
+	 * 返回稀疏的常量，不包含在{@link #getConstants()}中
+	 * 
+	 * @return
+	 */
+	public SparseConstant[] getSparseConstants() {
+		return this.sparseConstants;
+	}
+
+	public SparseConstant getSparseConstant(String name) {
+		for (SparseConstant sparseConstant : this.sparseConstants) {
+			if (sparseConstant.getName().equals(name))
+				return sparseConstant;
+		}
+
+		return null;
+	}
+
 	/**
 	 * 返回指定节点的前辈节点集合
 	 * 
@@ -153,6 +245,46 @@ public class Graph extends NamedOnnxObject {
 		return this.dag.nodes();
 	}
 
+	/**
+	 * 返回按拓扑排序的全部节点，每个节点均排在其所有前辈节点之后
+	 * 
+	 * @return
+	 */
+	public synchronized List<Node> getSortedNodes() {
+		if (this.sortedNodes == null) {
+			//
+			// Kahn算法，入度相同时保持节点的定义顺序
+			//
+			Map<Node, Integer> inDegrees = new IdentityHashMap<Node, Integer>();
+			Deque<Node> ready = new ArrayDeque<Node>();
+			for (Node node : this.dag.nodes()) {
+				int inDegree = this.dag.inDegree(node);
+				inDegrees.put(node, inDegree);
+				if (inDegree == 0)
+					ready.add(node);
+			}
+
+			List<Node> sortedNodes = new ArrayList<Node>(inDegrees.size());
+			while (ready.isEmpty() == false) {
+				Node node = ready.poll();
+				sortedNodes.add(node);
+				for (Node successor : this.dag.successors(node)) {
+					int inDegree = inDegrees.get(successor) - 1;
+					inDegrees.put(successor, inDegree);
+					if (inDegree == 0)
+						ready.add(successor);
+				}
+			}
+
+			if (sortedNodes.size() != inDegrees.size())
+				throw new IllegalStateException(String.format("Graph \"%s\" is not acyclic", super.getName()));
+
+			this.sortedNodes = Collections.unmodifiableList(sortedNodes);
+		}
+
+		return this.sortedNodes;
+	}
+
 	public Node getNode(String nodeName) {
 		for (Node node : this.dag.nodes()) {
 			if (node.getName().equalsIgnoreCase(nodeName))
@@ -168,19 +300,115 @@ public class Graph extends NamedOnnxObject {
 		// 区别与输入节点，此节点在执行时不需要用户喂入(feed)运行时数据，由网络构建时定义好数值
 		//
 		List<TensorProto> initializerList = graph.getInitializerList();
+		Map<String, QuantizationParams> quantizations = this.initQuantizations(graph, initializerList);
 		Constant[] contants = new Constant[initializerList.size()];
 		for (int n = 0; n < initializerList.size(); n++) {
 			TensorProto initializer = initializerList.get(n);
 
 			//
-			// 保存输出名称引用，为下阶段计算依赖关系准备
+			// 先只创建Constant，Tensor统一在下面按配置的并行度加载
 			//
-			contants[n] = new Constant(this.model, initializer);
+			contants[n] = new Constant(this.model, initializer, quantizations.get(initializer.getName()), true);
 		}
 
+		if (this.model.getOptions().isLazyConstants() == false)
+			Constant.loadAll(contants, this.model.getOptions().getLoadParallelism(),
+					this.model.getOptions().getLoadListener());
+
+		//
+		// loadAll只在每个常量开始前检查，加载最后一个常量期间的放弃请求在此处理
+		//
+		this.model.checkCancelled();
+
 		return contants;
 	}
 
+	/**
+	 * 读取GraphProto.quantization_annotation中常量的scale及zero point
+	 * 
+	 * @return 以被量化的常量名为键，不可用的标注记录警告后忽略
+	 */
+	private Map<String, QuantizationParams> initQuantizations(GraphProto graph, List<TensorProto> initializerList) {
+		if (graph.getQuantizationAnnotationCount() == 0)
+			return Collections.emptyMap();
+
+		Map<String, TensorProto> initializers = new HashMap<String, TensorProto>();
+		for (TensorProto initializer : initializerList) {
+			initializers.put(initializer.getName(), initializer);
+		}
+
+		Map<String, QuantizationParams> quantizations = new HashMap<String, QuantizationParams>();
+		for (TensorAnnotation annotation : graph.getQuantizationAnnotationList()) {
+			//
+			// 只处理常量的标注，节点输出等运行时数据的量化参数由算子的输入给出
+			//
+			TensorProto initializer = initializers.get(annotation.getTensorName());
+			if (initializer == null)
+				continue;
+
+			String scaleName = null;
+			String zeroPointName = null;
+			for (StringStringEntryProto entry : annotation.getQuantParameterTensorNamesList()) {
+				if (SCALE_TENSOR.equals(entry.getKey()))
+					scaleName = entry.getValue();
+				else if (ZERO_POINT_TENSOR.equals(entry.getKey()))
+					zeroPointName = entry.getValue();
+			}
+
+			TensorProto scale = initializers.get(scaleName);
+			TensorProto zeroPoint = initializers.get(zeroPointName);
+			if (scale == null || (zeroPointName != null && zeroPoint == null)) {
+				logger.warn("Quantization annotation of \"{}\" in Graph \"{}\" ignored, {} or {} is not a constant",
+						annotation.getTensorName(), super.getName(), scaleName, zeroPointName);
+				continue;
+			}
+
+			try {
+				QuantizationParams quantization = this.toQuantization(scale, zeroPoint);
+				Shape shape = (initializer.getDimsCount() > 0) ? Shape.create(initializer.getDimsList())
+						: Shape.create(1L);
+				quantization.check(DataType.from(initializer.getDataType()), shape);
+				quantizations.put(initializer.getName(), quantization);
+			} catch (RuntimeException e) {
+				logger.warn("Quantization annotation of \"{}\" in Graph \"{}\" ignored: {}",
+						annotation.getTensorName(), super.getName(), e.getMessage());
+			}
+		}
+
+		return quantizations;
+	}
+
+	private QuantizationParams toQuantization(TensorProto scale, TensorProto zeroPoint) {
+		//
+		// 标注中没有轴，多于一个元素的scale按ONNX的惯例对应权重的输出通道(轴0)
+		//
+		try (Tensor scaleTensor = TensorBuilder.builder(scale, this.model.getBaseDir(), Tensor.options()).build();
+				Tensor zeroPointTensor = (zeroPoint != null)
+						? TensorBuilder.builder(zeroPoint, this.model.getBaseDir(), Tensor.options()).build()
+						: null) {
+			return QuantizationParams.of(scaleTensor, zeroPointTensor, 0);
+		}
+	}
+
+	private SparseConstant[] initSparseConstants(GraphProto graph) {
+		UnknownFieldSet unknownFields = graph.getUnknownFields();
+		if (unknownFields.hasField(SPARSE_INITIALIZER_FIELD_NUMBER) == false)
+			return new SparseConstant[0];
+
+		List<ByteString> sparseInitializerList = unknownFields.getField(SPARSE_INITIALIZER_FIELD_NUMBER)
+				.getLengthDelimitedList();
+		SparseConstant[] sparseConstants = new SparseConstant[sparseInitializerList.size()];
+		for (int n = 0; n < sparseInitializerList.size(); n++) {
+			this.model.checkCancelled();
+			sparseConstants[n] = new SparseConstant(this.model, sparseInitializerList.get(n));
+
+			logger.debug("Sparse constant named \"{}\" in Graph \"{}\": {}", sparseConstants[n].getName(),
+					super.getName(), sparseConstants[n].getSparseTensor());
+		}
+
+		return sparseConstants;
+	}
+
 	private GraphInput[] initInputs(GraphProto graph) {
 		//
 		// 作为网络输入，不存在入度，即不存在依赖节点
@@ -223,10 +451,17 @@ public class Graph extends NamedOnnxObject {
 		return exchanges;
 	}
 
-	private com.google.common.graph.Graph<Node> buildDAG(GraphProto graphProto, Map<String, Node> nodeMapByOutName,
+	private com.google.common.graph.Graph<Node> buildDAG(List<Node> nodes, Map<String, Node> nodeMapByOutName,
 			Map<String, Collection<Node>> nodesMapByInName) {
 		Builder<Node> builder = GraphBuilder.directed().allowsSelfLoops(false).<Node>immutable();
 
+		//
+		// 先按定义顺序加入全部节点，孤立的节点(如只有一个节点的Graph)也不会丢失
+		//
+		for (Node node : nodes) {
+			builder.addNode(node);
+		}
+
 		for (Entry<String, Node> entrySet : nodeMapByOutName.entrySet()) {
 			String outputName = entrySet.getKey();
 			Node outputNode = entrySet.getValue();
@@ -16,26 +16,204 @@
  */
 package org.onnx4j.model.graph;
 
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.onnx4j.LoadListener;
 import org.onnx4j.Model;
 import org.onnx4j.NamedOnnxObject;
 import org.onnx4j.Tensor;
 import org.onnx4j.prototypes.OnnxProto3.TensorProto;
+import org.onnx4j.tensor.QuantizationParams;
 import org.onnx4j.tensor.TensorBuilder;
 
 public class Constant extends NamedOnnxObject {
 
-	private Tensor tensor;
+	private final Model model;
+	private Supplier<Tensor> loader;
+	private volatile Tensor tensor;
 
 	public Constant(Model model, TensorProto initializer) {
-		super(initializer.getName(), initializer.getDocString());
-		this.tensor = TensorBuilder
-				.builder(initializer, model.getTensorOptions())
-				.manager(model.getTensorManager())
-				.build();
+		this(model, initializer, false);
+	}
+
+	/**
+	 * @param model
+	 * @param initializer
+	 * @param lazy
+	 *            为true时，Tensor延迟到第一次调用{@link #getTensor()}时才解码并分配内存
+	 */
+	public Constant(Model model, TensorProto initializer, boolean lazy) {
+		this(model, initializer, null, lazy);
+	}
+
+	/**
+	 * @param model
+	 * @param initializer
+	 * @param quantization
+	 *            GraphProto.quantization_annotation给出的量化参数，非量化数据为null
+	 * @param lazy
+	 *            为true时，Tensor延迟到第一次调用{@link #getTensor()}时才解码并分配内存
+	 */
+	public Constant(Model model, TensorProto initializer, QuantizationParams quantization, boolean lazy) {
+		this(model, initializer.getName(), initializer.getDocString(),
+				() -> TensorBuilder.builder(initializer, model.getBaseDir(), model.getTensorOptions())
+						.quantization(quantization)
+						.manager(model.getTensorManager())
+						.share(model.getOptions().getSharedTensorStore())
+						.build(),
+				lazy);
+	}
+
+	/**
+	 * @param name
+	 * @param docString
+	 * @param loader
+	 *            创建Tensor，仅被调用一次
+	 * @param lazy
+	 *            为true时，Tensor延迟到第一次调用{@link #getTensor()}时才创建
+	 */
+	public Constant(String name, String docString, Supplier<Tensor> loader, boolean lazy) {
+		this(null, name, docString, loader, lazy);
+	}
+
+	/**
+	 * @param model
+	 *            所属的Model，关闭后不能再加载；为null时不检查
+	 * @param name
+	 * @param docString
+	 * @param loader
+	 *            创建Tensor，仅被调用一次
+	 * @param lazy
+	 *            为true时，Tensor延迟到第一次调用{@link #getTensor()}时才创建
+	 */
+	public Constant(Model model, String name, String docString, Supplier<Tensor> loader, boolean lazy) {
+		super(name, docString);
+		this.model = model;
+		this.loader = loader;
+
+		if (lazy == false)
+			this.getTensor();
 	}
 
+	/**
+	 * @return
+	 * @throws IllegalStateException
+	 *             所属的Model已关闭，其Tensor均已释放
+	 */
 	public Tensor getTensor() {
+		if (this.model != null && this.model.isClosed())
+			throw new IllegalStateException(
+					String.format("Constant \"%s\" can not be used after its model is closed", this.getName()));
+
+		Tensor tensor = this.tensor;
+		if (tensor == null) {
+			synchronized (this) {
+				tensor = this.tensor;
+				if (tensor == null) {
+					tensor = this.loader.get();
+					this.tensor = tensor;
+
+					//
+					// 加载完成后不再需要保留loader(及其引用的initializer)
+					//
+					this.loader = null;
+				}
+			}
+		}
 		return tensor;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * 加载全部常量的Tensor。parallelism大于1时在ForkJoinPool中并行解码并分配内存，
+	 * 每个Tensor仍归属于各自的Constant，结果与顺序加载一致
+	 * <p>
+	 * 某个常量加载失败或被放弃时，其余线程不再开始新的常量，并等待正在加载的常量完成后才抛出异常，
+	 * 调用者随后关闭Model时不会有线程仍在读取映射区域或注册Tensor
+	 * 
+	 * @param constants
+	 * @param parallelism
+	 * @param loadListener
+	 *            每个常量加载完成后回调；已被放弃时不再加载后续常量，并抛出CancellationException
+	 */
+	public static void loadAll(Constant[] constants, int parallelism, LoadListener loadListener) {
+		AtomicInteger loaded = new AtomicInteger();
+		Consumer<Constant> loader = constant -> {
+			if (loadListener.isCancelled())
+				throw new CancellationException("Loading of constants has been cancelled");
+
+			constant.getTensor();
+			loadListener.onConstantsLoaded(loaded.incrementAndGet(), constants.length);
+		};
+
+		if (parallelism <= 1 || constants.length <= 1) {
+			for (Constant constant : constants) {
+				loader.accept(constant);
+			}
+			return;
+		}
+
+		AtomicBoolean failed = new AtomicBoolean();
+		Consumer<Constant> parallelLoader = constant -> {
+			if (failed.get())
+				return;
+
+			try {
+				loader.accept(constant);
+			} catch (RuntimeException | Error e) {
+				failed.set(true);
+				throw e;
+			}
+		};
+
+		ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, constants.length));
+		try {
+			pool.submit(() -> Arrays.stream(constants).parallel().forEach(parallelLoader)).get();
+		} catch (InterruptedException e) {
+			failed.set(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading constants", e);
+		} catch (ExecutionException e) {
+			failed.set(true);
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+			if (failed.get())
+				Constant.awaitTermination(pool);
+		}
+	}
+
+	/**
+	 * 等待池中已开始的任务全部结束，期间的中断推迟到返回后再恢复
+	 */
+	private static void awaitTermination(ForkJoinPool pool) {
+		boolean interrupted = Thread.interrupted();
+		while (true) {
+			try {
+				if (pool.awaitTermination(1L, TimeUnit.SECONDS))
+					break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * @return Tensor是否已经解码并分配内存
+	 */
+	public boolean isMaterialized() {
+		return this.tensor != null;
+	}
+
+}
@@ -29,6 +29,11 @@ public abstract class Exchange extends NamedOnnxObject {
 		this.valueInfo = ValueInfo.toValueInfo(valueInfoProto);
 	}
 
+	public Exchange(String name, String docString, ValueInfo valueInfo) {
+		super(name, docString);
+		this.valueInfo = valueInfo;
+	}
+
 	public ValueInfo getValueInfo() {
 		return valueInfo;
 	}
@@ -44,6 +44,18 @@ public final class Node extends NamedOnnxObject {
 		this.attributes = new Attributes(model, nodeProto.getAttributeList());
 	}
 
+	public Node(String name, String docString, String domain, String opType, String[] inputNames,
+			String[] outputNames, Attributes attributes) {
+		super(name, docString);
+
+		this.inputNames = inputNames;
+		this.outputNames = outputNames;
+
+		this.domain = domain;
+		this.opType = opType;
+		this.attributes = attributes;
+	}
+
 	public String[] getInputNames() {
 		return inputNames;
 	}
@@ -56,6 +68,10 @@ public final class Node extends NamedOnnxObject {
 		return attributes;
 	}
 
+	public String getDomain() {
+		return domain;
+	}
+
 	public String getOpType() {
 		return opType;
 	}
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.model.graph;
+
+import org.onnx4j.Model;
+import org.onnx4j.NamedOnnxObject;
+import org.onnx4j.tensor.SparseTensor;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * 稀疏的常量(GraphProto.sparse_initializer)，以COO格式加载，不转换为稠密的Tensor
+ */
+public class SparseConstant extends NamedOnnxObject {
+
+	private final SparseTensor sparseTensor;
+
+	/**
+	 * 稀疏常量一般不大，直接解码并分配内存
+	 * 
+	 * @param model
+	 * @param sparseInitializer
+	 *            序列化的SparseTensorProto
+	 */
+	public SparseConstant(Model model, ByteString sparseInitializer) {
+		this(SparseTensor.parse(sparseInitializer, model.getBaseDir(), model.getTensorOptions())
+				.manage(model.getTensorManager()));
+	}
+
+	public SparseConstant(SparseTensor sparseTensor) {
+		super(sparseTensor.getName(), sparseTensor.getDocString());
+		this.sparseTensor = sparseTensor;
+	}
+
+	public SparseTensor getSparseTensor() {
+		return this.sparseTensor;
+	}
+
+}
@@ -18,11 +18,16 @@ package org.onnx4j.model.graph.exchanges;
 
 import org.onnx4j.model.graph.Exchange;
 import org.onnx4j.prototypes.OnnxProto3.ValueInfoProto;
+import org.onnx4j.tensor.ValueInfo;
 
 public final class GraphInput extends Exchange {
 
 	public GraphInput(ValueInfoProto valueInfoProto) {
 		super(valueInfoProto);
 	}
+
+	public GraphInput(String name, String docString, ValueInfo valueInfo) {
+		super(name, docString, valueInfo);
+	}
 	
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package org.onnx4j.model.graph.exchanges;
 import org.onnx4j.model.graph.Exchange;
 import org.onnx4j.model.graph.Node;
 import org.onnx4j.prototypes.OnnxProto3.ValueInfoProto;
+import org.onnx4j.tensor.ValueInfo;
 
 public final class GraphOutput extends Exchange {
 	
@@ -28,6 +29,11 @@ public final class GraphOutput extends Exchange {
 		super(valueInfoProto);
 		this.node = node;
 	}
+
+	public GraphOutput(Node node, String name, String docString, ValueInfo valueInfo) {
+		super(name, docString, valueInfo);
+		this.node = node;
+	}
 	
 	public Node getNode() {
 		return this.node;
@@ -16,6 +16,8 @@
  */
 package org.onnx4j.model.graph.node;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +27,7 @@ import org.onnx4j.model.graph.node.attributes.FloatAttribute;
 import org.onnx4j.model.graph.node.attributes.FloatsAttribute;
 import org.onnx4j.model.graph.node.attributes.IntAttribute;
 import org.onnx4j.model.graph.node.attributes.IntsAttribute;
+import org.onnx4j.model.graph.node.attributes.SparseTensorAttribute;
 import org.onnx4j.model.graph.node.attributes.StringAttribute;
 import org.onnx4j.model.graph.node.attributes.StringsAttribute;
 import org.onnx4j.model.graph.node.attributes.TensorAttribute;
@@ -41,11 +44,17 @@ public class Attributes {
 		}
 	}
 
+	public Attributes(Collection<Attribute<?>> attrs) {
+		for (Attribute<?> attr : attrs) {
+			this.attrs.put(attr.getName(), attr);
+		}
+	}
+
 	protected void addAttr(Model model, AttributeProto attrProto) {
 		String attrName = attrProto.getName();
 
-		if (attrProto.getType().getNumber() != 0) {
-			switch (attrProto.getType().getNumber()) {
+		if (attrProto.getTypeValue() != 0) {
+			switch (attrProto.getTypeValue()) {
 			case AttributeProto.AttributeType.INT_VALUE:
 				this.attrs.put(attrName, new IntAttribute(attrProto));
 				break;
@@ -70,10 +79,13 @@ public class Attributes {
 			case AttributeProto.AttributeType.TENSORS_VALUE:
 				this.attrs.put(attrName, new TensorsAttribute(model, attrProto));
 				break;
+			case SparseTensorAttribute.SPARSE_TENSOR_VALUE:
+				this.attrs.put(attrName, new SparseTensorAttribute(model, attrProto));
+				break;
 			default:
 				throw new UnsupportedOperationException(
 						String.format("Unable to handle the attribute \"%s\" as \"%s\" type", attrProto.getName(),
-								attrProto.getType().name()));
+								attrProto.getTypeValue()));
 			}
 		} else {
 			if (attrProto.hasField(AttributeProto.getDescriptor().findFieldByNumber(AttributeProto.I_FIELD_NUMBER))) {
@@ -94,12 +106,18 @@ public class Attributes {
 				this.attrs.put(attrName, new TensorAttribute(model, attrProto));
 			} else if (attrProto.getTensorsCount() > 0) {
 				this.attrs.put(attrName, new TensorsAttribute(model, attrProto));
+			} else if (SparseTensorAttribute.hasSparseTensor(attrProto)) {
+				this.attrs.put(attrName, new SparseTensorAttribute(model, attrProto));
 			} else {
 				// Ignore it
 			}
 		}
 	}
 
+	public Collection<Attribute<?>> getAttrs() {
+		return Collections.unmodifiableCollection(this.attrs.values());
+	}
+
 	public Attribute<?> getAttr(String attrName) {
 		return this.attrs.get(attrName);
 	}
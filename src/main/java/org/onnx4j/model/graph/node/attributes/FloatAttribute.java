@@ -25,4 +25,8 @@ public class FloatAttribute extends Attribute<Float> {
 		super(attrProto.getF(), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public FloatAttribute(String name, String docString, Float value) {
+		super(value, name, docString);
+	}
+
 }
\ No newline at end of file
@@ -28,6 +28,10 @@ public class FloatsAttribute extends Attribute<List<Float>> {
 		super(attrProto.getFloatsList(), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public FloatsAttribute(String name, String docString, List<Float> value) {
+		super(value, name, docString);
+	}
+
 	/**
 	 * 由于是引用传递，这里返回一个不可修改的List对象，防止Operator在执行的过程中修改List对象的值。
 	 */
@@ -25,4 +25,8 @@ public class IntAttribute extends Attribute<Long> {
 		super(attrProto.getI(), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public IntAttribute(String name, String docString, Long value) {
+		super(value, name, docString);
+	}
+
 }
\ No newline at end of file
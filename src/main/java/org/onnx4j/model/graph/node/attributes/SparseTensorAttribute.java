@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.model.graph.node.attributes;
+
+import org.onnx4j.Model;
+import org.onnx4j.model.graph.node.Attribute;
+import org.onnx4j.prototypes.OnnxProto3.AttributeProto;
+import org.onnx4j.tensor.SparseTensor;
+
+/**
+ * 稀疏Tensor类型的属性，如Constant的sparse_value
+ */
+public class SparseTensorAttribute extends Attribute<SparseTensor> {
+
+	//
+	// AttributeProto.AttributeType.SPARSE_TENSOR及AttributeProto.sparse_tensor(IR
+	// version 6)，生成的OnnxProto3中尚无定义
+	//
+	public static final int SPARSE_TENSOR_VALUE = 11;
+
+	public static final int SPARSE_TENSOR_FIELD_NUMBER = 22;
+
+	public static boolean hasSparseTensor(AttributeProto attrProto) {
+		return attrProto.getUnknownFields().hasField(SPARSE_TENSOR_FIELD_NUMBER);
+	}
+
+	public SparseTensorAttribute(Model model, AttributeProto attrProto) {
+		super(SparseTensor
+				.parse(attrProto.getUnknownFields().getField(SPARSE_TENSOR_FIELD_NUMBER).getLengthDelimitedList()
+						.get(0), model.getBaseDir(), model.getTensorOptions())
+				.manage(model.getTensorManager()), attrProto.getName(), attrProto.getDocString());
+	}
+
+	public SparseTensorAttribute(String name, String docString, SparseTensor value) {
+		super(value, name, docString);
+	}
+
+}
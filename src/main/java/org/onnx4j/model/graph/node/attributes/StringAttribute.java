@@ -25,4 +25,8 @@ public class StringAttribute extends Attribute<String> {
 		super(attrProto.getS().toStringUtf8(), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public StringAttribute(String name, String docString, String value) {
+		super(value, name, docString);
+	}
+
 }
\ No newline at end of file
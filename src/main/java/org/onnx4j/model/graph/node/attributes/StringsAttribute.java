@@ -41,6 +41,10 @@ public class StringsAttribute extends Attribute<List<String>> {
 		}), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public StringsAttribute(String name, String docString, List<String> value) {
+		super(value, name, docString);
+	}
+
 	/**
 	 * 由于是引用传递，这里返回一个不可修改的List对象，防止Operator在执行的过程中修改List对象的值。
 	 */
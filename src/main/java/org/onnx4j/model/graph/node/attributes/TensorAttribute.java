@@ -25,8 +25,14 @@ import org.onnx4j.tensor.TensorBuilder;
 public class TensorAttribute extends Attribute<Tensor> {
 
 	public <T> TensorAttribute(Model model, AttributeProto attrProto) {
-		super(TensorBuilder.builder(attrProto.getT(), model.getTensorOptions()).build(), attrProto.getName(),
-				attrProto.getDocString());
+		super(TensorBuilder.builder(attrProto.getT(), model.getBaseDir(), model.getTensorOptions())
+				.manager(model.getTensorManager())
+				.share(model.getOptions().getSharedTensorStore())
+				.build(), attrProto.getName(), attrProto.getDocString());
+	}
+
+	public TensorAttribute(String name, String docString, Tensor value) {
+		super(value, name, docString);
 	}
 
 }
\ No newline at end of file
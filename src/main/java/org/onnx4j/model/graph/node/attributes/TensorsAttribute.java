@@ -33,6 +33,10 @@ public class TensorsAttribute extends Attribute<List<Tensor>> {
 		super(toTensors(model, attrProto), attrProto.getName(), attrProto.getDocString());
 	}
 
+	public TensorsAttribute(String name, String docString, List<Tensor> value) {
+		super(value, name, docString);
+	}
+
 	/**
 	 * 由于是引用传递，这里返回一个不可修改的List对象，防止Operator在执行的过程中修改List对象的值。
 	 */
@@ -44,8 +48,8 @@ public class TensorsAttribute extends Attribute<List<Tensor>> {
 	private static List<Tensor> toTensors(Model model, AttributeProto attrProto) {
 		List<Tensor> tensors = new ArrayList<Tensor>();
 		for (TensorProto tensorProto : attrProto.getTensorsList()) {
-			Tensor tensor = TensorBuilder.builder(tensorProto, model.getTensorOptions())
-					.manager(model.getTensorManager()).build();
+			Tensor tensor = TensorBuilder.builder(tensorProto, model.getBaseDir(), model.getTensorOptions())
+					.manager(model.getTensorManager()).share(model.getOptions().getSharedTensorStore()).build();
 			tensors.add(tensor);
 		}
 		return tensors;
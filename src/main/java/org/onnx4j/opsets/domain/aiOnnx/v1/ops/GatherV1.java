@@ -27,6 +27,7 @@ import org.onnx4j.opsets.operator.fields.AttributeField;
 import org.onnx4j.opsets.operator.fields.InputField;
 import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
 import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.SparseTensor;
 
 /**
  * Gather Operator v1
@@ -173,6 +174,14 @@ public interface GatherV1 extends AiOnnxOperatorV1 {
 			return indicesField.getData();
 		}
 
+		/**
+		 * @return data if it is sparse (e.g. a pruned embedding table),
+		 *         otherwise null and data is returned by {@link #getData()}
+		 */
+		public SparseTensor getSparseData() {
+			return InputField.sparseOf(dataField);
+		}
+
 	}
 
 	/**
@@ -25,6 +25,7 @@ import org.onnx4j.opsets.operator.OperatorInputs;
 import org.onnx4j.opsets.operator.fields.InputField;
 import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
 import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.SparseTensor;
 
 /**
  * MatMul Operator v1
@@ -101,6 +102,22 @@ public interface MatMulV1 extends AiOnnxOperatorV1 {
 			return b.getData();
 		}
 
+		/**
+		 * @return A if it is sparse (e.g. a sparse initializer), otherwise null
+		 *         and A is returned by {@link #getA()}
+		 */
+		public SparseTensor getSparseA() {
+			return InputField.sparseOf(a);
+		}
+
+		/**
+		 * @return B if it is sparse (e.g. pruned weights), otherwise null and B
+		 *         is returned by {@link #getB()}
+		 */
+		public SparseTensor getSparseB() {
+			return InputField.sparseOf(b);
+		}
+
 	}
 
 	/**
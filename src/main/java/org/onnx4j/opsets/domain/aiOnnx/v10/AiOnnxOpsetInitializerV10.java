@@ -19,6 +19,10 @@ package org.onnx4j.opsets.domain.aiOnnx.v10;
 import java.util.Map;
 
 import org.onnx4j.opsets.Operator;
+import org.onnx4j.opsets.domain.aiOnnx.v10.ops.DequantizeLinearV10;
+import org.onnx4j.opsets.domain.aiOnnx.v10.ops.QLinearConvV10;
+import org.onnx4j.opsets.domain.aiOnnx.v10.ops.QLinearMatMulV10;
+import org.onnx4j.opsets.domain.aiOnnx.v10.ops.QuantizeLinearV10;
 import org.onnx4j.opsets.domain.aiOnnx.v9.AiOnnxOpsetInitializerV9;
 
 /**
@@ -29,9 +33,22 @@ import org.onnx4j.opsets.domain.aiOnnx.v9.AiOnnxOpsetInitializerV9;
  */
 public interface AiOnnxOpsetInitializerV10 extends AiOnnxOpsetInitializerV9 {
 
+	public abstract QuantizeLinearV10 getQuantizeLinearV10();
+
+	public abstract DequantizeLinearV10 getDequantizeLinearV10();
+
+	public abstract QLinearConvV10 getQLinearConvV10();
+
+	public abstract QLinearMatMulV10 getQLinearMatMulV10();
+
 	@Override
 	public default Map<String, Operator> initializeOperators() {
 		Map<String, Operator> operators = AiOnnxOpsetInitializerV9.super.initializeOperators();
+		// 20261017
+		operators.put(QuantizeLinearV10.OP_TYPE, this.getQuantizeLinearV10());
+		operators.put(DequantizeLinearV10.OP_TYPE, this.getDequantizeLinearV10());
+		operators.put(QLinearConvV10.OP_TYPE, this.getQLinearConvV10());
+		operators.put(QLinearMatMulV10.OP_TYPE, this.getQLinearMatMulV10());
 		return operators;
 	}
 
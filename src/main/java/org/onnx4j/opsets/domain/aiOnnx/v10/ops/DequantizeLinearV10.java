@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.opsets.domain.aiOnnx.v10.ops;
+
+import org.onnx4j.Inputs;
+import org.onnx4j.model.graph.Node;
+import org.onnx4j.opsets.domain.aiOnnx.v10.AiOnnxOperatorV10;
+import org.onnx4j.opsets.operator.Field.TypeConstraint;
+import org.onnx4j.opsets.operator.OperatorInputs;
+import org.onnx4j.opsets.operator.fields.InputField;
+import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
+import org.onnx4j.tensor.DataType;
+
+/**
+ * DequantizeLinear Operator v10
+ * 
+ * <p>
+ * The linear dequantization operator. It consumes a quantized tensor, a scale,
+ * a zero point to compute the full precision tensor. The dequantization
+ * formula is y = (x - x_zero_point) * x_scale. 'x_scale' and 'x_zero_point'
+ * are both scalars. 'x_zero_point' and 'x' must have same type. 'x' and 'y'
+ * must have same shape. In the case of dequantizing int32, there's no zero
+ * point (zero point is supposed to be 0).
+ * 
+ * @author HarryLee {@literal <formaten@qq.com>}
+ * @version 10
+ * @since Version 10 of the default ONNX operator set
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Changelog.md#DequantizeLinear-10">
+ *      ONNX.Changelog.md</a>
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Operators.md#DequantizeLinear">
+ *      ONNX.Operators.md</a>
+ * @see org.onnx4j.tensor.QuantizationParams
+ */
+public interface DequantizeLinearV10 extends AiOnnxOperatorV10 {
+
+	public static final String OP_TYPE = "DequantizeLinear";
+
+	/**
+	 * Constrain 'x_zero_point' and 'x' to 8-bit/32-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T = new TypeConstraint(DataType.INT8, DataType.UINT8,
+			DataType.INT32);
+
+	/**
+	 * Constrain 'x_scale' and 'y' to float tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_FLOAT = new TypeConstraint(DataType.FLOAT);
+
+	/**
+	 * Executes operator
+	 * 
+	 * @param x
+	 *            N-D quantized input tensor to be de-quantized.
+	 * @param xScale
+	 *            Scale for input 'x'. It's a scalar, which means a
+	 *            per-tensor/layer quantization.
+	 * @param xZeroPoint
+	 *            Zero point for input 'x'. It's a scalar, which means a
+	 *            per-tensor/layer quantization. It's optional. 0 is the
+	 *            default value when it's not specified.
+	 * @return N-D full precision output tensor. It has same shape as input
+	 *         'x'.
+	 */
+	//public abstract T_TENSOR dequantizeLinear(T_TENSOR x, T_TENSOR xScale, T_TENSOR xZeroPoint);
+
+	@Override
+	public default OperatorStatus getStatus() {
+		return OperatorStatus.STABLE;
+	}
+
+	@Override
+	public default String getOpType() {
+		return OP_TYPE;
+	}
+
+	/**
+	 * Inputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class DequantizeLinearInputsV10<T_TENSOR> extends OperatorInputs<T_TENSOR> {
+
+		private InputField<T_TENSOR> xField;
+
+		private InputField<T_TENSOR> xScaleField;
+
+		private InputField<T_TENSOR> xZeroPointField;
+
+		public DequantizeLinearInputsV10(Node node, Inputs inputs) {
+			super(node, inputs);
+
+			xField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T, super.inputArray[0]);
+
+			xScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_FLOAT, super.inputArray[1]);
+
+			//
+			// optional, 0 by default
+			//
+			xZeroPointField = super.inputArray.length > 2
+					? new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T, super.inputArray[2]) : null;
+		}
+
+		public T_TENSOR getX() {
+			return xField.getData();
+		}
+
+		public T_TENSOR getXScale() {
+			return xScaleField.getData();
+		}
+
+		public T_TENSOR getXZeroPoint() {
+			return (xZeroPointField == null) ? null : xZeroPointField.getData();
+		}
+
+	}
+
+	/**
+	 * Outputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class DequantizeLinearOutputV10<T_TENSOR> extends SingleOperatorOutputs<T_TENSOR> {
+
+		public DequantizeLinearOutputV10(T_TENSOR output) {
+			super(output);
+		}
+
+		@Override
+		public TypeConstraint getTypeConstraint() {
+			return TPYE_CONSTRAINT_FLOAT;
+		}
+
+	}
+
+}
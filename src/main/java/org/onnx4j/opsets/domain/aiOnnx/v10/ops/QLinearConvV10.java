@@ -0,0 +1,338 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.opsets.domain.aiOnnx.v10.ops;
+
+import java.util.List;
+
+import org.onnx4j.Inputs;
+import org.onnx4j.model.graph.Node;
+import org.onnx4j.model.graph.node.attributes.IntAttribute;
+import org.onnx4j.model.graph.node.attributes.IntsAttribute;
+import org.onnx4j.model.graph.node.attributes.StringAttribute;
+import org.onnx4j.opsets.domain.aiOnnx.v10.AiOnnxOperatorV10;
+import org.onnx4j.opsets.operator.Field.TypeConstraint;
+import org.onnx4j.opsets.operator.OperatorInputs;
+import org.onnx4j.opsets.operator.fields.AttributeField;
+import org.onnx4j.opsets.operator.fields.InputField;
+import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
+import org.onnx4j.tensor.DataType;
+
+/**
+ * QLinearConv Operator v10
+ * 
+ * <p>
+ * The convolution operator consumes a quantized input tensor, its scale and
+ * zero point, a quantized filter, its scale and zero point, and output's scale
+ * and zero point, and computes the quantized output. Each scale and zero-point
+ * pair must have same shape. It means they must be either scalars (per tensor)
+ * or 1-D tensors (per output channel). Each input or output and its related
+ * zero point must have same type.
+ * 
+ * @author HarryLee {@literal <formaten@qq.com>}
+ * @version 10
+ * @since Version 10 of the default ONNX operator set
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Changelog.md#QLinearConv-10">
+ *      ONNX.Changelog.md</a>
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Operators.md#QLinearConv">
+ *      ONNX.Operators.md</a>
+ * @see org.onnx4j.tensor.QuantizationParams
+ */
+public interface QLinearConvV10 extends AiOnnxOperatorV10 {
+
+	public static final String OP_TYPE = "QLinearConv";
+
+	/**
+	 * Constrain input type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T1 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain filter type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T2 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain output type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T3 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain bias type to 32-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T4 = new TypeConstraint(DataType.INT32);
+
+	/**
+	 * Constrain scales to float tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_SCALE = new TypeConstraint(DataType.FLOAT);
+
+	/**
+	 * Executes operator
+	 * 
+	 * @param x
+	 *            Input data tensor from previous layer; has size (N x C x H x
+	 *            W), where N is the batch size, C is the number of channels,
+	 *            and H and W are the height and width.
+	 * @param xScale
+	 *            Scale tensor for input 'x'. It's a scalar, which means a
+	 *            per-tensor/layer quantization.
+	 * @param xZeroPoint
+	 *            Zero point tensor for input 'x'. It's a scalar, which means a
+	 *            per-tensor/layer quantization.
+	 * @param w
+	 *            The weight tensor that will be used in the convolutions; has
+	 *            size (M x C/group x kH x kW).
+	 * @param wScale
+	 *            Scale tensor for input 'w'. It could be a scalar or a 1-D
+	 *            tensor, which means a per-tensor/layer or per output channel
+	 *            quantization. If it's a 1-D tensor, its number of elements
+	 *            should be equal to the number of output channels (M).
+	 * @param wZeroPoint
+	 *            Zero point tensor for input 'w', shaped as wScale.
+	 * @param yScale
+	 *            Scale tensor for output 'y'. It's a scalar, which means a
+	 *            per-tensor/layer quantization.
+	 * @param yZeroPoint
+	 *            Zero point tensor for output 'y'. It's a scalar, which means a
+	 *            per-tensor/layer quantization.
+	 * @param b
+	 *            Optional 1D bias to be added to the convolution, has size of
+	 *            M. Bias must be quantized using scale = x_scale * w_scale and
+	 *            zero_point = 0
+	 * @param autoPad
+	 * @param dilations
+	 * @param group
+	 * @param kernelShape
+	 * @param pads
+	 * @param strides
+	 * @return
+	 */
+	/*
+	 * public abstract T_TENSOR qlinearConv(T_TENSOR x, T_TENSOR xScale,
+	 * T_TENSOR xZeroPoint, T_TENSOR w, T_TENSOR wScale, T_TENSOR wZeroPoint,
+	 * T_TENSOR yScale, T_TENSOR yZeroPoint, T_TENSOR b, String autoPad,
+	 * List<Long> dilations, Long group, List<Long> kernelShape, List<Long>
+	 * pads, List<Long> strides);
+	 */
+
+	@Override
+	public default OperatorStatus getStatus() {
+		return OperatorStatus.STABLE;
+	}
+
+	@Override
+	public default String getOpType() {
+		return OP_TYPE;
+	}
+
+	/**
+	 * Inputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QLinearConvInputsV10<T_TENSOR> extends OperatorInputs<T_TENSOR> {
+
+		public static final String ATTR_AUTO_PAD = "auto_pad";
+
+		public static final String ATTR_KERNEL_SHAPE = "kernel_shape";
+
+		public static final String ATTR_PADS = "pads";
+
+		public static final String ATTR_STRIDES = "strides";
+
+		public static final String ATTR_GROUP = "group";
+
+		public static final String ATTR_DILATIONS = "dilations";
+
+		private AttributeField<String> autoPadField;
+
+		private AttributeField<List<Long>> kernelShapeField;
+
+		private AttributeField<List<Long>> dilationsField;
+
+		private AttributeField<Long> groupField;
+
+		private AttributeField<List<Long>> padsField;
+
+		private AttributeField<List<Long>> stridesField;
+
+		private InputField<T_TENSOR> xField;
+
+		private InputField<T_TENSOR> xScaleField;
+
+		private InputField<T_TENSOR> xZeroPointField;
+
+		private InputField<T_TENSOR> wField;
+
+		private InputField<T_TENSOR> wScaleField;
+
+		private InputField<T_TENSOR> wZeroPointField;
+
+		private InputField<T_TENSOR> yScaleField;
+
+		private InputField<T_TENSOR> yZeroPointField;
+
+		private InputField<T_TENSOR> bField;
+
+		public QLinearConvInputsV10(Node node, Inputs inputs) {
+			super(node, inputs);
+
+			//
+			// string (default is NOTSET)
+			//
+			autoPadField = new AttributeField<String>(super.attrs, ATTR_AUTO_PAD, StringAttribute.class, "NOTSET",
+					false);
+
+			//
+			// list of ints
+			//
+			dilationsField = new AttributeField<List<Long>>(super.attrs, ATTR_DILATIONS, IntsAttribute.class, null,
+					true);
+
+			//
+			// int (default is 1)
+			//
+			groupField = new AttributeField<Long>(super.attrs, ATTR_GROUP, IntAttribute.class, 1L, true);
+
+			//
+			// list of ints
+			//
+			kernelShapeField = new AttributeField<List<Long>>(super.attrs, ATTR_KERNEL_SHAPE, IntsAttribute.class, null,
+					false);
+
+			//
+			// list of ints
+			//
+			padsField = new AttributeField<List<Long>>(super.attrs, ATTR_PADS, IntsAttribute.class, null, false);
+
+			//
+			// list of ints
+			//
+			stridesField = new AttributeField<List<Long>>(super.attrs, ATTR_STRIDES, IntsAttribute.class, null, false);
+
+			xField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T1, super.inputArray[0]);
+
+			xScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[1]);
+
+			xZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T1, super.inputArray[2]);
+
+			wField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T2, super.inputArray[3]);
+
+			//
+			// scalar, or 1-D of size M for per output channel quantization
+			//
+			wScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[4]);
+
+			wZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T2, super.inputArray[5]);
+
+			yScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[6]);
+
+			yZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T3, super.inputArray[7]);
+
+			//
+			// optional, quantized with scale = x_scale * w_scale and zero point
+			// = 0
+			//
+			bField = super.inputArray.length > 8
+					? new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T4, super.inputArray[8]) : null;
+		}
+
+		public String getAutoPad() {
+			return autoPadField.getData();
+		}
+
+		public List<Long> getKernelShape() {
+			return kernelShapeField.getData();
+		}
+
+		public List<Long> getDilations() {
+			return dilationsField.getData();
+		}
+
+		public Long getGroup() {
+			return groupField.getData();
+		}
+
+		public List<Long> getPads() {
+			return padsField.getData();
+		}
+
+		public List<Long> getStrides() {
+			return stridesField.getData();
+		}
+
+		public T_TENSOR getX() {
+			return xField.getData();
+		}
+
+		public T_TENSOR getXScale() {
+			return xScaleField.getData();
+		}
+
+		public T_TENSOR getXZeroPoint() {
+			return xZeroPointField.getData();
+		}
+
+		public T_TENSOR getW() {
+			return wField.getData();
+		}
+
+		public T_TENSOR getWScale() {
+			return wScaleField.getData();
+		}
+
+		public T_TENSOR getWZeroPoint() {
+			return wZeroPointField.getData();
+		}
+
+		public T_TENSOR getYScale() {
+			return yScaleField.getData();
+		}
+
+		public T_TENSOR getYZeroPoint() {
+			return yZeroPointField.getData();
+		}
+
+		public T_TENSOR getB() {
+			return (bField == null) ? null : bField.getData();
+		}
+
+	}
+
+	/**
+	 * Outputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QLinearConvOutputV10<T_TENSOR> extends SingleOperatorOutputs<T_TENSOR> {
+
+		public QLinearConvOutputV10(T_TENSOR output) {
+			super(output);
+		}
+
+		@Override
+		public TypeConstraint getTypeConstraint() {
+			return TPYE_CONSTRAINT_T3;
+		}
+
+	}
+
+}
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.opsets.domain.aiOnnx.v10.ops;
+
+import org.onnx4j.Inputs;
+import org.onnx4j.model.graph.Node;
+import org.onnx4j.opsets.domain.aiOnnx.v10.AiOnnxOperatorV10;
+import org.onnx4j.opsets.operator.Field.TypeConstraint;
+import org.onnx4j.opsets.operator.OperatorInputs;
+import org.onnx4j.opsets.operator.fields.InputField;
+import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
+import org.onnx4j.tensor.DataType;
+
+/**
+ * QLinearMatMul Operator v10
+ * 
+ * <p>
+ * Matrix product that behaves like numpy.matmul. It consumes two quantized
+ * input tensors, their scales and zero points, scale and zero point of output,
+ * and computes the quantized output. The quantization formula is y =
+ * saturate((x / y_scale) + y_zero_point). Scale and zero point must have same
+ * shape. They must be either scalar (per tensor) or 1-D tensor (per
+ * row for 'a' and per column for 'b').
+ * 
+ * @author HarryLee {@literal <formaten@qq.com>}
+ * @version 10
+ * @since Version 10 of the default ONNX operator set
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Changelog.md#QLinearMatMul-10">
+ *      ONNX.Changelog.md</a>
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Operators.md#QLinearMatMul">
+ *      ONNX.Operators.md</a>
+ * @see org.onnx4j.tensor.QuantizationParams
+ */
+public interface QLinearMatMulV10 extends AiOnnxOperatorV10 {
+
+	public static final String OP_TYPE = "QLinearMatMul";
+
+	/**
+	 * Constrain input a and its zero point data type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T1 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain input b and its zero point data type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T2 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain output y and its zero point data type to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T3 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain scales to float tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_SCALE = new TypeConstraint(DataType.FLOAT);
+
+	/**
+	 * Executes operator
+	 * 
+	 * @param a
+	 *            N-dimensional quantized matrix a
+	 * @param aScale
+	 *            scale of quantized input a
+	 * @param aZeroPoint
+	 *            zero point of quantized input a
+	 * @param b
+	 *            N-dimensional quantized matrix b
+	 * @param bScale
+	 *            scale of quantized input b
+	 * @param bZeroPoint
+	 *            zero point of quantized input b
+	 * @param yScale
+	 *            scale of quantized output y
+	 * @param yZeroPoint
+	 *            zero point of quantized output y
+	 * @return Quantized matrix multiply results from a * b
+	 */
+	/*
+	 * public abstract T_TENSOR qlinearMatMul(T_TENSOR a, T_TENSOR aScale,
+	 * T_TENSOR aZeroPoint, T_TENSOR b, T_TENSOR bScale, T_TENSOR bZeroPoint,
+	 * T_TENSOR yScale, T_TENSOR yZeroPoint);
+	 */
+
+	@Override
+	public default OperatorStatus getStatus() {
+		return OperatorStatus.STABLE;
+	}
+
+	@Override
+	public default String getOpType() {
+		return OP_TYPE;
+	}
+
+	/**
+	 * Inputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QLinearMatMulInputsV10<T_TENSOR> extends OperatorInputs<T_TENSOR> {
+
+		private InputField<T_TENSOR> aField;
+
+		private InputField<T_TENSOR> aScaleField;
+
+		private InputField<T_TENSOR> aZeroPointField;
+
+		private InputField<T_TENSOR> bField;
+
+		private InputField<T_TENSOR> bScaleField;
+
+		private InputField<T_TENSOR> bZeroPointField;
+
+		private InputField<T_TENSOR> yScaleField;
+
+		private InputField<T_TENSOR> yZeroPointField;
+
+		public QLinearMatMulInputsV10(Node node, Inputs inputs) {
+			super(node, inputs);
+
+			aField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T1, super.inputArray[0]);
+
+			aScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[1]);
+
+			aZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T1, super.inputArray[2]);
+
+			bField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T2, super.inputArray[3]);
+
+			bScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[4]);
+
+			bZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T2, super.inputArray[5]);
+
+			yScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[6]);
+
+			yZeroPointField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T3, super.inputArray[7]);
+		}
+
+		public T_TENSOR getA() {
+			return aField.getData();
+		}
+
+		public T_TENSOR getAScale() {
+			return aScaleField.getData();
+		}
+
+		public T_TENSOR getAZeroPoint() {
+			return aZeroPointField.getData();
+		}
+
+		public T_TENSOR getB() {
+			return bField.getData();
+		}
+
+		public T_TENSOR getBScale() {
+			return bScaleField.getData();
+		}
+
+		public T_TENSOR getBZeroPoint() {
+			return bZeroPointField.getData();
+		}
+
+		public T_TENSOR getYScale() {
+			return yScaleField.getData();
+		}
+
+		public T_TENSOR getYZeroPoint() {
+			return yZeroPointField.getData();
+		}
+
+	}
+
+	/**
+	 * Outputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QLinearMatMulOutputV10<T_TENSOR> extends SingleOperatorOutputs<T_TENSOR> {
+
+		public QLinearMatMulOutputV10(T_TENSOR output) {
+			super(output);
+		}
+
+		@Override
+		public TypeConstraint getTypeConstraint() {
+			return TPYE_CONSTRAINT_T3;
+		}
+
+	}
+
+}
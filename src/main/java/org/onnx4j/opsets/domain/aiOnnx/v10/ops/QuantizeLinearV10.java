@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.opsets.domain.aiOnnx.v10.ops;
+
+import org.onnx4j.Inputs;
+import org.onnx4j.model.graph.Node;
+import org.onnx4j.opsets.domain.aiOnnx.v10.AiOnnxOperatorV10;
+import org.onnx4j.opsets.operator.Field.TypeConstraint;
+import org.onnx4j.opsets.operator.OperatorInputs;
+import org.onnx4j.opsets.operator.fields.InputField;
+import org.onnx4j.opsets.operator.output.SingleOperatorOutputs;
+import org.onnx4j.tensor.DataType;
+
+/**
+ * QuantizeLinear Operator v10
+ * 
+ * <p>
+ * The linear per-tensor/layer quantization operator. It consumes a high
+ * precision tensor, a scale, a zero point to compute the low precision /
+ * quantized tensor. The quantization formula is y = saturate ((x / y_scale) +
+ * y_zero_point). For saturation, it saturates to [0, 255] if it's uint8, or
+ * [-128, 127] if it's int8. For (x / y_scale), it's rounding to nearest ties
+ * to even.
+ * 
+ * @author HarryLee {@literal <formaten@qq.com>}
+ * @version 10
+ * @since Version 10 of the default ONNX operator set
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Changelog.md#QuantizeLinear-10">
+ *      ONNX.Changelog.md</a>
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/Operators.md#QuantizeLinear">
+ *      ONNX.Operators.md</a>
+ * @see org.onnx4j.tensor.QuantizationParams
+ */
+public interface QuantizeLinearV10 extends AiOnnxOperatorV10 {
+
+	public static final String OP_TYPE = "QuantizeLinear";
+
+	/**
+	 * Constrain 'x' to float or int32 tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T1 = new TypeConstraint(DataType.FLOAT, DataType.INT32);
+
+	/**
+	 * Constrain 'y_zero_point' and 'y' to 8-bit integer tensor.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_T2 = new TypeConstraint(DataType.INT8, DataType.UINT8);
+
+	/**
+	 * Constrain 'y_scale' to float scalar.
+	 */
+	public static final TypeConstraint TPYE_CONSTRAINT_SCALE = new TypeConstraint(DataType.FLOAT);
+
+	/**
+	 * Executes operator
+	 * 
+	 * @param x
+	 *            N-D full precision Input tensor to be quantized.
+	 * @param yScale
+	 *            Scale for doing quantization to get 'y'. It's a scalar, which
+	 *            means a per-tensor/layer quantization.
+	 * @param yZeroPoint
+	 *            Zero point for doing quantization to get 'y'. It's a scalar,
+	 *            which means a per-tensor/layer quantization. Default value is
+	 *            uint8 typed 0 if it's not specified.
+	 * @return N-D quantized output tensor. It has same shape as input 'x'.
+	 */
+	//public abstract T_TENSOR quantizeLinear(T_TENSOR x, T_TENSOR yScale, T_TENSOR yZeroPoint);
+
+	@Override
+	public default OperatorStatus getStatus() {
+		return OperatorStatus.STABLE;
+	}
+
+	@Override
+	public default String getOpType() {
+		return OP_TYPE;
+	}
+
+	/**
+	 * Inputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QuantizeLinearInputsV10<T_TENSOR> extends OperatorInputs<T_TENSOR> {
+
+		private InputField<T_TENSOR> xField;
+
+		private InputField<T_TENSOR> yScaleField;
+
+		private InputField<T_TENSOR> yZeroPointField;
+
+		public QuantizeLinearInputsV10(Node node, Inputs inputs) {
+			super(node, inputs);
+
+			xField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T1, super.inputArray[0]);
+
+			yScaleField = new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_SCALE, super.inputArray[1]);
+
+			//
+			// optional, uint8 typed 0 by default
+			//
+			yZeroPointField = super.inputArray.length > 2
+					? new InputField<T_TENSOR>(this, TPYE_CONSTRAINT_T2, super.inputArray[2]) : null;
+		}
+
+		public T_TENSOR getX() {
+			return xField.getData();
+		}
+
+		public T_TENSOR getYScale() {
+			return yScaleField.getData();
+		}
+
+		public T_TENSOR getYZeroPoint() {
+			return (yZeroPointField == null) ? null : yZeroPointField.getData();
+		}
+
+	}
+
+	/**
+	 * Outputs for operator execution (forward & backward)
+	 *
+	 * @param <T_TENSOR>
+	 *            The backend tensor object.
+	 */
+	class QuantizeLinearOutputV10<T_TENSOR> extends SingleOperatorOutputs<T_TENSOR> {
+
+		public QuantizeLinearOutputV10(T_TENSOR output) {
+			super(output);
+		}
+
+		@Override
+		public TypeConstraint getTypeConstraint() {
+			return TPYE_CONSTRAINT_T2;
+		}
+
+	}
+
+}
@@ -19,17 +19,39 @@ package org.onnx4j.opsets.operator.fields;
 import org.onnx4j.Inputs.Input;
 import org.onnx4j.opsets.operator.Field;
 import org.onnx4j.opsets.operator.OperatorInputs;
+import org.onnx4j.tensor.SparseTensor;
 
 public class InputField<T_TENSOR> extends Field<T_TENSOR> {
 
 	private TypeConstraint constraint;
 
+	//
+	// 稀疏的输入(如稀疏常量)不转换为T_TENSOR，此时getData()返回null
+	//
+	private SparseTensor sparseData;
+
+	/**
+	 * @return field为稀疏的InputField时返回其SparseTensor，否则返回null
+	 */
+	public static SparseTensor sparseOf(Field<?> field) {
+		return (field instanceof InputField) ? ((InputField<?>) field).sparseData : null;
+	}
+
 	public InputField(OperatorInputs<T_TENSOR> operatorInputs, TypeConstraint constraint, Input input) {
-		super(input.getTensor());
+		super(input.getTensor() instanceof SparseTensor ? null : input.<T_TENSOR>getTensor());
+		this.sparseData = input.getTensor() instanceof SparseTensor ? input.getTensor() : null;
 		this.constraint = constraint;
 		operatorInputs.addInputField(this);
 	}
 
+	public boolean isSparse() {
+		return this.sparseData != null;
+	}
+
+	public SparseTensor getSparseData() {
+		return sparseData;
+	}
+
 	public TypeConstraint getConstraints() {
 		return constraint;
 	}
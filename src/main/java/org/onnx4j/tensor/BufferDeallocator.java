@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+
+import org.onnx4j.utils.DirectBufferDealloc;
+
+/**
+ * Tensor关闭时释放其数据所占用的内存
+ *
+ * @see org.onnx4j.Tensor#close()
+ */
+@FunctionalInterface
+public interface BufferDeallocator {
+
+	/**
+	 * 立即释放由{@link ByteBuffer#allocateDirect(int)}分配的内存，不等待GC
+	 */
+	public static final BufferDeallocator DIRECT = DirectBufferDealloc::deallocateDirectBuffer;
+
+	/**
+	 * 不做处理，用于堆内存以及不归Tensor所有的内存(如内存映射的模型文件的切片)
+	 */
+	public static final BufferDeallocator NONE = buffer -> true;
+
+	/**
+	 * @param buffer
+	 *            已关闭的Tensor的数据
+	 * @return 无法释放时返回false
+	 */
+	public boolean deallocate(ByteBuffer buffer);
+
+	public static BufferDeallocator defaultOf(ByteBuffer buffer) {
+		return (buffer != null && buffer.isDirect()) ? DIRECT : NONE;
+	}
+
+}
@@ -0,0 +1,466 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import org.onnx4j.utils.BufferUtil;
+import org.onnx4j.utils.DirectBufferDealloc;
+
+/**
+ * {@link org.onnx4j.Tensor.AllocationMode#POOLED}所使用的堆外内存池
+ * 
+ * 生命周期较短的Tensor(如每次推理的中间结果)从池中获取内存，避免每次都调用{@link ByteBuffer#allocateDirect(int)}并通过反射释放。
+ * <p>
+ * 请求的大小向上取整为2的幂次的size class，同一class的chunk从较大的slab中切分；
+ * 由{@link org.onnx4j.Tensor#close()}释放后先放入当前线程的缓存，缓存已满时再放入该class共享的空闲列表。
+ * 超过最大class的请求直接分配，关闭时照常释放。
+ * <p>
+ * 指定{@link MemoryBudget}时，每个chunk按其size class的字节数计入发起分配的预算，Tensor关闭时归还，重用的chunk同样计入；
+ * 直接分配的请求在Tensor关闭前计入预算。slab不会归还，由内存池自身的slab预算计入，该预算默认没有上级预算，
+ * 因此不会与各模型所计入的chunk重复计入全局预算。
+ * <p>
+ * 与{@link ByteBuffer#allocateDirect(int)}不同，池中的内存<b>不会</b>清零，重用的chunk中保留着上一个Tensor写入的内容。
+ * slab不会被主动归还给系统，其中的chunk均不可达后由GC回收。
+ */
+public class BufferPool {
+
+	public static final int MIN_CHUNK_SIZE = 64;
+
+	public static final int DEFAULT_MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+	public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 32;
+
+	/**
+	 * slab从页边界开始，因此size class为c的chunk按min(c, SLAB_ALIGNMENT)字节对齐
+	 */
+	public static final int SLAB_ALIGNMENT = 4096;
+
+	private static final BufferPool DEFAULT = new BufferPool(DEFAULT_MAX_CHUNK_SIZE, DEFAULT_SLAB_SIZE,
+			DEFAULT_THREAD_CACHE_SIZE);
+
+	/**
+	 * @return {@link org.onnx4j.Tensor.Options}未指定内存池时使用
+	 */
+	public static BufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	private final SizeClass[] sizeClasses;
+	private final int slabSize;
+	private final int threadCacheSize;
+	private final MemoryBudget slabBudget;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder unpooled = new LongAdder();
+	private final AtomicLong slabBytes = new AtomicLong();
+	private final AtomicLong usedBytes = new AtomicLong();
+	private final AtomicLong requestedBytes = new AtomicLong();
+
+	/**
+	 * @param maxChunkSize
+	 *            由内存池分配的最大字节数，向上取整为2的幂次
+	 * @param slabSize
+	 *            每个size class一次分配的字节数
+	 * @param threadCacheSize
+	 *            每个线程、每个size class缓存的chunk数量，为0时不使用线程缓存
+	 */
+	public BufferPool(int maxChunkSize, int slabSize, int threadCacheSize) {
+		this(maxChunkSize, slabSize, threadCacheSize, null);
+	}
+
+	/**
+	 * @param maxChunkSize
+	 *            由内存池分配的最大字节数，向上取整为2的幂次
+	 * @param slabSize
+	 *            每个size class一次分配的字节数
+	 * @param threadCacheSize
+	 *            每个线程、每个size class缓存的chunk数量，为0时不使用线程缓存
+	 * @param slabBudget
+	 *            计入所有slab的预算，限制内存池的总大小；为null时使用不限大小且没有上级预算的预算
+	 */
+	public BufferPool(int maxChunkSize, int slabSize, int threadCacheSize, MemoryBudget slabBudget) {
+		if (maxChunkSize < MIN_CHUNK_SIZE || maxChunkSize > (1 << 30))
+			throw new IllegalArgumentException(String.format("Max chunk size %s is out of [%s, %s]", maxChunkSize,
+					MIN_CHUNK_SIZE, 1 << 30));
+		if (slabSize <= 0 || threadCacheSize < 0)
+			throw new IllegalArgumentException(
+					String.format("Illegal slab size %s or thread cache size %s", slabSize, threadCacheSize));
+
+		int classCount = BufferPool.classIndex(maxChunkSize) + 1;
+		this.sizeClasses = new SizeClass[classCount];
+		for (int n = 0; n < classCount; n++) {
+			this.sizeClasses[n] = new SizeClass(MIN_CHUNK_SIZE << n);
+		}
+		this.slabSize = slabSize;
+		this.threadCacheSize = threadCacheSize;
+		this.slabBudget = (slabBudget != null) ? slabBudget
+				: new MemoryBudget(String.format("pool@%x/slabs", System.identityHashCode(this)), null,
+						Long.MAX_VALUE, MemoryBudget.Policy.FAIL, 0L);
+	}
+
+	private static int classIndex(int size) {
+		if (size <= MIN_CHUNK_SIZE)
+			return 0;
+
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * 从池中取出恰好size字节的内存
+	 * 
+	 * @param size
+	 * @return 大端字节序的内存，由返回的deallocator归还到池中
+	 */
+	public Allocation allocate(int size) {
+		return this.allocate(size, 0);
+	}
+
+	/**
+	 * 从池中取出恰好size字节、按alignment对齐的内存，对齐要求超过{@link #SLAB_ALIGNMENT}时不经过内存池
+	 * 
+	 * @param size
+	 * @param alignment
+	 *            2的幂次，为0时不要求对齐
+	 * @return 大端字节序的内存，由返回的deallocator归还到池中
+	 */
+	public Allocation allocate(int size, int alignment) {
+		return this.allocate(size, alignment, null);
+	}
+
+	/**
+	 * 从池中取出恰好size字节、按alignment对齐的内存，并将chunk的字节数计入budget直至归还
+	 * 
+	 * @param size
+	 * @param alignment
+	 *            2的幂次，为0时不要求对齐
+	 * @param budget
+	 *            为null时不计入预算
+	 * @return 大端字节序的内存，由返回的deallocator归还到池中；budget或slab预算的策略为SPILL且已超出时返回堆内存
+	 */
+	public Allocation allocate(int size, int alignment, MemoryBudget budget) {
+		if (size <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+
+		//
+		// chunk按自身的大小对齐，选取不小于alignment的class即可
+		//
+		int index = BufferPool.classIndex(Math.max(size, alignment));
+		if (index >= this.sizeClasses.length || alignment > SLAB_ALIGNMENT) {
+			this.unpooled.increment();
+			return Allocation.charged(budget, size, unpooledSize -> {
+				if (alignment > 1)
+					return Allocation.aligned(unpooledSize, alignment);
+
+				return new Allocation(ByteBuffer.allocateDirect(unpooledSize), BufferDeallocator.DIRECT);
+			});
+		}
+
+		SizeClass sizeClass = this.sizeClasses[index];
+		return Allocation.charged(budget, sizeClass.chunkSize, chunkSize -> this.allocate(sizeClass, size));
+	}
+
+	private Allocation allocate(SizeClass sizeClass, int size) {
+		ByteBuffer chunk = null;
+		ArrayDeque<ByteBuffer> threadCache = sizeClass.threadCache.get();
+		if (threadCache != null)
+			chunk = threadCache.pollLast();
+		if (chunk == null)
+			chunk = sizeClass.free.poll();
+
+		if (chunk != null) {
+			this.hits.increment();
+		} else {
+			this.misses.increment();
+			chunk = sizeClass.carve();
+			if (chunk == null)
+				return new Allocation(ByteBuffer.allocate(size), BufferDeallocator.NONE);
+		}
+		this.usedBytes.addAndGet(sizeClass.chunkSize);
+		this.requestedBytes.addAndGet(size);
+
+		ByteBuffer buffer = chunk.duplicate();
+		buffer.limit(size);
+		ByteBuffer pooledChunk = chunk;
+		Thread owner = Thread.currentThread();
+		return new Allocation(buffer.slice(), released -> this.release(pooledChunk, sizeClass, size, owner));
+	}
+
+	/**
+	 * @param owner
+	 *            从池中取出chunk的线程，由其他线程(如{@link org.onnx4j.utils.ResourceCleaner}的清理线程)释放的chunk放入共享的空闲列表，
+	 *            以便被任意线程重用
+	 */
+	private boolean release(ByteBuffer chunk, SizeClass sizeClass, int size, Thread owner) {
+		this.usedBytes.addAndGet(-sizeClass.chunkSize);
+		this.requestedBytes.addAndGet(-size);
+
+		if (this.threadCacheSize > 0 && Thread.currentThread() == owner) {
+			ArrayDeque<ByteBuffer> threadCache = sizeClass.threadCache.get();
+			if (threadCache == null) {
+				threadCache = new ArrayDeque<ByteBuffer>(this.threadCacheSize);
+				sizeClass.threadCache.set(threadCache);
+			}
+
+			if (threadCache.size() < this.threadCacheSize) {
+				threadCache.addLast(chunk);
+				return true;
+			}
+		}
+
+		sizeClass.free.offer(chunk);
+		return true;
+	}
+
+	/**
+	 * @return 由已释放的chunk满足的请求次数
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return 从slab中切分新chunk的请求次数
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return 超过最大size class而直接分配的请求次数
+	 */
+	public long getUnpooled() {
+		return this.unpooled.sum();
+	}
+
+	/**
+	 * @return 计入所有slab的预算
+	 */
+	public MemoryBudget getSlabBudget() {
+		return this.slabBudget;
+	}
+
+	/**
+	 * @return 迄今为止分配的所有slab的字节数
+	 */
+	public long getSlabBytes() {
+		return this.slabBytes.get();
+	}
+
+	/**
+	 * @return 未关闭的Tensor持有的chunk的字节数
+	 */
+	public long getUsedBytes() {
+		return this.usedBytes.get();
+	}
+
+	/**
+	 * 使用中的chunk的内部碎片率，即向上取整为size class而浪费的字节数所占的比例
+	 * 
+	 * @return [0, 1)之间的比例
+	 */
+	public double getFragmentation() {
+		long usedBytes = this.usedBytes.get();
+		if (usedBytes <= 0)
+			return 0d;
+
+		return 1d - (double) this.requestedBytes.get() / usedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "BufferPool [hits=" + getHits() + ", misses=" + getMisses() + ", unpooled=" + getUnpooled()
+				+ ", slabBytes=" + getSlabBytes() + ", usedBytes=" + getUsedBytes() + ", fragmentation="
+				+ String.format("%.3f", getFragmentation()) + "]";
+	}
+
+	/**
+	 * 分配的内存及其释放方式
+	 */
+	public static class Allocation {
+
+		private final ByteBuffer buffer;
+		private final BufferDeallocator deallocator;
+
+		Allocation(ByteBuffer buffer, BufferDeallocator deallocator) {
+			this.buffer = buffer;
+			this.deallocator = deallocator;
+		}
+
+		/**
+		 * 不经过内存池分配对齐的堆外内存，释放时释放对齐切片所属的整块内存
+		 */
+		static Allocation aligned(int size, int alignment) {
+			if (alignment <= 0 || (alignment & (alignment - 1)) != 0)
+				throw new IllegalArgumentException("Must be a power of 2: alignment=" + alignment);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(size + alignment - 1);
+			return new Allocation(BufferUtil.alignedSlice(buffer, size, alignment),
+					aligned -> DirectBufferDealloc.deallocateDirectBuffer(buffer));
+		}
+
+		/**
+		 * 将size计入预算，预算的策略为SPILL且已超出时改在堆上分配
+		 * 
+		 * @param allocator
+		 *            计入预算后分配堆外内存
+		 */
+		static Allocation charged(MemoryBudget budget, int size, IntFunction<Allocation> allocator) {
+			if (budget == null)
+				return allocator.apply(size);
+
+			if (budget.reserve(size) == false)
+				return new Allocation(ByteBuffer.allocate(size), BufferDeallocator.NONE);
+
+			Allocation allocation;
+			try {
+				allocation = allocator.apply(size);
+			} catch (RuntimeException | Error e) {
+				budget.release(size);
+				throw e;
+			}
+
+			//
+			// 内存池的slab预算已超出而改在堆上分配时，堆内存不计入预算
+			//
+			if (allocation.buffer.isDirect() == false) {
+				budget.release(size);
+				return allocation;
+			}
+
+			return new Allocation(allocation.buffer, new ChargedDeallocator(allocation.deallocator, budget, size));
+		}
+
+		public ByteBuffer getBuffer() {
+			return buffer;
+		}
+
+		public BufferDeallocator getDeallocator() {
+			return deallocator;
+		}
+
+	}
+
+	/**
+	 * 释放内存后归还其计入预算的字节数，计入的预算可由{@link #transferTo(MemoryBudget)}改变
+	 */
+	static class ChargedDeallocator implements BufferDeallocator {
+
+		private final BufferDeallocator deallocator;
+		private final int size;
+		private volatile MemoryBudget budget;
+
+		private ChargedDeallocator(BufferDeallocator deallocator, MemoryBudget budget, int size) {
+			this.deallocator = deallocator;
+			this.budget = budget;
+			this.size = size;
+		}
+
+		/**
+		 * 改由target计入，调用者须保证此时没有其他线程释放该内存
+		 */
+		void transferTo(MemoryBudget target) {
+			MemoryBudget budget = this.budget;
+			if (budget == target)
+				return;
+
+			budget.transfer(this.size, target);
+			this.budget = target;
+		}
+
+		@Override
+		public boolean deallocate(ByteBuffer buffer) {
+			try {
+				return this.deallocator.deallocate(buffer);
+			} finally {
+				this.budget.release(this.size);
+			}
+		}
+
+	}
+
+	private class SizeClass {
+
+		private final int chunkSize;
+		private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+		private final ThreadLocal<ArrayDeque<ByteBuffer>> threadCache = new ThreadLocal<ArrayDeque<ByteBuffer>>();
+		private ByteBuffer slab;
+
+		private SizeClass(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		/**
+		 * 需要新的slab时，在锁外为其计入slab预算并分配，预算的等待不会阻塞该class中的其他分配
+		 * 
+		 * @return slab预算的策略为SPILL且无法为新的slab计入预算时返回null
+		 */
+		private ByteBuffer carve() {
+			synchronized (this) {
+				if (this.slab != null && this.slab.remaining() >= this.chunkSize)
+					return this.cut(this.slab);
+			}
+
+			int size = Math.max(this.chunkSize, BufferPool.this.slabSize / this.chunkSize * this.chunkSize);
+			MemoryBudget slabBudget = BufferPool.this.slabBudget;
+			if (slabBudget.reserve(size) == false)
+				return null;
+
+			ByteBuffer slab;
+			try {
+				slab = BufferUtil.allocateDirectAligned(size, SLAB_ALIGNMENT);
+			} catch (RuntimeException | Error e) {
+				slabBudget.release(size);
+				throw e;
+			}
+			BufferPool.this.slabBytes.addAndGet(size);
+
+			synchronized (this) {
+				if (this.slab == null || this.slab.remaining() < this.chunkSize) {
+					this.slab = slab;
+					return this.cut(slab);
+				}
+			}
+
+			//
+			// 其他线程已同时换上了新的slab，此slab切分后全部放入空闲列表
+			//
+			ByteBuffer chunk = this.cut(slab);
+			while (slab.remaining() >= this.chunkSize) {
+				this.free.offer(this.cut(slab));
+			}
+			return chunk;
+		}
+
+		private ByteBuffer cut(ByteBuffer slab) {
+			ByteBuffer chunk = slab.duplicate();
+			chunk.limit(chunk.position() + this.chunkSize);
+			slab.position(chunk.limit());
+			return chunk.slice();
+		}
+
+	}
+
+}
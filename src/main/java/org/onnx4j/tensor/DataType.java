@@ -28,15 +28,18 @@ public enum DataType {
 	INT16(5, Short.class, Short.BYTES),
 	INT32(6, Integer.class, Integer.BYTES),
 	INT64(7, Long.class, Long.BYTES),
-	FLOAT16(8, Float.class, Float.BYTES),
+	FLOAT16(8, Float.class, Short.BYTES),
 	FLOAT(9, Float.class, Float.BYTES),
 	DOUBLE(10, Double.class, Double.BYTES),
-	STRING(11, String.class, 3), // 3 bytes per UTF-8 String
+	STRING(11, String.class, -1), // variable-length, see StringData
 	BOOL(12, Byte.class, Byte.BYTES),
 	
-	// NOT IMPLEMENT
-	COMPLEX64(13, Void.class, -1),
-	COMPLEX128(14, Void.class, -1);
+	// storage only, pairs of (real, imaginary)
+	COMPLEX64(13, Void.class, 2 * Float.BYTES),
+	COMPLEX128(14, Void.class, 2 * Double.BYTES),
+	
+	// upper 16 bits of a float, see HalfFloatUtil; storage only, operators do not accept it yet
+	BFLOAT16(15, Float.class, Short.BYTES);
 	
 	private int code;
 	private int unitSize;
@@ -54,6 +57,24 @@ public enum DataType {
 		return this.unitSize;
 	}
 	
+	/**
+	 * @return true if elements have no fixed size (STRING)
+	 */
+	public boolean isVariableLength() {
+		return this.unitSize < 0;
+	}
+	
+	/**
+	 * size of the scalar which byte order applies to, e.g. 4 for COMPLEX64
+	 * 
+	 * @return
+	 */
+	public int getComponentSize() {
+		if (DataType.COMPLEX64.equals(this) || DataType.COMPLEX128.equals(this))
+			return this.unitSize / 2;
+		return this.unitSize;
+	}
+	
 	DataType(int code, Class<?> protoType, int typeSize) {
 		this.code = code;
 		this.protoType = protoType;
@@ -75,6 +96,9 @@ public enum DataType {
 			case TensorProto.DataType.DOUBLE_VALUE: return DataType.DOUBLE;
 			case TensorProto.DataType.STRING_VALUE: return DataType.STRING;
 			case TensorProto.DataType.BOOL_VALUE: return DataType.BOOL;
+			case TensorProto.DataType.COMPLEX64_VALUE: return DataType.COMPLEX64;
+			case TensorProto.DataType.COMPLEX128_VALUE: return DataType.COMPLEX128;
+			case TensorProto.DataType.BFLOAT16_VALUE: return DataType.BFLOAT16;
 			default: return null;
 		}
 	}
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.onnx4j.exceptions.ModelException;
+import org.onnx4j.exceptions.ModelException.ModelExceptionEnums;
+import org.onnx4j.prototypes.OnnxProto3.StringStringEntryProto;
+import org.onnx4j.prototypes.OnnxProto3.TensorProto;
+
+/**
+ * 数据保存在模型文件之外(data_location=EXTERNAL)的Tensor的位置，超过2GB的模型导出时使用
+ *
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/ExternalData.md">ONNX.
+ *      ExternalData.md</a>
+ */
+public final class ExternalData {
+
+	public static final String KEY_LOCATION = "location";
+	public static final String KEY_OFFSET = "offset";
+	public static final String KEY_LENGTH = "length";
+
+	private String tensorName;
+	private String location;
+	private long offset = 0L;
+	private long length = -1L;
+
+	public static boolean isExternal(TensorProto tensorProto) {
+		return tensorProto.getDataLocation() == TensorProto.DataLocation.EXTERNAL;
+	}
+
+	public static ExternalData from(TensorProto tensorProto) {
+		ExternalData externalData = new ExternalData(tensorProto.getName());
+		for (StringStringEntryProto entry : tensorProto.getExternalDataList()) {
+			if (KEY_LOCATION.equals(entry.getKey()))
+				externalData.location = entry.getValue();
+			else if (KEY_OFFSET.equals(entry.getKey()))
+				externalData.offset = Long.parseLong(entry.getValue());
+			else if (KEY_LENGTH.equals(entry.getKey()))
+				externalData.length = Long.parseLong(entry.getValue());
+		}
+
+		if (externalData.location == null || externalData.location.isEmpty())
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, tensorProto.getName(),
+					"no location specified");
+
+		return externalData;
+	}
+
+	private ExternalData(String tensorName) {
+		this.tensorName = tensorName;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return 字节数，-1表示直至文件末尾
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * 以只读方式映射所引用的区域，由操作系统在首次访问时加载页面，从未访问的权重不占用内存；
+	 * 超过{@link Integer#MAX_VALUE}字节时按{@link TensorStorage#DEFAULT_CHUNK_SIZE}分块映射
+	 *
+	 * @param baseDir
+	 *            模型文件所在目录，location相对于此目录
+	 * @return 小端字节序的映射区域，由{@link TensorStorage#release()}释放
+	 */
+	public TensorStorage mapStorage(Path baseDir) {
+		Path dataPath = this.resolve(baseDir);
+		try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+			long mappedLength = (this.length >= 0) ? this.length : channel.size() - this.offset;
+			if (this.offset < 0 || mappedLength < 0 || this.offset + mappedLength > channel.size())
+				throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+						String.format("range [%s, +%s) is out of \"%s\"", this.offset, mappedLength, dataPath));
+
+			return TensorStorage.map(channel, this.offset, mappedLength);
+		} catch (IOException e) {
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					e.toString());
+		}
+	}
+
+	/**
+	 * 以模型所在目录解析location，location必须为相对路径且不能超出该目录，避免模型通过绝对路径或".."映射主机上的任意文件
+	 */
+	private Path resolve(Path baseDir) {
+		if (baseDir == null)
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					"the directory of model is unknown");
+
+		Path location;
+		try {
+			location = baseDir.getFileSystem().getPath(this.location);
+		} catch (InvalidPathException e) {
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					String.format("location \"%s\" is not a valid path", this.location));
+		}
+		if (location.isAbsolute() || location.getRoot() != null)
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					String.format("location \"%s\" must be relative to the directory of model", this.location));
+
+		Path modelDir = baseDir.toAbsolutePath().normalize();
+		Path dataPath = modelDir.resolve(location).normalize();
+		if (dataPath.startsWith(modelDir) == false || dataPath.equals(modelDir))
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					String.format("location \"%s\" is out of the directory of model", this.location));
+
+		// location中的符号链接可能指向目录之外，按真实路径再检查一次并映射该真实路径
+		Path realDataPath;
+		try {
+			Path realModelDir = modelDir.toRealPath();
+			realDataPath = dataPath.toRealPath();
+			if (realDataPath.startsWith(realModelDir) == false || realDataPath.equals(realModelDir))
+				throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+						String.format("location \"%s\" is out of the directory of model", this.location));
+		} catch (IOException e) {
+			throw new ModelException(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE, this.tensorName,
+					e.toString());
+		}
+
+		return realDataPath;
+	}
+
+	@Override
+	public String toString() {
+		return "ExternalData [location=" + location + ", offset=" + offset + ", length=" + length + "]";
+	}
+
+}
@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onnx4j.exceptions.TensorException;
+import org.onnx4j.exceptions.TensorException.NodeExceptionEnums;
+
+/**
+ * Tensor堆外内存的预算
+ * 
+ * 同一进程中部署多个模型时，按预算限制各自占用的堆外内存，避免触及-XX:MaxDirectMemorySize而导致{@link OutOfMemoryError}，
+ * 或由{@link java.nio.ByteBuffer#allocateDirect(int)}触发的Full GC。
+ * <p>
+ * 预算组成一棵树：为模型创建的预算与其父预算(默认为{@link #getGlobal() 全局预算})同时计数，只有在直至根节点的每个预算中都不超出时才能分配，
+ * 否则由发起分配的预算的{@link Policy}决定如何处理。
+ * <p>
+ * {@link org.onnx4j.tensor.TensorBuilder}分配direct或pooled内存时计入，Tensor关闭时归还。
+ * 堆内存以及零拷贝引用映射文件的Tensor不计入；{@link BufferPool}中的chunk在Tensor持有期间按其size class的字节数计入，
+ * 池中的slab则计入内存池自身的{@link BufferPool#getSlabBudget() slab预算}。
+ */
+public class MemoryBudget implements MemoryMetrics {
+
+	public enum Policy {
+
+		/**
+		 * 等待其他内存释放，直至超时
+		 */
+		BLOCK,
+
+		/**
+		 * 立即抛出异常
+		 */
+		FAIL,
+
+		/**
+		 * 改在Java堆上分配
+		 */
+		SPILL
+
+	}
+
+	private static final MemoryBudget GLOBAL = new MemoryBudget("global", null, Long.MAX_VALUE, Policy.FAIL, 0L);
+
+	/**
+	 * @return 所有预算的根节点，调用{@link #setLimitBytes(long)}之前不限制；{@link org.onnx4j.Tensor.Options}未指定预算时使用
+	 */
+	public static MemoryBudget getGlobal() {
+		return GLOBAL;
+	}
+
+	private final String name;
+	private final MemoryBudget parent;
+	private final Policy policy;
+	private final long timeoutMillis;
+
+	//
+	// 同一棵树中的预算共享根节点的monitor，任意位置释放内存都能唤醒所有等待者
+	//
+	private final Object monitor;
+	private final AtomicLong waiters;
+
+	private volatile long limitBytes;
+	private final AtomicLong usedBytes = new AtomicLong();
+	private final AtomicLong highWaterMark = new AtomicLong();
+	private final LongAdder blocked = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder spilled = new LongAdder();
+
+	/**
+	 * 在全局预算之下创建预算，如为某个模型单独限制
+	 * 
+	 * @param name
+	 * @param limitBytes
+	 * @param policy
+	 * @param timeoutMillis
+	 *            {@link Policy#BLOCK}的等待时间，0表示一直等待
+	 */
+	public MemoryBudget(String name, long limitBytes, Policy policy, long timeoutMillis) {
+		this(name, GLOBAL, limitBytes, policy, timeoutMillis);
+	}
+
+	public MemoryBudget(String name, MemoryBudget parent, long limitBytes, Policy policy, long timeoutMillis) {
+		if (limitBytes <= 0 || timeoutMillis < 0)
+			throw new IllegalArgumentException(
+					String.format("Illegal limit %s bytes or timeout %s ms", limitBytes, timeoutMillis));
+		if (policy == null)
+			throw new IllegalArgumentException("Argument named \"policy\" is null");
+
+		this.name = name;
+		this.parent = parent;
+		this.limitBytes = limitBytes;
+		this.policy = policy;
+		this.timeoutMillis = timeoutMillis;
+		this.monitor = (parent != null) ? parent.monitor : new Object();
+		this.waiters = (parent != null) ? parent.waiters : new AtomicLong();
+	}
+
+	/**
+	 * 将bytes同时计入此预算及其所有上级预算
+	 * 
+	 * @param bytes
+	 * @return 超出预算且策略为{@link Policy#SPILL}时返回false，调用者应改在堆上分配
+	 * @throws TensorException
+	 *             超出预算且策略为{@link Policy#FAIL}，或{@link Policy#BLOCK}等待超时
+	 */
+	public boolean reserve(long bytes) {
+		if (this.tryReserve(bytes))
+			return true;
+
+		if (Policy.SPILL == this.policy) {
+			this.spilled.increment();
+			return false;
+		}
+
+		if (Policy.FAIL == this.policy || this.exceedsLimit(bytes))
+			throw this.rejectOf(bytes, NodeExceptionEnums.MEMORY_BUDGET_EXCEEDED, this.name, bytes);
+
+		this.blocked.increment();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+		synchronized (this.monitor) {
+			this.waiters.incrementAndGet();
+			try {
+				while (this.tryReserve(bytes) == false) {
+					long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (this.timeoutMillis > 0 && remaining <= 0)
+						throw this.rejectOf(bytes, NodeExceptionEnums.MEMORY_BUDGET_TIMEOUT, this.name, bytes,
+								this.timeoutMillis);
+
+					this.monitor.wait((this.timeoutMillis > 0) ? remaining : 0L);
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw this.rejectOf(bytes, NodeExceptionEnums.MEMORY_BUDGET_TIMEOUT, this.name, bytes,
+						this.timeoutMillis);
+			} finally {
+				this.waiters.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 归还由{@link #reserve(long)}计入的字节数
+	 * 
+	 * @param bytes
+	 */
+	public void release(long bytes) {
+		for (MemoryBudget budget = this; budget != null; budget = budget.parent) {
+			budget.usedBytes.addAndGet(-bytes);
+		}
+
+		if (this.waiters.get() > 0) {
+			synchronized (this.monitor) {
+				this.monitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * 将已计入此预算的bytes改为计入target，如模型之间共享的数据改由{@link SharedTensorStore}计入。
+	 * 内存已经分配，因此不检查target的上限；二者共同的上级预算保持不变
+	 * 
+	 * @param bytes
+	 * @param target
+	 */
+	void transfer(long bytes, MemoryBudget target) {
+		for (MemoryBudget budget = target; budget != null; budget = budget.parent) {
+			if (this.isDescendantOf(budget) == false)
+				budget.updateHighWaterMark(budget.usedBytes.addAndGet(bytes));
+		}
+		for (MemoryBudget budget = this; budget != null; budget = budget.parent) {
+			if (target.isDescendantOf(budget) == false)
+				budget.usedBytes.addAndGet(-bytes);
+		}
+
+		if (this.waiters.get() > 0) {
+			synchronized (this.monitor) {
+				this.monitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @return ancestor为此预算本身或其上级预算时返回true
+	 */
+	private boolean isDescendantOf(MemoryBudget ancestor) {
+		for (MemoryBudget budget = this; budget != null; budget = budget.parent) {
+			if (budget == ancestor)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean tryReserve(long bytes) {
+		for (MemoryBudget budget = this; budget != null; budget = budget.parent) {
+			if (budget.tryAdd(bytes) == false) {
+				for (MemoryBudget charged = this; charged != budget; charged = charged.parent) {
+					charged.usedBytes.addAndGet(-bytes);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean tryAdd(long bytes) {
+		long used;
+		do {
+			used = this.usedBytes.get();
+			if (bytes > this.limitBytes - used)
+				return false;
+		} while (this.usedBytes.compareAndSet(used, used + bytes) == false);
+
+		this.updateHighWaterMark(used + bytes);
+		return true;
+	}
+
+	private void updateHighWaterMark(long used) {
+		long highWaterMark = this.highWaterMark.get();
+		while (highWaterMark < used && this.highWaterMark.compareAndSet(highWaterMark, used) == false) {
+			highWaterMark = this.highWaterMark.get();
+		}
+	}
+
+	/**
+	 * @return 超出某个预算的上限，等待也无法满足时返回true
+	 */
+	private boolean exceedsLimit(long bytes) {
+		for (MemoryBudget budget = this; budget != null; budget = budget.parent) {
+			if (bytes > budget.limitBytes)
+				return true;
+		}
+		return false;
+	}
+
+	private TensorException rejectOf(long bytes, NodeExceptionEnums exceptionEnum, Object... args) {
+		this.rejected.increment();
+		return new TensorException(exceptionEnum, args);
+	}
+
+	/**
+	 * 修改上限(如在启动时设置全局预算)，低于已使用的字节数时只影响之后的分配
+	 * 
+	 * @param limitBytes
+	 */
+	public void setLimitBytes(long limitBytes) {
+		if (limitBytes <= 0)
+			throw new IllegalArgumentException(String.format("Illegal limit %s bytes", limitBytes));
+
+		this.limitBytes = limitBytes;
+		synchronized (this.monitor) {
+			this.monitor.notifyAll();
+		}
+	}
+
+	public MemoryBudget getParent() {
+		return this.parent;
+	}
+
+	public Policy getPolicy() {
+		return this.policy;
+	}
+
+	public long getTimeoutMillis() {
+		return this.timeoutMillis;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public long getUsedBytes() {
+		return this.usedBytes.get();
+	}
+
+	@Override
+	public long getHighWaterMark() {
+		return this.highWaterMark.get();
+	}
+
+	@Override
+	public long getLimitBytes() {
+		return this.limitBytes;
+	}
+
+	@Override
+	public long getBlockedCount() {
+		return this.blocked.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return this.rejected.sum();
+	}
+
+	@Override
+	public long getSpilledCount() {
+		return this.spilled.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "MemoryBudget [name=" + getName() + ", usedBytes=" + getUsedBytes() + ", highWaterMark="
+				+ getHighWaterMark() + ", limitBytes=" + getLimitBytes() + ", policy=" + getPolicy() + ", blocked="
+				+ getBlockedCount() + ", rejected=" + getRejectedCount() + ", spilled=" + getSpilledCount() + "]";
+	}
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+/**
+ * Tensor所引用、但不归其所有的内存(如模型文件的映射区域、TensorArena的分块)的有效期
+ * 
+ * 内存的持有者在解除映射或重新分配之前调用{@link #revoke()}，此后引用该内存的Tensor及其视图的读取均抛出IllegalStateException，
+ * 而不是访问已失效的内存。由{@link org.onnx4j.Tensor#getData()}等取得的ByteBuffer不受保护，不应在内存回收后继续使用
+ */
+public final class MemoryLease {
+
+	private final String owner;
+	private volatile boolean revoked = false;
+
+	/**
+	 * @param owner
+	 *            内存的持有者，用于异常信息
+	 */
+	public MemoryLease(String owner) {
+		this.owner = owner;
+	}
+
+	public String getOwner() {
+		return this.owner;
+	}
+
+	public boolean isRevoked() {
+		return this.revoked;
+	}
+
+	/**
+	 * 内存即将被回收，重复调用无副作用
+	 */
+	public void revoke() {
+		this.revoked = true;
+	}
+
+	@Override
+	public String toString() {
+		return "MemoryLease [owner=" + owner + ", revoked=" + revoked + "]";
+	}
+
+}
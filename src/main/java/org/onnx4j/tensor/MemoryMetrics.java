@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+/**
+ * Tensor占用堆外内存的统计，可用于对接监控指标
+ * 
+ * @see MemoryBudget
+ */
+public interface MemoryMetrics {
+
+	public String getName();
+
+	/**
+	 * @return 未关闭的Tensor占用的字节数
+	 */
+	public long getUsedBytes();
+
+	/**
+	 * @return 迄今为止同时占用的最大字节数
+	 */
+	public long getHighWaterMark();
+
+	/**
+	 * @return 允许同时占用的字节数，不限制时为{@link Long#MAX_VALUE}
+	 */
+	public long getLimitBytes();
+
+	/**
+	 * @return 需要等待其他内存释放的分配次数
+	 */
+	public long getBlockedCount();
+
+	/**
+	 * @return 因超出预算而被拒绝的分配次数，包括等待超时的分配
+	 */
+	public long getRejectedCount();
+
+	/**
+	 * @return 因超出预算而改在Java堆上进行的分配次数
+	 */
+	public long getSpilledCount();
+
+}
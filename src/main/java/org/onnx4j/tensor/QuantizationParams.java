@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.util.Arrays;
+
+import org.onnx4j.Tensor;
+
+/**
+ * 线性量化的scale与zero point，用于QuantizeLinear、DequantizeLinear、QLinearConv及QLinearMatMul：
+ * {@code real = (quantized - zeroPoint) * scale}
+ * <p>
+ * 参数或者整个Tensor共用一组，或者按某一维(per axis)的每个下标各有一组，如卷积权重的每个输出通道
+ */
+public final class QuantizationParams {
+
+	/**
+	 * 整个Tensor共用一组参数时的axis
+	 */
+	public static final int PER_TENSOR = -1;
+
+	private final DataType dataType;
+	private final int axis;
+	private final float[] scales;
+	private final long[] zeroPoints;
+
+	public static QuantizationParams perTensor(DataType dataType, float scale, long zeroPoint) {
+		return new QuantizationParams(dataType, PER_TENSOR, new float[] { scale }, new long[] { zeroPoint });
+	}
+
+	/**
+	 * @param dataType
+	 *            量化后的类型，INT8、UINT8或INT32
+	 * @param axis
+	 *            参数所对应的维度
+	 * @param scales
+	 * @param zeroPoints
+	 *            与scales数量相同
+	 */
+	public static QuantizationParams perAxis(DataType dataType, int axis, float[] scales, long[] zeroPoints) {
+		if (axis < 0)
+			throw new IllegalArgumentException("Axis of per-axis quantization must not be negative: " + axis);
+
+		return new QuantizationParams(dataType, axis, scales.clone(), zeroPoints.clone());
+	}
+
+	/**
+	 * 由量化算子的scale及zero point输入读取参数，多于一个元素的一维输入按per axis处理
+	 * 
+	 * @param scale
+	 *            FLOAT类型的标量或一维Tensor
+	 * @param zeroPoint
+	 *            与scale形状相同的INT8、UINT8或INT32 Tensor，按ONNX的定义，为null时表示UINT8的0
+	 * @param axis
+	 *            per axis参数对应的维度，如QLinearConv的权重为0
+	 * @return
+	 */
+	public static QuantizationParams of(Tensor scale, Tensor zeroPoint, int axis) {
+		if (DataType.FLOAT != scale.getDataType())
+			throw new IllegalArgumentException("Scale must be a FLOAT tensor, but " + scale.getDataType());
+
+		int count = (int) scale.getElementSize();
+		if (zeroPoint != null && zeroPoint.getElementSize() != count)
+			throw new IllegalArgumentException(String.format("%s zero points do not match %s scales",
+					zeroPoint.getElementSize(), count));
+
+		float[] scales = new float[count];
+		scale.copyTo(scales, 0, 0L, count);
+
+		long[] zeroPoints = new long[count];
+		DataType dataType = (zeroPoint != null) ? zeroPoint.getDataType() : DataType.UINT8;
+		for (int n = 0; n < count && zeroPoint != null; n++) {
+			zeroPoints[n] = QuantizationParams.toLong(dataType, zeroPoint, n);
+		}
+
+		return (count == 1 && scale.getRanks() <= 1)
+				? new QuantizationParams(dataType, PER_TENSOR, scales, zeroPoints)
+				: QuantizationParams.perAxis(dataType, axis, scales, zeroPoints);
+	}
+
+	private static long toLong(DataType dataType, Tensor tensor, long index) {
+		switch (dataType) {
+		case INT8:
+			return tensor.getByte(index);
+		case UINT8:
+			return tensor.getByte(index) & 0xFFL;
+		case INT32:
+			return tensor.getInt(index);
+		default:
+			throw new IllegalArgumentException("Unsupported quantized type: " + dataType);
+		}
+	}
+
+	private QuantizationParams(DataType dataType, int axis, float[] scales, long[] zeroPoints) {
+		if (DataType.INT8 != dataType && DataType.UINT8 != dataType && DataType.INT32 != dataType)
+			throw new IllegalArgumentException("Unsupported quantized type: " + dataType);
+		if (scales.length == 0 || scales.length != zeroPoints.length)
+			throw new IllegalArgumentException(
+					String.format("%s zero points do not match %s scales", zeroPoints.length, scales.length));
+
+		this.dataType = dataType;
+		this.axis = axis;
+		this.scales = scales;
+		this.zeroPoints = zeroPoints;
+	}
+
+	public DataType getDataType() {
+		return dataType;
+	}
+
+	public boolean isPerAxis() {
+		return this.axis != PER_TENSOR;
+	}
+
+	/**
+	 * @return 整个Tensor共用一组参数时为{@link #PER_TENSOR}
+	 */
+	public int getAxis() {
+		return axis;
+	}
+
+	/**
+	 * @return 整个Tensor共用一组参数时为1，否则为该维度的长度
+	 */
+	public int getCount() {
+		return this.scales.length;
+	}
+
+	public float getScale(int index) {
+		return this.scales[index];
+	}
+
+	public long getZeroPoint(int index) {
+		return this.zeroPoints[index];
+	}
+
+	/**
+	 * 检查参数与该形状的Tensor是否匹配
+	 */
+	public void check(DataType dataType, Shape shape) {
+		if (this.dataType != dataType)
+			throw new IllegalArgumentException(
+					String.format("Parameters of %s can not describe %s tensor", this.dataType, dataType));
+
+		if (this.isPerAxis() && (this.axis >= shape.dims() || shape.get(this.axis) != this.scales.length))
+			throw new IllegalArgumentException(String.format("%s parameters along axis %s do not match shape %s",
+					this.scales.length, this.axis, shape));
+	}
+
+	/**
+	 * 按四舍六入五成双取整，并截断到量化类型的取值范围
+	 * 
+	 * @param value
+	 * @param index
+	 *            在axis上的下标，整个Tensor共用一组参数时为0
+	 * @return
+	 */
+	public long quantize(float value, int index) {
+		long quantized = (long) Math.rint(value / this.scales[index]) + this.zeroPoints[index];
+		switch (this.dataType) {
+		case INT8:
+			return Math.min(Math.max(quantized, Byte.MIN_VALUE), Byte.MAX_VALUE);
+		case UINT8:
+			return Math.min(Math.max(quantized, 0L), 0xFFL);
+		default:
+			return Math.min(Math.max(quantized, Integer.MIN_VALUE), Integer.MAX_VALUE);
+		}
+	}
+
+	public float dequantize(long quantized, int index) {
+		return (quantized - this.zeroPoints[index]) * this.scales[index];
+	}
+
+	/**
+	 * 将量化Tensor从srcIndex开始的length个元素反量化到dst中，可用于逐块处理
+	 * 
+	 * @param tensor
+	 *            由这组参数描述的Tensor
+	 * @param srcIndex
+	 * @param dst
+	 * @param dstOffset
+	 * @param length
+	 */
+	public void dequantize(Tensor tensor, long srcIndex, float[] dst, int dstOffset, int length) {
+		if (srcIndex < 0 || length < 0 || srcIndex > tensor.getElementSize() - length || dstOffset < 0
+				|| dstOffset > dst.length - length)
+			throw new IndexOutOfBoundsException(String.format("Can not dequantize [%s, +%s) of %s elements to [%s, +%s) of %s",
+					srcIndex, length, tensor.getElementSize(), dstOffset, length, dst.length));
+
+		//
+		// axis上相邻两个下标之间的元素使用同一组参数
+		//
+		long[] shape = tensor.getShape();
+		long inner = 1L;
+		for (int n = this.axis + 1; this.isPerAxis() && n < shape.length; n++) {
+			inner *= shape[n];
+		}
+		for (int n = 0; n < length; n++) {
+			long element = srcIndex + n;
+			int index = this.isPerAxis() ? (int) ((element / inner) % this.scales.length) : 0;
+			dst[dstOffset + n] = this.dequantize(QuantizationParams.toLong(this.dataType, tensor, element), index);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof QuantizationParams == false)
+			return false;
+
+		QuantizationParams other = (QuantizationParams) obj;
+		return this.dataType == other.dataType && this.axis == other.axis && Arrays.equals(this.scales, other.scales)
+				&& Arrays.equals(this.zeroPoints, other.zeroPoints);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * this.dataType.hashCode() + this.axis) + Arrays.hashCode(this.scales);
+	}
+
+	@Override
+	public String toString() {
+		return "QuantizationParams [dataType=" + dataType + ", axis=" + axis + ", scales=" + Arrays.toString(scales)
+				+ ", zeroPoints=" + Arrays.toString(zeroPoints) + "]";
+	}
+
+}
@@ -53,7 +53,7 @@ public class Shape {
 	public long numElements() {
 		long numElements = 1;
 		for (long numElementsInThisDim : this.shape) {
-			numElements *= numElementsInThisDim;
+			numElements = Math.multiplyExact(numElements, numElementsInThisDim);
 		}
 		return numElements;
 	}
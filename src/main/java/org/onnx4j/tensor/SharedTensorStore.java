@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.onnx4j.Tensor;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * 按引用计数在多个模型之间共享的Tensor数据，使相同的权重(如多个微调版本共用的backbone)只占用一份内存
+ * <p>
+ * 以数据类型、形状、字节序及数据的murmur3哈希作为键，共享前再逐字节比较。
+ * 由{@link TensorBuilder#share(SharedTensorStore)}创建的Tensor照常解码，若已存在相同的数据，则立即释放刚解码的内存并引用已存放的数据。
+ * 引用该数据的最后一个Tensor关闭(即持有它的最后一个模型关闭)时释放。
+ * <p>
+ * 不归Tensor所有的内存(deallocator为{@link BufferDeallocator#NONE}，如映射的模型缓存的零拷贝切片)不会放入，
+ * 这些内存属于其他对象，其页面已通过page cache共享。
+ * <p>
+ * 放入的数据不再计入首先加载它的模型的预算，而是改为计入此store的{@link MemoryBudget}，直至最后一个引用释放，
+ * 因此各模型的内存统计中不包含共享的数据。
+ */
+public class SharedTensorStore {
+
+	private final Map<Key, Entry> entries = new HashMap<Key, Entry>();
+
+	private final MemoryBudget memoryBudget;
+
+	/**
+	 * 共享的数据计入{@link MemoryBudget#getGlobal() 全局预算}
+	 */
+	public SharedTensorStore() {
+		this(MemoryBudget.getGlobal());
+	}
+
+	/**
+	 * @param memoryBudget
+	 *            共享的数据所计入的预算，通常为各模型预算的共同上级
+	 */
+	public SharedTensorStore(MemoryBudget memoryBudget) {
+		if (memoryBudget == null)
+			throw new IllegalArgumentException("Argument named \"memoryBudget\" is null");
+
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @return 引用共享数据的Tensor，不能共享时引用传入的数据
+	 */
+	public Tensor share(String name, String docString, ValueInfo valueInfo, ByteBuffer dataBuffer,
+			BufferDeallocator deallocator) {
+		if (deallocator == BufferDeallocator.NONE)
+			return new Tensor(name, docString, valueInfo, dataBuffer, deallocator);
+
+		Key key = new Key(valueInfo.getDataType(), valueInfo.getShape(), dataBuffer);
+		Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(key);
+			if (entry == null) {
+				if (deallocator instanceof BufferPool.ChargedDeallocator)
+					((BufferPool.ChargedDeallocator) deallocator).transferTo(this.memoryBudget);
+
+				entry = new Entry(key, dataBuffer, deallocator);
+				this.entries.put(key, entry);
+			}
+			entry.references++;
+		}
+
+		if (entry.buffer != dataBuffer && !deallocator.deallocate(dataBuffer))
+			throw new RuntimeException(String.format("[Tensor:%s] can not be released.", name));
+
+		Entry sharedEntry = entry;
+		return new Tensor(name, docString, valueInfo, entry.buffer.duplicate().order(entry.buffer.order()),
+				buffer -> this.release(sharedEntry));
+	}
+
+	private boolean release(Entry entry) {
+		synchronized (this) {
+			if (--entry.references > 0)
+				return true;
+
+			this.entries.remove(entry.key);
+		}
+		return entry.deallocator.deallocate(entry.buffer);
+	}
+
+	public MemoryBudget getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	/**
+	 * @return 存放的不同数据的数量
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return 存放的不同数据的字节数
+	 */
+	public synchronized long getMemoryBytes() {
+		long memoryBytes = 0L;
+		for (Entry entry : this.entries.values()) {
+			memoryBytes += entry.buffer.capacity();
+		}
+		return memoryBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SharedTensorStore [buffers=" + this.entries.size() + ", bytes=" + this.getMemoryBytes() + "]";
+	}
+
+	private static class Entry {
+
+		private final Key key;
+		private final ByteBuffer buffer;
+		private final BufferDeallocator deallocator;
+		private int references = 0;
+
+		private Entry(Key key, ByteBuffer buffer, BufferDeallocator deallocator) {
+			this.key = key;
+			this.buffer = buffer;
+			this.deallocator = deallocator;
+		}
+
+	}
+
+	private static class Key {
+
+		private final DataType dataType;
+		private final Shape shape;
+		private final ByteOrder byteOrder;
+		private final HashCode hash;
+		private final ByteBuffer data;
+
+		private Key(DataType dataType, Shape shape, ByteBuffer data) {
+			this.dataType = dataType;
+			this.shape = shape;
+			this.byteOrder = data.order();
+			this.data = data.duplicate();
+			this.data.rewind();
+
+			Hasher hasher = Hashing.murmur3_128().newHasher().putInt(dataType.ordinal());
+			for (long dim : shape.toArray()) {
+				hasher.putLong(dim);
+			}
+			this.hash = hasher.putBytes(this.data.duplicate()).hash();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash.asInt();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj instanceof Key == false)
+				return false;
+
+			Key other = (Key) obj;
+			return this.hash.equals(other.hash) && this.dataType == other.dataType && this.shape.equals(other.shape)
+					&& this.byteOrder.equals(other.byteOrder) && this.data.equals(other.data);
+		}
+
+	}
+
+}
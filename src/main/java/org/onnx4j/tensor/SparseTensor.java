@@ -0,0 +1,392 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.onnx4j.Tensor;
+import org.onnx4j.TensorManager;
+import org.onnx4j.prototypes.OnnxProto3.TensorProto;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * 只存放非零值的Tensor(如剪枝后模型的权重)，来自sparse initializer或Constant节点的sparse_value
+ * <p>
+ * COO格式中每个值的下标存放于INT64 Tensor，形状为[NNZ, rank]或[NNZ](线性化的下标)，按ONNX的要求以行优先排列；
+ * CSR格式只用于二维Tensor，由INT64的行指针[rows + 1]及列下标[NNZ]组成。
+ * <p>
+ * 值及下标均为普通的Tensor，随稀疏Tensor一同关闭。
+ *
+ * @see <a href=
+ *      "https://github.com/onnx/onnx/blob/master/docs/IR.md#sparse-tensors">ONNX.
+ *      IR.md</a>
+ */
+public final class SparseTensor implements AutoCloseable {
+
+	public static enum Layout {
+		COO, CSR
+	}
+
+	//
+	// 生成的prototypes(IR version 5)中还没有SparseTensorProto，按onnx.proto中的字段编号由unknown fields解码
+	//
+	private static final int VALUES_FIELD_NUMBER = 1;
+	private static final int INDICES_FIELD_NUMBER = 2;
+	private static final int DIMS_FIELD_NUMBER = 3;
+
+	private final String name;
+	private final String docString;
+	private final Layout layout;
+	private final Shape shape;
+	private final Tensor values;
+	private final Tensor indices;
+	private final Tensor rowPointers;
+
+	/**
+	 * @param shape
+	 *            稠密的形状
+	 * @param values
+	 *            非零值，一维Tensor
+	 * @param indices
+	 *            INT64 Tensor，形状为[NNZ, rank]，或[NNZ](线性化的下标)
+	 */
+	public static SparseTensor coo(String name, String docString, Shape shape, Tensor values, Tensor indices) {
+		long nnz = values.getElementSize();
+		long[] indicesShape = indices.getShape();
+		boolean linearized = indicesShape.length == 1 && indicesShape[0] == nnz;
+		boolean coordinates = indicesShape.length == 2 && indicesShape[0] == nnz && indicesShape[1] == shape.dims();
+		if (values.getRanks() != 1 || DataType.INT64 != indices.getDataType() || (linearized || coordinates) == false)
+			throw new IllegalArgumentException(String.format(
+					"Sparse tensor \"%s\" shaped %s can not hold %s values indexed by %s %s", name, shape,
+					values.getShape().length == 1 ? nnz : values.getValueInfo().getShape(), indices.getDataType(),
+					indices.getValueInfo().getShape()));
+
+		return new SparseTensor(name, docString, Layout.COO, shape, values, indices, null);
+	}
+
+	/**
+	 * @param shape
+	 *            稠密的二维形状
+	 * @param values
+	 *            按行排列的非零值，一维Tensor
+	 * @param rowPointers
+	 *            INT64 [rows + 1]，第r行的值位于[rowPointers[r], rowPointers[r + 1])
+	 * @param columnIndices
+	 *            INT64 [NNZ]
+	 */
+	public static SparseTensor csr(String name, String docString, Shape shape, Tensor values, Tensor rowPointers,
+			Tensor columnIndices) {
+		long nnz = values.getElementSize();
+		if (shape.dims() != 2 || values.getRanks() != 1 || DataType.INT64 != rowPointers.getDataType()
+				|| DataType.INT64 != columnIndices.getDataType() || rowPointers.getElementSize() != shape.get(0) + 1
+				|| columnIndices.getElementSize() != nnz)
+			throw new IllegalArgumentException(String.format(
+					"Sparse tensor \"%s\" shaped %s can not hold %s values with %s row pointers and %s column indices",
+					name, shape, nnz, rowPointers.getElementSize(), columnIndices.getElementSize()));
+
+		return new SparseTensor(name, docString, Layout.CSR, shape, values, columnIndices, rowPointers);
+	}
+
+	/**
+	 * 按COO格式解码序列化的SparseTensorProto，不转换为稠密Tensor
+	 * 
+	 * @param sparseTensorProto
+	 * @param baseDir
+	 *            模型文件所在目录，用于以external data保存的值或下标
+	 * @param options
+	 */
+	public static SparseTensor parse(ByteString sparseTensorProto, Path baseDir, Tensor.Options options) {
+		TensorProto valuesProto = null;
+		TensorProto indicesProto = null;
+		long[] dims = new long[0];
+		try {
+			CodedInputStream in = sparseTensorProto.newCodedInput();
+			for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case VALUES_FIELD_NUMBER:
+					valuesProto = TensorProto.parseFrom(in.readBytes());
+					break;
+				case INDICES_FIELD_NUMBER:
+					indicesProto = TensorProto.parseFrom(in.readBytes());
+					break;
+				case DIMS_FIELD_NUMBER:
+					if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+						int limit = in.pushLimit(in.readRawVarint32());
+						while (in.getBytesUntilLimit() > 0)
+							dims = SparseTensor.append(dims, in.readInt64());
+						in.popLimit(limit);
+					} else {
+						dims = SparseTensor.append(dims, in.readInt64());
+					}
+					break;
+				default:
+					in.skipField(tag);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Malformed SparseTensorProto: " + e.getMessage(), e);
+		}
+
+		if (valuesProto == null || indicesProto == null)
+			throw new IllegalArgumentException("SparseTensorProto without values or indices");
+
+		Tensor values = TensorBuilder.builder(valuesProto, baseDir, options).build();
+		try {
+			Tensor indices = TensorBuilder.builder(indicesProto, baseDir, options).build();
+			try {
+				return SparseTensor.coo(valuesProto.getName(), valuesProto.getDocString(), Shape.create(dims), values,
+						indices);
+			} catch (RuntimeException e) {
+				indices.close();
+				throw e;
+			}
+		} catch (RuntimeException e) {
+			values.close();
+			throw e;
+		}
+	}
+
+	private static long[] append(long[] array, long value) {
+		long[] appended = new long[array.length + 1];
+		System.arraycopy(array, 0, appended, 0, array.length);
+		appended[array.length] = value;
+		return appended;
+	}
+
+	private SparseTensor(String name, String docString, Layout layout, Shape shape, Tensor values, Tensor indices,
+			Tensor rowPointers) {
+		this.name = name;
+		this.docString = docString;
+		this.layout = layout;
+		this.shape = shape;
+		this.values = values;
+		this.indices = indices;
+		this.rowPointers = rowPointers;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDocString() {
+		return docString;
+	}
+
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return 稠密的形状
+	 */
+	public Shape getShape() {
+		return shape;
+	}
+
+	public DataType getDataType() {
+		return this.values.getDataType();
+	}
+
+	public long getNonZeroCount() {
+		return this.values.getElementSize();
+	}
+
+	/**
+	 * @return 实际存放的元素占稠密元素的比例
+	 */
+	public double getDensity() {
+		return (double) this.getNonZeroCount() / this.shape.numElements();
+	}
+
+	public Tensor getValues() {
+		return values;
+	}
+
+	/**
+	 * @return COO格式的下标，或CSR格式的列下标
+	 */
+	public Tensor getIndices() {
+		return indices;
+	}
+
+	/**
+	 * @return CSR格式的行指针，COO格式时为null
+	 */
+	public Tensor getRowPointers() {
+		return rowPointers;
+	}
+
+	/**
+	 * @return 值及下标占用的字节数
+	 */
+	public long getMemoryBytes() {
+		return this.values.getMemoryBytes() + this.indices.getMemoryBytes()
+				+ (this.rowPointers != null ? this.rowPointers.getMemoryBytes() : 0L);
+	}
+
+	/**
+	 * @param n
+	 *            所存放的值的序号
+	 * @return 该值在稠密Tensor中按行优先的下标
+	 */
+	public long linearIndex(long n) {
+		if (Layout.CSR == this.layout) {
+			//
+			// 在行指针中二分查找第n个值所在的行
+			//
+			long low = 0L, high = this.shape.get(0) - 1;
+			while (low < high) {
+				long mid = (low + high + 1) >>> 1;
+				if (this.rowPointers.getLong(mid) <= n)
+					low = mid;
+				else
+					high = mid - 1;
+			}
+			return low * this.shape.get(1) + this.indices.getLong(n);
+		}
+
+		if (this.indices.getRanks() == 1)
+			return this.indices.getLong(n);
+
+		int rank = this.shape.dims();
+		long linear = 0L;
+		for (int axis = 0; axis < rank; axis++) {
+			linear = linear * this.shape.get(axis) + this.indices.getLong(n * rank + axis);
+		}
+		return linear;
+	}
+
+	/**
+	 * 将二维的COO格式转换为CSR格式(如用作MatMul的稀疏操作数)，值由两者共享，其中之一未关闭时均有效
+	 * 
+	 * @param options
+	 *            用于分配行指针及列下标
+	 * @return 已经是CSR格式时返回this
+	 */
+	public SparseTensor toCsr(Tensor.Options options) {
+		if (Layout.CSR == this.layout)
+			return this;
+
+		if (this.shape.dims() != 2)
+			throw new UnsupportedOperationException(
+					String.format("Sparse tensor \"%s\" shaped %s is not a matrix", this.name, this.shape));
+
+		long rows = this.shape.get(0), columns = this.shape.get(1), nnz = this.getNonZeroCount();
+		Tensor rowPointers = TensorBuilder.builder(DataType.INT64, Shape.create(rows + 1), options)
+				.write(pointers -> {
+					long row = 0L, previous = -1L;
+					pointers.putLong(0L);
+					for (long n = 0L; n < nnz; n++) {
+						long linear = this.linearIndex(n);
+						if (linear <= previous || linear >= rows * columns)
+							throw new IllegalArgumentException(String.format(
+									"Index %s of sparse tensor \"%s\" is out of order or out of %s", linear,
+									this.name, this.shape));
+
+						for (; row < linear / columns; row++)
+							pointers.putLong(n);
+						previous = linear;
+					}
+					for (; row < rows; row++)
+						pointers.putLong(nnz);
+				}).build();
+		try {
+			Tensor columnIndices = TensorBuilder.builder(DataType.INT64, Shape.create(nnz), options)
+					.write(cols -> {
+						for (long n = 0L; n < nnz; n++)
+							cols.putLong(this.linearIndex(n) % columns);
+					}).build();
+			return SparseTensor.csr(this.name, this.docString, this.shape, this.values.reshape(nnz), rowPointers,
+					columnIndices);
+		} catch (RuntimeException e) {
+			rowPointers.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 将值写入稠密Tensor的对应位置，其他元素为0
+	 * 
+	 * @param options
+	 * @return
+	 */
+	public Tensor toDense(Tensor.Options options) {
+		DataType dataType = this.getDataType();
+		if (dataType.isVariableLength())
+			throw new UnsupportedOperationException(
+					String.format("Sparse tensor \"%s\" of %s can not be densified", this.name, dataType));
+
+		int unitSize = dataType.getUnitSize();
+		int componentSize = dataType.getComponentSize();
+		ByteBuffer src = this.values.getReadOnlyData();
+		boolean swap = src.order().equals(options.getByteOrder()) == false;
+		return TensorBuilder.builder(dataType, this.shape, options).name(this.name).docString(this.docString)
+				.write(dst -> {
+					//
+					// 由内存池或arena分配的内存不会清零
+					//
+					int base = dst.position();
+					while (dst.remaining() >= Long.BYTES)
+						dst.putLong(0L);
+					while (dst.hasRemaining())
+						dst.put((byte) 0);
+
+					for (int n = 0; n < this.getNonZeroCount(); n++) {
+						int offset = Math.toIntExact(base + this.linearIndex(n) * unitSize);
+						for (int b = 0; b < unitSize; b++) {
+							int from = swap ? b - b % componentSize + componentSize - 1 - b % componentSize : b;
+							dst.put(offset + b, src.get(n * unitSize + from));
+						}
+					}
+				}).build();
+	}
+
+	/**
+	 * 将值、下标及行指针注册到TensorManager，随之一同释放；
+	 * 值以该稀疏Tensor的名称注册，下标及行指针分别以"名称/indices"及"名称/row_pointers"注册，不会相互覆盖
+	 * 
+	 * @param tensorManager
+	 * @return this
+	 */
+	public SparseTensor manage(TensorManager<Tensor> tensorManager) {
+		tensorManager.attach(this.name, this.values);
+		tensorManager.attach(this.name + "/indices", this.indices);
+		if (this.rowPointers != null)
+			tensorManager.attach(this.name + "/row_pointers", this.rowPointers);
+		return this;
+	}
+
+	@Override
+	public void close() {
+		this.values.close();
+		this.indices.close();
+		if (this.rowPointers != null)
+			this.rowPointers.close();
+	}
+
+	@Override
+	public String toString() {
+		return "SparseTensor [name=" + name + ", layout=" + layout + ", shape=" + shape + ", dataType="
+				+ this.getDataType() + ", nnz=" + this.getNonZeroCount() + "]";
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 以{@link StringData}格式存放的STRING Tensor的只读视图
+ * 
+ * 元素以引用UTF-8区域的{@link Utf8Sequence}读取，切片共享同一块内存，均不会为每个元素创建String。
+ * <p>
+ * 视图只在Tensor关闭之前有效。
+ *
+ * @see org.onnx4j.Tensor#getStrings()
+ */
+public final class StringArray implements Iterable<CharSequence> {
+
+	private final ByteBuffer dataBuffer;
+	private final int first;
+	private final int size;
+
+	/**
+	 * @param dataBuffer
+	 *            StringData格式，从position 0开始
+	 */
+	public StringArray(ByteBuffer dataBuffer) {
+		this(dataBuffer, 0, StringData.count(dataBuffer));
+	}
+
+	private StringArray(ByteBuffer dataBuffer, int first, int size) {
+		this.dataBuffer = dataBuffer;
+		this.first = first;
+		this.size = size;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException(String.format("Index %s out of %s strings", index, this.size));
+
+		return this.first + index;
+	}
+
+	private int offsetOf(int element) {
+		return this.dataBuffer.getInt(element * Integer.BYTES);
+	}
+
+	public CharSequence get(int index) {
+		return this.get(index, new Utf8Sequence());
+	}
+
+	/**
+	 * 将元素读入reuse，可在整个循环中重用同一个对象
+	 * 
+	 * @return reuse
+	 */
+	public Utf8Sequence get(int index, Utf8Sequence reuse) {
+		int element = this.checkIndex(index);
+		return reuse.reset(this.dataBuffer, this.offsetOf(element), this.offsetOf(element + 1));
+	}
+
+	/**
+	 * @return 下标为index的元素的UTF-8字节，不复制
+	 */
+	public ByteBuffer getBytes(int index) {
+		int element = this.checkIndex(index);
+		ByteBuffer bytes = this.dataBuffer.duplicate();
+		bytes.limit(this.offsetOf(element + 1)).position(this.offsetOf(element));
+		return bytes.slice();
+	}
+
+	public int byteLength(int index) {
+		int element = this.checkIndex(index);
+		return this.offsetOf(element + 1) - this.offsetOf(element);
+	}
+
+	/**
+	 * @return 下标为index的元素，每次创建新的String
+	 */
+	public String getString(int index) {
+		return this.get(index).toString();
+	}
+
+	/**
+	 * @param from
+	 *            包含
+	 * @param to
+	 *            不包含
+	 * @return 共享同一块内存的元素[from, to)
+	 */
+	public StringArray slice(int from, int to) {
+		if (from < 0 || to < from || to > this.size)
+			throw new IndexOutOfBoundsException(
+					String.format("Range [%s, %s) out of %s strings", from, to, this.size));
+
+		return new StringArray(this.dataBuffer, this.first + from, to - from);
+	}
+
+	/**
+	 * @return 这些元素单独以StringData格式存放时的字节数
+	 */
+	public int byteSize() {
+		return (this.size + 1) * Integer.BYTES + this.offsetOf(this.first + this.size) - this.offsetOf(this.first);
+	}
+
+	/**
+	 * 以StringData格式将元素写入dst(从其position开始)，如将切片复制为单独的Tensor
+	 */
+	public void copyTo(ByteBuffer dst) {
+		ByteBuffer to = dst.slice().order(dst.order());
+		int shift = (this.size + 1) * Integer.BYTES - this.offsetOf(this.first);
+		for (int n = 0; n <= this.size; n++) {
+			to.putInt(n * Integer.BYTES, this.offsetOf(this.first + n) + shift);
+		}
+
+		ByteBuffer bytes = this.dataBuffer.duplicate();
+		bytes.limit(this.offsetOf(this.first + this.size)).position(this.offsetOf(this.first));
+		to.position((this.size + 1) * Integer.BYTES);
+		to.put(bytes);
+		dst.position(dst.position() + to.position());
+	}
+
+	/**
+	 * 重用同一个对象遍历元素，需要保留的元素应在访问下一个之前复制或转换
+	 */
+	@Override
+	public Iterator<CharSequence> iterator() {
+		Utf8Sequence reuse = new Utf8Sequence();
+		return new Iterator<CharSequence>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.index < StringArray.this.size;
+			}
+
+			@Override
+			public CharSequence next() {
+				if (this.hasNext() == false)
+					throw new NoSuchElementException();
+
+				return StringArray.this.get(this.index++, reuse);
+			}
+
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		Utf8Sequence reuse = new Utf8Sequence();
+		for (int n = 0; n < this.size; n++) {
+			builder.append(n > 0 ? ", " : "").append(this.get(n, reuse));
+		}
+		return builder.append(']').toString();
+	}
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * STRING Tensor在单块内存中的紧凑格式：n + 1个int32偏移量(按该内存的字节序)，其后为所有元素的UTF-8字节
+ * 
+ * 第i个元素位于[offsets[i], offsets[i + 1])，格式自身即可描述所有元素，读取之前不会创建任何String对象。
+ */
+public final class StringData {
+
+	private StringData() {
+	}
+
+	/**
+	 * @param values
+	 *            以UTF-8编码的元素
+	 * @return 存放这些元素所需的字节数
+	 */
+	public static int byteSize(List<ByteString> values) {
+		long size = (long) (values.size() + 1) * Integer.BYTES;
+		for (ByteString value : values) {
+			size += value.size();
+		}
+
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException(
+					String.format("%s bytes of strings can not be held in a single buffer", size));
+
+		return (int) size;
+	}
+
+	public static void put(ByteBuffer dataBuffer, List<ByteString> values) {
+		int offset = (values.size() + 1) * Integer.BYTES;
+		for (int n = 0; n < values.size(); n++) {
+			ByteString value = values.get(n);
+			dataBuffer.putInt(n * Integer.BYTES, offset);
+
+			ByteBuffer dst = dataBuffer.duplicate();
+			dst.position(offset);
+			value.copyTo(dst);
+			offset += value.size();
+		}
+		dataBuffer.putInt(values.size() * Integer.BYTES, offset);
+	}
+
+	/**
+	 * @return 其中存放的元素数量
+	 */
+	public static int count(ByteBuffer dataBuffer) {
+		return dataBuffer.getInt(0) / Integer.BYTES - 1;
+	}
+
+	/**
+	 * @return 下标为index的元素的UTF-8字节，不复制
+	 */
+	public static ByteBuffer bytes(ByteBuffer dataBuffer, int index) {
+		if (index < 0 || index >= StringData.count(dataBuffer))
+			throw new IndexOutOfBoundsException(
+					String.format("Index %s out of %s strings", index, StringData.count(dataBuffer)));
+
+		int from = dataBuffer.getInt(index * Integer.BYTES);
+		int to = dataBuffer.getInt((index + 1) * Integer.BYTES);
+		ByteBuffer bytes = dataBuffer.duplicate();
+		bytes.limit(to).position(from);
+		return bytes.slice();
+	}
+
+	public static String get(ByteBuffer dataBuffer, int index) {
+		return StandardCharsets.UTF_8.decode(StringData.bytes(dataBuffer, index)).toString();
+	}
+
+	/**
+	 * 将src中的数据复制到dst(均从各自的position开始)，偏移量按dst的字节序写入
+	 */
+	public static void copy(ByteBuffer dst, ByteBuffer src) {
+		ByteBuffer from = src.slice().order(src.order());
+		ByteBuffer to = dst.slice().order(dst.order());
+		int headerSize = from.getInt(0);
+		for (int n = 0; n < headerSize; n += Integer.BYTES) {
+			to.putInt(n, from.getInt(n));
+		}
+
+		from.position(headerSize);
+		to.position(headerSize);
+		to.put(from);
+		dst.position(dst.position() + to.position());
+	}
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.onnx4j.Tensor;
+
+/**
+ * 以bump pointer方式为{@link TensorScope}中的Tensor(如一次推理请求的中间结果)分配内存
+ * <p>
+ * 分配时只需向前移动指针，关闭scope时将指针移回scope打开时的位置，释放一次请求的所有Tensor只需常数时间且不产生碎片。
+ * 一次运行所需超出arena的容量时追加溢出的chunk，最外层的scope关闭后按该次运行的最高用量合并为一个chunk，
+ * 之后相同负载的运行均由一块连续的内存满足。
+ * <p>
+ * arena不是线程安全的，每个工作线程使用各自的arena(如存放于{@link ThreadLocal}中)。与{@link BufferPool}相同，分配的内存<b>不会</b>清零。
+ */
+public class TensorArena implements AutoCloseable {
+
+	public static final int DEFAULT_INITIAL_SIZE = 1024 * 1024;
+
+	/**
+	 * arena中的Tensor按此值与options中的alignment两者中较大的一个对齐
+	 */
+	public static final int MIN_ALIGNMENT = 64;
+
+	private final Tensor.Options options;
+	private final int alignment;
+	private final List<BufferPool.Allocation> chunks = new ArrayList<BufferPool.Allocation>();
+
+	//
+	// bump pointer：正在使用的chunk、其中的偏移量以及之前所有chunk的字节数
+	//
+	private int current = 0;
+	private int offset = 0;
+	private long chunkBase = 0L;
+
+	private long runHighWaterMark = 0L;
+	private long highWaterMark = 0L;
+
+	private TensorScope innermost;
+	private boolean closed = false;
+
+	public TensorArena() {
+		this(DEFAULT_INITIAL_SIZE, Tensor.options());
+	}
+
+	/**
+	 * @param initialSize
+	 *            第一个chunk的字节数
+	 * @param options
+	 *            Tensor的字节序与对齐方式，以及逃逸出最外层scope的Tensor的分配方式
+	 */
+	public TensorArena(int initialSize, Tensor.Options options) {
+		if (initialSize <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", initialSize));
+		if (options == null)
+			throw new IllegalArgumentException(
+					"Argument named \"options\" is null,try \"Tensor.options()\" for default instead.");
+
+		this.options = options;
+		this.alignment = Math.max(options.getAlignment(), MIN_ALIGNMENT);
+		this.chunks.add(this.newChunk(this.alignUp(initialSize)));
+	}
+
+	/**
+	 * 在最内层已打开的scope中嵌套打开新的scope，没有已打开的scope时作为最外层
+	 * 
+	 * @return 新的最内层scope
+	 */
+	public TensorScope open() {
+		if (this.closed)
+			throw new IllegalStateException("Arena has been closed");
+
+		this.innermost = new TensorScope(this, this.innermost, this.current, this.offset, this.chunkBase);
+		return this.innermost;
+	}
+
+	Tensor.Options getOptions() {
+		return this.options;
+	}
+
+	TensorScope getInnermost() {
+		return this.innermost;
+	}
+
+	ByteBuffer allocate(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+
+		long start = this.alignUp(this.offset);
+		while (start + size > this.capacityOf(this.current)) {
+			this.chunkBase += this.capacityOf(this.current);
+			this.current++;
+			this.offset = 0;
+			start = 0L;
+
+			if (this.current == this.chunks.size()) {
+				int chunkSize = (int) Math.min(Math.max((long) size, this.capacityOf(this.current - 1) * 2L),
+						Integer.MAX_VALUE - this.alignment);
+				this.chunks.add(this.newChunk(this.alignUp(chunkSize)));
+			}
+		}
+
+		ByteBuffer buffer = this.chunks.get(this.current).getBuffer().duplicate();
+		buffer.limit((int) start + size).position((int) start);
+		this.offset = (int) start + size;
+		this.runHighWaterMark = Math.max(this.runHighWaterMark, this.chunkBase + this.offset);
+		this.highWaterMark = Math.max(this.highWaterMark, this.runHighWaterMark);
+		return buffer.slice().order(this.options.getByteOrder());
+	}
+
+	/**
+	 * 将bump pointer移回关闭的scope打开时的位置
+	 */
+	void reset(TensorScope scope, int current, int offset, long chunkBase) {
+		this.current = current;
+		this.offset = offset;
+		this.chunkBase = chunkBase;
+		this.innermost = scope.getParent();
+
+		if (this.innermost == null)
+			this.endRun();
+	}
+
+	/**
+	 * 将已结束的运行中溢出的chunk合并为一个足以容纳整个运行的chunk
+	 */
+	private void endRun() {
+		if (this.chunks.size() > 1 && this.runHighWaterMark <= Integer.MAX_VALUE - this.alignment) {
+			this.freeChunks();
+			this.chunks.add(this.newChunk(this.alignUp((int) this.runHighWaterMark)));
+		}
+		this.runHighWaterMark = 0L;
+	}
+
+	/**
+	 * chunk整体计入options的内存预算
+	 */
+	private BufferPool.Allocation newChunk(int size) {
+		return BufferPool.Allocation.charged(this.options.getMemoryBudget(), size,
+				chunkSize -> BufferPool.Allocation.aligned(chunkSize, this.alignment));
+	}
+
+	private long capacityOf(int index) {
+		return this.chunks.get(index).getBuffer().capacity();
+	}
+
+	private int alignUp(int offset) {
+		return (offset + this.alignment - 1) & -this.alignment;
+	}
+
+	private void freeChunks() {
+		for (BufferPool.Allocation chunk : this.chunks) {
+			chunk.getDeallocator().deallocate(chunk.getBuffer());
+		}
+		this.chunks.clear();
+	}
+
+	/**
+	 * @return 所有chunk的字节数
+	 */
+	public long getCapacity() {
+		long capacity = 0L;
+		for (BufferPool.Allocation chunk : this.chunks) {
+			capacity += chunk.getBuffer().capacity();
+		}
+		return capacity;
+	}
+
+	/**
+	 * @return 当前持有的chunk数量，只在运行溢出时多于一个
+	 */
+	public int getChunkCount() {
+		return this.chunks.size();
+	}
+
+	/**
+	 * @return 迄今为止单次运行使用的最大字节数，包括对齐的填充
+	 */
+	public long getHighWaterMark() {
+		return this.highWaterMark;
+	}
+
+	/**
+	 * 释放所有chunk，之后不能再使用由该arena分配的Tensor
+	 * 
+	 * @throws IllegalStateException
+	 *             仍有未关闭的scope
+	 */
+	@Override
+	public void close() {
+		if (this.closed)
+			return;
+
+		if (this.innermost != null)
+			throw new IllegalStateException("Arena can not be closed while a scope is still open");
+
+		this.closed = true;
+		this.freeChunks();
+	}
+
+	@Override
+	public String toString() {
+		return "TensorArena [capacity=" + getCapacity() + ", chunks=" + getChunkCount() + ", highWaterMark="
+				+ getHighWaterMark() + "]";
+	}
+
+}
@@ -17,13 +17,23 @@
 package org.onnx4j.tensor;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.onnx4j.Tensor;
 import org.onnx4j.Tensor.AllocationMode;
 import org.onnx4j.TensorManager;
 import org.onnx4j.prototypes.OnnxProto3.TensorProto;
-import org.onnx4j.utils.PrimitiveUtil;
+import org.onnx4j.utils.BufferUtil;
+
+import com.google.protobuf.ByteString;
 
 public class TensorBuilder {
 
@@ -33,6 +43,11 @@ public class TensorBuilder {
 	private DataType dataType;
 	private Shape shape;
 	private ByteBuffer dataBuffer;
+	private BufferDeallocator deallocator;
+	private SharedTensorStore sharedStore;
+	private TensorStorage storage;
+	private QuantizationParams quantization;
+	private MemoryLease memoryLease;
 
 	public TensorBuilder(DataType dataType, Shape shape, ByteBuffer dataBuffer) {
 		this.dataBuffer = dataBuffer;
@@ -41,29 +56,92 @@ public class TensorBuilder {
 	}
 
 	public TensorBuilder(DataType dataType, Shape shape, Tensor.Options options) {
-		int size = (int) shape.numElements() * dataType.getUnitSize();
+		if (options == null)
+			throw new IllegalArgumentException(
+					"Argument named \"options\" is null,try \"Tensor.options()\" for default instead.");
 
-		if (size <= 0)
-			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+		long size = TensorBuilder.byteSize(dataType, shape);
+		if (size > Integer.MAX_VALUE) {
+			//
+			// 超出单个ByteBuffer的容量，分块存放
+			//
+			this.storage = TensorStorage.allocate(size, options);
+			this.dataType = dataType;
+			this.shape = shape;
+		} else {
+			this.init(dataType, shape, (int) size, options);
+		}
+	}
 
+	/**
+	 * @param size
+	 *            字节数，用于STRING等变长类型
+	 */
+	private TensorBuilder(DataType dataType, Shape shape, int size, Tensor.Options options) {
 		if (options == null)
 			throw new IllegalArgumentException(
 					"Argument named \"options\" is null,try \"Tensor.options()\" for default instead.");
 
-		ByteBuffer byteBuffer = null;
-		if (AllocationMode.DIRECT == options.getAllocationMode())
-			byteBuffer = ByteBuffer.allocateDirect(size);
-		else if (AllocationMode.HEAP == options.getAllocationMode())
-			byteBuffer = ByteBuffer.allocate(size);
-		else
-			throw new UnsupportedOperationException(
-					String.format("Unsupported memory allocation mode for \"%s\"", options.getAllocationMode()));
+		this.init(dataType, shape, size, options);
+	}
 
-		this.dataBuffer = byteBuffer.order(options.getByteOrder());
+	private void init(DataType dataType, Shape shape, int size, Tensor.Options options) {
+		BufferPool.Allocation allocation = TensorBuilder.allocate(size, options);
+		this.dataBuffer = allocation.getBuffer().order(options.getByteOrder());
+		this.deallocator = allocation.getDeallocator();
 		this.dataType = dataType;
 		this.shape = shape;
 	}
 
+	/**
+	 * 按options指定的方式分配内存
+	 * 
+	 * @param size
+	 * @param options
+	 * @return 内存及其释放方式
+	 */
+	static BufferPool.Allocation allocate(int size, Tensor.Options options) {
+		if (size <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+
+		if (AllocationMode.HEAP == options.getAllocationMode())
+			return new BufferPool.Allocation(ByteBuffer.allocate(size), BufferDeallocator.NONE);
+
+		//
+		// 堆外内存计入MemoryBudget，超出预算时按其策略等待、失败或改在堆上分配；
+		// 内存池按chunk所属size class的字节数计入
+		//
+		if (AllocationMode.POOLED == options.getAllocationMode())
+			return options.getBufferPool().allocate(size, options.getAlignment(), options.getMemoryBudget());
+
+		return BufferPool.Allocation.charged(options.getMemoryBudget(), size, offHeapSize -> {
+			if (AllocationMode.DIRECT == options.getAllocationMode() && options.getAlignment() > 1)
+				return BufferPool.Allocation.aligned(offHeapSize, options.getAlignment());
+			else if (AllocationMode.DIRECT == options.getAllocationMode())
+				return new BufferPool.Allocation(ByteBuffer.allocateDirect(offHeapSize), BufferDeallocator.DIRECT);
+			else
+				throw new UnsupportedOperationException(String.format(
+						"Unsupported memory allocation mode for \"%s\"", options.getAllocationMode()));
+		});
+	}
+
+	/**
+	 * @return 定长类型Tensor的字节数
+	 * @throws ArithmeticException
+	 *             超出long的范围
+	 */
+	private static long byteSize(DataType dataType, Shape shape) {
+		if (dataType.isVariableLength())
+			throw new IllegalArgumentException(
+					String.format("Size of %s tensor is unknown until its values are given", dataType));
+
+		long size = Math.multiplyExact(shape.numElements(), (long) dataType.getUnitSize());
+		if (size <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+
+		return size;
+	}
+
 	public TensorBuilder manager(TensorManager<Tensor> tensorManager) {
 		this.tensorManager = tensorManager;
 		return this;
@@ -79,24 +157,255 @@ public class TensorBuilder {
 		return this;
 	}
 
+	/**
+	 * 量化数据的scale与zero point，build时检查其与数据类型及形状是否匹配
+	 */
+	public TensorBuilder quantization(QuantizationParams quantization) {
+		this.quantization = quantization;
+		return this;
+	}
+
+	public TensorBuilder deallocator(BufferDeallocator deallocator) {
+		this.deallocator = deallocator;
+		return this;
+	}
+
+	/**
+	 * 与其他模型共享相同的数据，为null时不共享
+	 * 
+	 * @param sharedStore
+	 * @return
+	 */
+	public TensorBuilder share(SharedTensorStore sharedStore) {
+		this.sharedStore = sharedStore;
+		return this;
+	}
+
+	/**
+	 * 数据不归所创建的Tensor所有时，指定该内存的有效期，参考{@link MemoryLease}
+	 * 
+	 * @param memoryLease
+	 * @return
+	 */
+	public TensorBuilder lease(MemoryLease memoryLease) {
+		this.memoryLease = memoryLease;
+		return this;
+	}
+
 	public TensorBuilder write(Consumer<ByteBuffer> consumer) {
-		consumer.accept(this.dataBuffer);
+		consumer.accept(this.buffer());
+		return this;
+	}
+
+	/**
+	 * 以long偏移量写入数据，适用于任意大小的Tensor
+	 * 
+	 * @param consumer
+	 * @return
+	 */
+	public TensorBuilder writeStorage(Consumer<TensorStorage> consumer) {
+		consumer.accept((this.storage != null) ? this.storage : TensorStorage.wrap(this.dataBuffer));
 		return this;
 	}
 
 	public TensorBuilder put(byte[] src) {
-		this.dataBuffer.put(src);
+		this.buffer().put(src);
 		return this;
 	}
 
 	public TensorBuilder putFloat(Float f) {
-		this.dataBuffer.putFloat(f);
+		this.buffer().putFloat(f);
+		return this;
+	}
+
+	//
+	// 以下批量写入均从当前位置开始，按数据的字节序写入并前移位置，不对元素装箱
+	//
+
+	public TensorBuilder put(byte[] src, int offset, int length) {
+		this.buffer().put(src, offset, length);
+		return this;
+	}
+
+	/**
+	 * 写入BOOL元素，每个元素1字节
+	 */
+	public TensorBuilder put(boolean[] src) {
+		ByteBuffer dataBuffer = this.buffer();
+		for (boolean value : src) {
+			dataBuffer.put(value ? (byte) 1 : (byte) 0);
+		}
+		return this;
+	}
+
+	public TensorBuilder put(short[] src) {
+		return this.put(src, 0, src.length);
+	}
+
+	/**
+	 * 写入INT16、UINT16或FLOAT16/BFLOAT16(位模式)元素
+	 */
+	public TensorBuilder put(short[] src, int offset, int length) {
+		ByteBuffer dataBuffer = this.buffer();
+		dataBuffer.asShortBuffer().put(src, offset, length);
+		dataBuffer.position(dataBuffer.position() + length * Short.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(int[] src) {
+		return this.put(src, 0, src.length);
+	}
+
+	public TensorBuilder put(int[] src, int offset, int length) {
+		ByteBuffer dataBuffer = this.buffer();
+		dataBuffer.asIntBuffer().put(src, offset, length);
+		dataBuffer.position(dataBuffer.position() + length * Integer.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(long[] src) {
+		return this.put(src, 0, src.length);
+	}
+
+	public TensorBuilder put(long[] src, int offset, int length) {
+		ByteBuffer dataBuffer = this.buffer();
+		dataBuffer.asLongBuffer().put(src, offset, length);
+		dataBuffer.position(dataBuffer.position() + length * Long.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(float[] src) {
+		return this.put(src, 0, src.length);
+	}
+
+	public TensorBuilder put(float[] src, int offset, int length) {
+		ByteBuffer dataBuffer = this.buffer();
+		dataBuffer.asFloatBuffer().put(src, offset, length);
+		dataBuffer.position(dataBuffer.position() + length * Float.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(double[] src) {
+		return this.put(src, 0, src.length);
+	}
+
+	public TensorBuilder put(double[] src, int offset, int length) {
+		ByteBuffer dataBuffer = this.buffer();
+		dataBuffer.asDoubleBuffer().put(src, offset, length);
+		dataBuffer.position(dataBuffer.position() + length * Double.BYTES);
+		return this;
+	}
+
+	/**
+	 * 写入src从position至limit的字节，src的位置随之前移
+	 */
+	public TensorBuilder put(ByteBuffer src) {
+		this.buffer().put(src);
+		return this;
+	}
+
+	public TensorBuilder put(ShortBuffer src) {
+		ByteBuffer dataBuffer = this.buffer();
+		int length = src.remaining();
+		dataBuffer.asShortBuffer().put(src);
+		dataBuffer.position(dataBuffer.position() + length * Short.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(IntBuffer src) {
+		ByteBuffer dataBuffer = this.buffer();
+		int length = src.remaining();
+		dataBuffer.asIntBuffer().put(src);
+		dataBuffer.position(dataBuffer.position() + length * Integer.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(LongBuffer src) {
+		ByteBuffer dataBuffer = this.buffer();
+		int length = src.remaining();
+		dataBuffer.asLongBuffer().put(src);
+		dataBuffer.position(dataBuffer.position() + length * Long.BYTES);
+		return this;
+	}
+
+	public TensorBuilder put(FloatBuffer src) {
+		ByteBuffer dataBuffer = this.buffer();
+		int length = src.remaining();
+		dataBuffer.asFloatBuffer().put(src);
+		dataBuffer.position(dataBuffer.position() + length * Float.BYTES);
 		return this;
 	}
 
+	public TensorBuilder put(DoubleBuffer src) {
+		ByteBuffer dataBuffer = this.buffer();
+		int length = src.remaining();
+		dataBuffer.asDoubleBuffer().put(src);
+		dataBuffer.position(dataBuffer.position() + length * Double.BYTES);
+		return this;
+	}
+
+	/**
+	 * 按行优先顺序写入任意维度的基本类型数组，如float[][][]，一次遍历完成展开
+	 * 
+	 * @param array
+	 *            基本类型数组，或其(多层)数组
+	 * @return
+	 */
+	public TensorBuilder putArray(Object array) {
+		if (array instanceof float[])
+			return this.put((float[]) array);
+		if (array instanceof Object[]) {
+			for (Object element : (Object[]) array) {
+				this.putArray(element);
+			}
+			return this;
+		}
+		if (array instanceof byte[])
+			return this.put((byte[]) array);
+		if (array instanceof int[])
+			return this.put((int[]) array);
+		if (array instanceof long[])
+			return this.put((long[]) array);
+		if (array instanceof double[])
+			return this.put((double[]) array);
+		if (array instanceof short[])
+			return this.put((short[]) array);
+		if (array instanceof boolean[])
+			return this.put((boolean[]) array);
+
+		throw new IllegalArgumentException(String.format("%s is not an array of primitives",
+				(array != null) ? array.getClass().getName() : null));
+	}
+
+	private ByteBuffer buffer() {
+		if (this.storage != null)
+			throw new UnsupportedOperationException(String.format(
+					"%s bytes can not be held in a single ByteBuffer, use writeStorage() instead",
+					this.storage.byteSize()));
+
+		return this.dataBuffer;
+	}
+
 	public Tensor build() {
+		ValueInfo valueInfo = new ValueInfo(this.dataType, this.shape, this.quantization);
+		if (this.storage != null) {
+			Tensor tensor = new Tensor(this.name, this.docString, valueInfo, this.storage);
+			if (this.memoryLease != null)
+				tensor.setMemoryLease(this.memoryLease);
+			if (this.tensorManager != null)
+				this.tensorManager.attach(this.name, tensor);
+
+			return tensor;
+		}
+
 		this.dataBuffer.rewind();
-		Tensor tensor = new Tensor(this.name, this.docString, this.dataType, this.shape, this.dataBuffer);
+		BufferDeallocator deallocator = (this.deallocator != null) ? this.deallocator
+				: BufferDeallocator.defaultOf(this.dataBuffer);
+		Tensor tensor = (this.sharedStore != null)
+				? this.sharedStore.share(this.name, this.docString, valueInfo, this.dataBuffer, deallocator)
+				: new Tensor(this.name, this.docString, valueInfo, this.dataBuffer, deallocator);
+		if (this.memoryLease != null)
+			tensor.setMemoryLease(this.memoryLease);
 
 		if (this.tensorManager != null)
 			this.tensorManager.attach(this.name, tensor);
@@ -112,45 +421,346 @@ public class TensorBuilder {
 		return new TensorBuilder(dataType, shape, options);
 	}
 
+	/**
+	 * 以Java数组(可为多维，如float[1][3][224][224])的数据创建Tensor
+	 * 
+	 * HEAP方式下，与数据字节序无关的byte[]直接作为Tensor的数据，不复制；其它数组一次批量复制
+	 * 
+	 * @param dataType
+	 * @param shape
+	 * @param array
+	 *            元素总字节数须与shape一致，如FLOAT16可由short[]的位模式给出
+	 * @param options
+	 * @return
+	 */
+	public static TensorBuilder from(DataType dataType, Shape shape, Object array, Tensor.Options options) {
+		long size = TensorBuilder.byteSize(dataType, shape);
+		long arraySize = TensorBuilder.arrayByteSize(array);
+		if (arraySize != size)
+			throw new IllegalArgumentException(String.format("%s bytes of %s can not be held by %s tensor shaped %s",
+					arraySize, array.getClass().getSimpleName(), dataType, shape));
+
+		if (array instanceof byte[] && AllocationMode.HEAP == options.getAllocationMode())
+			return TensorBuilder.builder(dataType, shape, ByteBuffer.wrap((byte[]) array).order(options.getByteOrder()))
+					.deallocator(BufferDeallocator.NONE);
+
+		return TensorBuilder.builder(dataType, shape, options).putArray(array);
+	}
+
+	private static long arrayByteSize(Object array) {
+		if (array instanceof Object[]) {
+			long size = 0L;
+			for (Object element : (Object[]) array) {
+				size += TensorBuilder.arrayByteSize(element);
+			}
+			return size;
+		}
+		if (array instanceof byte[])
+			return ((byte[]) array).length;
+		if (array instanceof boolean[])
+			return ((boolean[]) array).length;
+		if (array instanceof short[])
+			return (long) ((short[]) array).length * Short.BYTES;
+		if (array instanceof int[])
+			return (long) ((int[]) array).length * Integer.BYTES;
+		if (array instanceof long[])
+			return (long) ((long[]) array).length * Long.BYTES;
+		if (array instanceof float[])
+			return (long) ((float[]) array).length * Float.BYTES;
+		if (array instanceof double[])
+			return (long) ((double[]) array).length * Double.BYTES;
+
+		throw new IllegalArgumentException(String.format("%s is not an array of primitives",
+				(array != null) ? array.getClass().getName() : null));
+	}
+
 	public static TensorBuilder builder(TensorProto tensorProto) {
 		return TensorBuilder.builder(tensorProto, Tensor.options());
 	}
 
 	public static TensorBuilder builder(TensorProto tensorProto, Tensor.Options options) {
-		byte[] byteArray;
-		Shape shape;
-		DataType dataType;
-
-		if (TensorProto.DataType.FLOAT.getNumber() == tensorProto.getDataType()) {
-			byteArray = (tensorProto.getRawData() != null && tensorProto.getRawData().size() > 0)
-					? tensorProto.getRawData().toByteArray()
-					: PrimitiveUtil.toByteArrayFromFloats(tensorProto.getFloatDataList());
-			shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
-					: Shape.create(new Long(byteArray.length / DataType.FLOAT.getUnitSize()));
-			dataType = DataType.FLOAT;
-		} else if (TensorProto.DataType.INT32.getNumber() == tensorProto.getDataType()) {
-			byteArray = (tensorProto.getRawData() != null && tensorProto.getRawData().size() > 0)
-					? tensorProto.getRawData().toByteArray()
-					: PrimitiveUtil.toListToByteArrayFromInts(tensorProto.getInt32DataList());
-			shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
-					: Shape.create(new Long(byteArray.length / DataType.INT32.getUnitSize()));
-			dataType = DataType.INT32;
-		} else if (TensorProto.DataType.INT64.getNumber() == tensorProto.getDataType()) {
-			byteArray = (tensorProto.getRawData() != null && tensorProto.getRawData().size() > 0)
-					? tensorProto.getRawData().toByteArray()
-					: PrimitiveUtil.toListToByteArrayFromLongs(tensorProto.getInt64DataList());
-			shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
-					: Shape.create(new Long(byteArray.length / DataType.INT64.getUnitSize()));
-			dataType = DataType.INT64;
-		} else {
+		return TensorBuilder.builder(tensorProto, null, options);
+	}
+
+	/**
+	 * @param tensorProto
+	 * @param baseDir
+	 *            模型文件所在目录，用于解析external data的相对路径
+	 * @param options
+	 * @return
+	 */
+	public static TensorBuilder builder(TensorProto tensorProto, Path baseDir, Tensor.Options options) {
+		if (ExternalData.isExternal(tensorProto))
+			return TensorBuilder.externalBuilder(tensorProto, baseDir, options);
+
+		DataType dataType = TensorBuilder.dataTypeOf(tensorProto);
+		if (dataType.isVariableLength())
+			return TensorBuilder.stringBuilder(tensorProto, options);
+
+		ByteString rawData = tensorProto.getRawData();
+		boolean hasRawData = rawData != null && rawData.size() > 0;
+
+		int numElements = hasRawData ? rawData.size() / dataType.getUnitSize()
+				: TensorBuilder.typedDataCount(tensorProto, dataType);
+		Shape shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
+				: Shape.create(new Long(numElements));
+
+		if (shape.numElements() != numElements)
+			throw new IllegalArgumentException(String.format("Tensor \"%s\" has %s elements, but %s expected by %s",
+					tensorProto.getName(), numElements, shape.numElements(), shape));
+
+		TensorBuilder builder = hasRawData
+				? TensorBuilder.builder(dataType, shape, rawData.asReadOnlyByteBuffer(), options)
+				: TensorBuilder.builder(dataType, shape, options)
+						.write(dataBuffer -> TensorBuilder.putTypedData(dataBuffer, tensorProto, dataType));
+
+		return builder.name(tensorProto.getName()).docString(tensorProto.getDocString());
+	}
+
+	/**
+	 * 以raw_data的格式(小端字节序，STRING为{@link StringData}格式)的数据创建Tensor
+	 * 
+	 * rawData为direct buffer(如内存映射的模型文件)且Options为DIRECT、小端字节序时，直接以rawData的只读切片作为Tensor的数据，避免复制；
+	 * 此时rawData的内存由调用者负责释放，Tensor关闭时不做处理，调用者回收内存前应撤销options的{@link MemoryLease}
+	 * 
+	 * @param dataType
+	 * @param shape
+	 * @param rawData
+	 *            从position至limit的部分
+	 * @param options
+	 * @return
+	 */
+	public static TensorBuilder builder(DataType dataType, Shape shape, ByteBuffer rawData, Tensor.Options options) {
+		if (dataType.isVariableLength() == false && shape.numElements() * dataType.getUnitSize() != rawData.remaining())
+			throw new IllegalArgumentException(String.format("%s bytes can not be held by %s tensor shaped %s",
+					rawData.remaining(), dataType, shape));
+
+		ByteBuffer src = rawData.asReadOnlyBuffer().slice().order(ByteOrder.LITTLE_ENDIAN);
+		if (src.isDirect() && options != null && AllocationMode.HEAP != options.getAllocationMode()
+				&& BufferUtil.isAligned(src, options.getAlignment())
+				&& ByteOrder.LITTLE_ENDIAN.equals(options.getByteOrder()))
+			return TensorBuilder.builder(dataType, shape, src)
+					.deallocator(BufferDeallocator.NONE)
+					.lease(options.getMemoryLease());
+
+		return new TensorBuilder(dataType, shape, src.remaining(), options).write(dataBuffer -> {
+			if (dataType.isVariableLength())
+				StringData.copy(dataBuffer, src);
+			else
+				BufferUtil.copy(dataBuffer, src, dataType.getComponentSize());
+		});
+	}
+
+	/**
+	 * STRING类型按StringData的紧凑格式存放，不支持raw_data
+	 */
+	private static TensorBuilder stringBuilder(TensorProto tensorProto, Tensor.Options options) {
+		List<ByteString> values = tensorProto.getStringDataList();
+		Shape shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
+				: Shape.create(new Long(values.size()));
+
+		if (shape.numElements() != values.size())
+			throw new IllegalArgumentException(String.format("Tensor \"%s\" has %s elements, but %s expected by %s",
+					tensorProto.getName(), values.size(), shape.numElements(), shape));
+
+		return new TensorBuilder(DataType.STRING, shape, StringData.byteSize(values), options)
+				.name(tensorProto.getName())
+				.docString(tensorProto.getDocString())
+				.write(dataBuffer -> StringData.put(dataBuffer, values));
+	}
+
+	private static TensorBuilder externalBuilder(TensorProto tensorProto, Path baseDir, Tensor.Options options) {
+		DataType dataType = DataType.from(tensorProto.getDataType());
+		if (dataType == null || dataType.getUnitSize() <= 0)
 			throw new UnsupportedOperationException(
 					"Unsupported to handle data type: " + TensorProto.DataType.forNumber(tensorProto.getDataType()));
+
+		TensorStorage mappedStorage = ExternalData.from(tensorProto).mapStorage(baseDir);
+		Shape shape = (tensorProto.getDimsCount() > 0) ? Shape.create(tensorProto.getDimsList())
+				: Shape.create(new Long(mappedStorage.byteSize() / dataType.getUnitSize()));
+
+		if (mappedStorage.getChunkCount() > 1)
+			return TensorBuilder.largeExternalBuilder(tensorProto, dataType, shape, mappedStorage, options);
+
+		ByteBuffer mappedData = mappedStorage.chunk(0);
+
+		//
+		// 映射区域归该Tensor独占，Tensor关闭时解除映射
+		//
+		if (options != null && AllocationMode.HEAP != options.getAllocationMode()
+				&& ByteOrder.LITTLE_ENDIAN.equals(options.getByteOrder())
+				&& BufferUtil.isAligned(mappedData, options.getAlignment()))
+			return TensorBuilder
+					.builder(dataType, shape, mappedData)
+					.deallocator(BufferDeallocator.DIRECT)
+					.name(tensorProto.getName())
+					.docString(tensorProto.getDocString());
+
+		try {
+			return TensorBuilder
+					.builder(dataType, shape, options)
+					.name(tensorProto.getName())
+					.docString(tensorProto.getDocString())
+					.write(dataBuffer -> BufferUtil.copy(dataBuffer, mappedData, dataType.getComponentSize()));
+		} finally {
+			mappedStorage.release();
 		}
+	}
 
-		return TensorBuilder
-				.builder(dataType, shape, options)
-				.name(tensorProto.getName())
-				.docString(tensorProto.getDocString())
-				.put(byteArray);
+	/**
+	 * 超过2GB的外部数据，按块映射或复制
+	 */
+	private static TensorBuilder largeExternalBuilder(TensorProto tensorProto, DataType dataType, Shape shape,
+			TensorStorage mappedStorage, Tensor.Options options) {
+		if (shape.numElements() * dataType.getUnitSize() != mappedStorage.byteSize()) {
+			mappedStorage.release();
+			throw new IllegalArgumentException(String.format("%s bytes can not be held by %s tensor shaped %s",
+					mappedStorage.byteSize(), dataType, shape));
+		}
+
+		TensorBuilder builder = new TensorBuilder(dataType, shape, (ByteBuffer) null);
+		builder.name(tensorProto.getName()).docString(tensorProto.getDocString());
+
+		boolean aligned = true;
+		for (int n = 0; n < mappedStorage.getChunkCount() && options != null; n++) {
+			aligned &= BufferUtil.isAligned(mappedStorage.chunk(n), options.getAlignment());
+		}
+		if (options != null && AllocationMode.HEAP != options.getAllocationMode()
+				&& ByteOrder.LITTLE_ENDIAN.equals(options.getByteOrder()) && aligned) {
+			builder.storage = mappedStorage;
+			return builder;
+		}
+
+		try {
+			builder.storage = TensorStorage.allocate(mappedStorage.byteSize(), options);
+			for (int n = 0; n < mappedStorage.getChunkCount(); n++) {
+				BufferUtil.copy(builder.storage.getChunk(n), mappedStorage.getChunk(n), dataType.getComponentSize());
+			}
+			return builder;
+		} finally {
+			mappedStorage.release();
+		}
+	}
+
+	private static DataType dataTypeOf(TensorProto tensorProto) {
+		TensorProto.DataType protoDataType = TensorProto.DataType.forNumber(tensorProto.getDataType());
+		DataType dataType = (protoDataType != null) ? DataType.from(protoDataType) : null;
+
+		if (dataType == null)
+			throw new UnsupportedOperationException("Unsupported to handle data type: " + protoDataType);
+
+		return dataType;
+	}
+
+	/**
+	 * 返回未使用raw_data时，对应类型字段中的元素数量
+	 * 
+	 * 按ONNX的约定，8/16位整数、BOOL、FLOAT16和BFLOAT16存放于int32_data(FLOAT16及BFLOAT16为其位模式)，
+	 * UINT32和UINT64存放于uint64_data，复数按(实部, 虚部)成对存放
+	 */
+	private static int typedDataCount(TensorProto tensorProto, DataType dataType) {
+		switch (dataType) {
+		case FLOAT:
+			return tensorProto.getFloatDataCount();
+		case COMPLEX64:
+			return TensorBuilder.complexCount(tensorProto, tensorProto.getFloatDataCount(), dataType);
+		case DOUBLE:
+			return tensorProto.getDoubleDataCount();
+		case COMPLEX128:
+			return TensorBuilder.complexCount(tensorProto, tensorProto.getDoubleDataCount(), dataType);
+		case INT8:
+		case UINT8:
+		case BOOL:
+		case INT16:
+		case UINT16:
+		case FLOAT16:
+		case BFLOAT16:
+		case INT32:
+			return tensorProto.getInt32DataCount();
+		case INT64:
+			return tensorProto.getInt64DataCount();
+		case UINT32:
+		case UINT64:
+			return tensorProto.getUint64DataCount();
+		default:
+			throw new UnsupportedOperationException("Unsupported to handle data type: " + dataType);
+		}
 	}
+
+	/**
+	 * 复数的实部与虚部成对存放，分量个数必须为偶数
+	 */
+	private static int complexCount(TensorProto tensorProto, int componentCount, DataType dataType) {
+		if (componentCount % 2 != 0)
+			throw new IllegalArgumentException(
+					String.format("Tensor \"%s\" has %s components, which can not be paired into %s elements",
+							tensorProto.getName(), componentCount, dataType));
+
+		return componentCount / 2;
+	}
+
+	/**
+	 * 按下标逐个读取protobuf中的primitive列表(不装箱)，按元素的实际宽度写入dataBuffer对应类型的视图
+	 */
+	private static void putTypedData(ByteBuffer dataBuffer, TensorProto tensorProto, DataType dataType) {
+		switch (dataType) {
+		case FLOAT:
+		case COMPLEX64: {
+			FloatBuffer dst = dataBuffer.asFloatBuffer();
+			for (int n = 0; n < tensorProto.getFloatDataCount(); n++)
+				dst.put(n, tensorProto.getFloatData(n));
+			break;
+		}
+		case DOUBLE:
+		case COMPLEX128: {
+			DoubleBuffer dst = dataBuffer.asDoubleBuffer();
+			for (int n = 0; n < tensorProto.getDoubleDataCount(); n++)
+				dst.put(n, tensorProto.getDoubleData(n));
+			break;
+		}
+		case INT8:
+		case UINT8:
+		case BOOL: {
+			for (int n = 0; n < tensorProto.getInt32DataCount(); n++)
+				dataBuffer.put(n, (byte) tensorProto.getInt32Data(n));
+			break;
+		}
+		case INT16:
+		case UINT16:
+		case FLOAT16:
+		case BFLOAT16: {
+			ShortBuffer dst = dataBuffer.asShortBuffer();
+			for (int n = 0; n < tensorProto.getInt32DataCount(); n++)
+				dst.put(n, (short) tensorProto.getInt32Data(n));
+			break;
+		}
+		case INT32: {
+			IntBuffer dst = dataBuffer.asIntBuffer();
+			for (int n = 0; n < tensorProto.getInt32DataCount(); n++)
+				dst.put(n, tensorProto.getInt32Data(n));
+			break;
+		}
+		case UINT32: {
+			IntBuffer dst = dataBuffer.asIntBuffer();
+			for (int n = 0; n < tensorProto.getUint64DataCount(); n++)
+				dst.put(n, (int) tensorProto.getUint64Data(n));
+			break;
+		}
+		case INT64: {
+			LongBuffer dst = dataBuffer.asLongBuffer();
+			for (int n = 0; n < tensorProto.getInt64DataCount(); n++)
+				dst.put(n, tensorProto.getInt64Data(n));
+			break;
+		}
+		case UINT64: {
+			LongBuffer dst = dataBuffer.asLongBuffer();
+			for (int n = 0; n < tensorProto.getUint64DataCount(); n++)
+				dst.put(n, tensorProto.getUint64Data(n));
+			break;
+		}
+		default:
+			throw new UnsupportedOperationException("Unsupported to handle data type: " + dataType);
+		}
+	}
+
 }
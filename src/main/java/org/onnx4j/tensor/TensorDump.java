@@ -20,6 +20,8 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.onnx4j.Tensor;
+import org.onnx4j.Tensor.AllocationMode;
+import org.onnx4j.utils.HalfFloatUtil;
 
 public final class TensorDump {
 
@@ -29,6 +31,15 @@ public final class TensorDump {
 		for (int n = 0; n < shape.length; n++) {
 			shapeInInt[n] = (int) shape[n];
 		}
+		if (tensor.getMemoryBytes() > Integer.MAX_VALUE)
+			return "Tensor" + Arrays.toString(shape) + " = <" + tensor.getMemoryBytes() + " bytes>";
+
+		if (tensor.isContiguous() == false) {
+			try (Tensor contiguous = tensor.contiguous(Tensor.options().setAllocationMode(AllocationMode.HEAP))) {
+				return TensorDump.dump(contiguous);
+			}
+		}
+
 		ByteBuffer dataBuffer = tensor.getData();
 		return "Tensor" + Arrays.deepToString(shapeInInt) + " = \n" + TensorDump.dump(tensor, dataBuffer, 0, shapeInInt);
 	}
@@ -71,17 +82,44 @@ public final class TensorDump {
 			position += coords[n] * TensorDump.nbElements(tensor, n);
 		}
 
-		if (DataType.INT16.equals(tensor.getDataType())) {
+		switch (tensor.getDataType()) {
+		case BOOL:
+			return String.valueOf(dataBuffer.get(position) != 0);
+		case INT8:
+			return String.valueOf(dataBuffer.get(position));
+		case UINT8:
+			return String.valueOf(dataBuffer.get(position) & 0xFF);
+		case INT16:
 			return String.valueOf(dataBuffer.getShort(position * DataType.INT16.getUnitSize()));
-		} else if (DataType.INT32.equals(tensor.getDataType())) {
+		case UINT16:
+			return String.valueOf(dataBuffer.getShort(position * DataType.UINT16.getUnitSize()) & 0xFFFF);
+		case INT32:
 			return String.valueOf(dataBuffer.getInt(position * DataType.INT32.getUnitSize()));
-		} else if (DataType.INT64.equals(tensor.getDataType())) {
+		case UINT32:
+			return Integer.toUnsignedString(dataBuffer.getInt(position * DataType.UINT32.getUnitSize()));
+		case INT64:
 			return String.valueOf(dataBuffer.getLong(position * DataType.INT64.getUnitSize()));
-		} else if (DataType.DOUBLE.equals(tensor.getDataType())) {
-			return String.valueOf(dataBuffer.getDouble(position * DataType.DOUBLE.getUnitSize()));
-		} else if (DataType.FLOAT.equals(tensor.getDataType())) {
+		case UINT64:
+			return Long.toUnsignedString(dataBuffer.getLong(position * DataType.UINT64.getUnitSize()));
+		case FLOAT16:
+			return String.valueOf(
+					HalfFloatUtil.toFloat(dataBuffer.getShort(position * DataType.FLOAT16.getUnitSize())));
+		case BFLOAT16:
+			return String.valueOf(
+					HalfFloatUtil.bfloat16ToFloat(dataBuffer.getShort(position * DataType.BFLOAT16.getUnitSize())));
+		case FLOAT:
 			return String.valueOf(dataBuffer.getFloat(position * DataType.FLOAT.getUnitSize()));
-		} else {
+		case DOUBLE:
+			return String.valueOf(dataBuffer.getDouble(position * DataType.DOUBLE.getUnitSize()));
+		case COMPLEX64:
+			return dataBuffer.getFloat(position * DataType.COMPLEX64.getUnitSize()) + "+"
+					+ dataBuffer.getFloat(position * DataType.COMPLEX64.getUnitSize() + Float.BYTES) + "i";
+		case COMPLEX128:
+			return dataBuffer.getDouble(position * DataType.COMPLEX128.getUnitSize()) + "+"
+					+ dataBuffer.getDouble(position * DataType.COMPLEX128.getUnitSize() + Double.BYTES) + "i";
+		case STRING:
+			return "\"" + StringData.get(dataBuffer, position) + "\"";
+		default:
 			throw new UnsupportedOperationException(
 					String.format("%s not supported to be dump.", tensor.getDataType()));
 		}
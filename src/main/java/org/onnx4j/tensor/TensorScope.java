@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.onnx4j.Tensor;
+
+/**
+ * 与一次请求同生命周期的Tensor，由{@link TensorArena}分配，scope关闭时一次性释放，
+ * 不需要逐个注册到{@link org.onnx4j.TensorManager}或逐个关闭
+ * <p>
+ * scope可以嵌套：{@link TensorArena#open()}在最内层已打开的scope中打开新的scope，只有最内层的scope可以分配或关闭。
+ * 需要比scope存活更久的Tensor(如请求的输出)，通过{@link #escape(Tensor)}复制出来。
+ * 
+ * <pre>
+ * try (TensorScope scope = arena.open()) {
+ * 	Tensor hidden = scope.builder(DataType.FLOAT, shape).write(...).build();
+ * 	...
+ * 	return scope.escape(output);
+ * }
+ * </pre>
+ */
+public class TensorScope implements AutoCloseable {
+
+	private final TensorArena arena;
+	private final TensorScope parent;
+
+	//
+	// scope打开时arena的bump pointer
+	//
+	private final int markChunk;
+	private final int markOffset;
+	private final long markChunkBase;
+
+	//
+	// 从嵌套的scope中逃逸出来的Tensor，随此scope一同关闭
+	//
+	private List<Tensor> adopted;
+	private boolean closed = false;
+
+	//
+	// scope中的Tensor引用arena的内存，scope关闭后该内存将被重用或释放，撤销后这些Tensor不能再读取
+	//
+	private final MemoryLease memoryLease = new MemoryLease("a closed tensor scope");
+
+	TensorScope(TensorArena arena, TensorScope parent, int markChunk, int markOffset, long markChunkBase) {
+		this.arena = arena;
+		this.parent = parent;
+		this.markChunk = markChunk;
+		this.markOffset = markOffset;
+		this.markChunkBase = markChunkBase;
+	}
+
+	/**
+	 * 在arena的内存中创建Tensor，不需要单独关闭，其内存在scope关闭时回收
+	 * 
+	 * @param dataType
+	 *            定长类型
+	 * @param shape
+	 * @return
+	 */
+	public TensorBuilder builder(DataType dataType, Shape shape) {
+		this.checkInnermost();
+
+		if (dataType.isVariableLength())
+			throw new IllegalArgumentException(
+					String.format("Size of %s tensor is unknown until its values are given", dataType));
+
+		long size = Math.multiplyExact(shape.numElements(), (long) dataType.getUnitSize());
+		if (size <= 0 || size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", size));
+
+		return TensorBuilder
+				.builder(dataType, shape, this.arena.allocate((int) size))
+				.deallocator(BufferDeallocator.NONE)
+				.lease(this.memoryLease);
+	}
+
+	/**
+	 * 将Tensor复制到arena之外，使其在此scope关闭后仍然有效
+	 * 
+	 * 副本归上一层scope所有并随之关闭；从最外层scope逃逸时，按arena的options分配，由调用者负责关闭。
+	 * 
+	 * @param tensor
+	 * @return 副本
+	 */
+	public Tensor escape(Tensor tensor) {
+		this.checkInnermost();
+
+		//
+		// tensor不一定由arena分配，按其自身的字节序读取，再按options的字节序写入
+		//
+		Tensor escaped = TensorBuilder
+				.builder(tensor.getDataType(), Shape.create(tensor.getShape()), this.arena.getOptions())
+				.name(tensor.getName())
+				.docString(tensor.getDocString())
+				.write(dataBuffer -> tensor.copyTo(dataBuffer))
+				.build();
+
+		if (this.parent != null)
+			this.parent.adopt(escaped);
+
+		return escaped;
+	}
+
+	private void adopt(Tensor tensor) {
+		if (this.adopted == null)
+			this.adopted = new ArrayList<Tensor>();
+
+		this.adopted.add(tensor);
+	}
+
+	public TensorScope getParent() {
+		return this.parent;
+	}
+
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private void checkInnermost() {
+		if (this.closed)
+			throw new IllegalStateException("Scope has been closed");
+
+		if (this.arena.getInnermost() != this)
+			throw new IllegalStateException("Only the innermost scope can allocate, close the nested scopes first");
+	}
+
+	/**
+	 * 一次性释放scope中的所有Tensor，之后读取这些Tensor(包括其视图)将抛出IllegalStateException
+	 * 
+	 * @throws IllegalStateException
+	 *             仍有未关闭的嵌套scope
+	 */
+	@Override
+	public void close() {
+		if (this.closed)
+			return;
+
+		this.checkInnermost();
+		this.closed = true;
+		this.memoryLease.revoke();
+
+		if (this.adopted != null) {
+			for (Tensor tensor : this.adopted) {
+				tensor.close();
+			}
+			this.adopted = null;
+		}
+
+		this.arena.reset(this, this.markChunk, this.markOffset, this.markChunkBase);
+	}
+
+}
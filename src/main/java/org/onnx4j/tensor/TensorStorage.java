@@ -0,0 +1,380 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.onnx4j.Tensor;
+
+/**
+ * 以long字节偏移量访问的Tensor数据，用于单个{@link ByteBuffer}无法容纳(超过{@link Integer#MAX_VALUE}字节)的Tensor，如大型embedding表
+ * <p>
+ * 数据按2的幂次大小分块，单个值及批量的读写方法均对调用者隐藏分块：批量读写可以跨越任意多个块，
+ * 多于一个块时，单个值的偏移量必须是其自身大小的整数倍(Tensor的元素均满足)，因此不会有值跨越两个块。
+ * <p>
+ * 读写均使用绝对偏移量，不改变position，可由多个线程同时读取。
+ */
+public final class TensorStorage {
+
+	/**
+	 * 1GB，单个ByteBuffer能够容纳的最大的2的幂次
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+	private static final int SINGLE_CHUNK_SHIFT = 31;
+
+	private final ByteBuffer[] chunks;
+	private final BufferDeallocator[] deallocators;
+	private final int chunkShift;
+	private final long chunkMask;
+	private final long byteSize;
+	private final ByteOrder order;
+
+	private TensorStorage(ByteBuffer[] chunks, BufferDeallocator[] deallocators, int chunkShift, long byteSize,
+			ByteOrder order) {
+		this.chunks = chunks;
+		this.deallocators = deallocators;
+		this.chunkShift = chunkShift;
+		this.chunkMask = (1L << chunkShift) - 1;
+		this.byteSize = byteSize;
+		this.order = order;
+	}
+
+	/**
+	 * 将buffer作为只有一个块的storage，buffer仍归调用者所有，{@link #release()}不做处理
+	 */
+	public static TensorStorage wrap(ByteBuffer buffer) {
+		ByteBuffer chunk = buffer.slice().order(buffer.order());
+		return new TensorStorage(new ByteBuffer[] { chunk }, new BufferDeallocator[] { BufferDeallocator.NONE },
+				SINGLE_CHUNK_SHIFT, chunk.capacity(), buffer.order());
+	}
+
+	public static TensorStorage allocate(long byteSize, Tensor.Options options) {
+		return TensorStorage.allocate(byteSize, DEFAULT_CHUNK_SIZE, options);
+	}
+
+	/**
+	 * 按options指定的分配方式、对齐方式及字节序分配各个块
+	 * 
+	 * @param byteSize
+	 * @param chunkSize
+	 *            2的幂次
+	 * @param options
+	 * @return
+	 */
+	public static TensorStorage allocate(long byteSize, int chunkSize, Tensor.Options options) {
+		TensorStorage.checkChunkSize(chunkSize);
+		if (byteSize <= 0)
+			throw new IllegalArgumentException(String.format("Can not to allocate memory with size=%s", byteSize));
+
+		int chunkCount = (int) ((byteSize + chunkSize - 1) / chunkSize);
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+		BufferDeallocator[] deallocators = new BufferDeallocator[chunkCount];
+		try {
+			for (int n = 0; n < chunkCount; n++) {
+				int size = (int) Math.min(chunkSize, byteSize - (long) n * chunkSize);
+				BufferPool.Allocation allocation = TensorBuilder.allocate(size, options);
+				chunks[n] = allocation.getBuffer().order(options.getByteOrder());
+				deallocators[n] = allocation.getDeallocator();
+			}
+		} catch (RuntimeException | Error e) {
+			TensorStorage.release(chunks, deallocators);
+			throw e;
+		}
+
+		return new TensorStorage(chunks, deallocators, Integer.numberOfTrailingZeros(chunkSize), byteSize,
+				options.getByteOrder());
+	}
+
+	/**
+	 * 以小端字节序只读映射文件的一部分，超过{@link Integer#MAX_VALUE}字节时才分块
+	 */
+	public static TensorStorage map(FileChannel channel, long offset, long length) throws IOException {
+		if (length <= Integer.MAX_VALUE)
+			return TensorStorage.map(channel, offset, length, Integer.MAX_VALUE, SINGLE_CHUNK_SHIFT);
+
+		return TensorStorage.map(channel, offset, length, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * 以小端字节序只读映射文件的一部分，由{@link #release()}解除映射
+	 * 
+	 * @param chunkSize
+	 *            2的幂次
+	 */
+	public static TensorStorage map(FileChannel channel, long offset, long length, int chunkSize)
+			throws IOException {
+		TensorStorage.checkChunkSize(chunkSize);
+		return TensorStorage.map(channel, offset, length, chunkSize, Integer.numberOfTrailingZeros(chunkSize));
+	}
+
+	private static TensorStorage map(FileChannel channel, long offset, long length, int chunkSize, int chunkShift)
+			throws IOException {
+		int chunkCount = (int) Math.max(1, (length + chunkSize - 1) / chunkSize);
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+		BufferDeallocator[] deallocators = new BufferDeallocator[chunkCount];
+		try {
+			for (int n = 0; n < chunkCount; n++) {
+				long size = Math.min(chunkSize, length - (long) n * chunkSize);
+				chunks[n] = channel.map(MapMode.READ_ONLY, offset + (long) n * chunkSize, size)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				deallocators[n] = BufferDeallocator.DIRECT;
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			TensorStorage.release(chunks, deallocators);
+			throw e;
+		}
+
+		return new TensorStorage(chunks, deallocators, chunkShift, length, ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void checkChunkSize(int chunkSize) {
+		if (chunkSize < Long.BYTES || (chunkSize & (chunkSize - 1)) != 0)
+			throw new IllegalArgumentException("Chunk size must be a power of 2 not less than 8: " + chunkSize);
+	}
+
+	public long byteSize() {
+		return this.byteSize;
+	}
+
+	public ByteOrder order() {
+		return this.order;
+	}
+
+	public int getChunkCount() {
+		return this.chunks.length;
+	}
+
+	/**
+	 * @return 共享数据的块，字节序与storage相同
+	 */
+	public ByteBuffer getChunk(int index) {
+		return this.chunks[index].duplicate().order(this.order);
+	}
+
+	/**
+	 * @return 块的起始字节偏移量
+	 */
+	public long getChunkOffset(int index) {
+		return (long) index << this.chunkShift;
+	}
+
+	ByteBuffer chunk(int index) {
+		return this.chunks[index];
+	}
+
+	BufferDeallocator deallocator(int index) {
+		return this.deallocators[index];
+	}
+
+	private ByteBuffer chunkAt(long offset, int size) {
+		if (offset < 0 || offset + size > this.byteSize)
+			throw new IndexOutOfBoundsException(
+					String.format("[%s, +%s) is out of storage with %s bytes", offset, size, this.byteSize));
+		if (this.chunks.length > 1 && (offset & (size - 1)) != 0)
+			throw new IllegalArgumentException(
+					String.format("Offset %s of a %s-byte value is unaligned in chunked storage", offset, size));
+
+		return this.chunks[(int) (offset >>> this.chunkShift)];
+	}
+
+	private int positionOf(long offset) {
+		return (int) (offset & this.chunkMask);
+	}
+
+	public byte get(long offset) {
+		return this.chunkAt(offset, Byte.BYTES).get(this.positionOf(offset));
+	}
+
+	public TensorStorage put(long offset, byte value) {
+		this.chunkAt(offset, Byte.BYTES).put(this.positionOf(offset), value);
+		return this;
+	}
+
+	public short getShort(long offset) {
+		return this.chunkAt(offset, Short.BYTES).getShort(this.positionOf(offset));
+	}
+
+	public TensorStorage putShort(long offset, short value) {
+		this.chunkAt(offset, Short.BYTES).putShort(this.positionOf(offset), value);
+		return this;
+	}
+
+	public int getInt(long offset) {
+		return this.chunkAt(offset, Integer.BYTES).getInt(this.positionOf(offset));
+	}
+
+	public TensorStorage putInt(long offset, int value) {
+		this.chunkAt(offset, Integer.BYTES).putInt(this.positionOf(offset), value);
+		return this;
+	}
+
+	public long getLong(long offset) {
+		return this.chunkAt(offset, Long.BYTES).getLong(this.positionOf(offset));
+	}
+
+	public TensorStorage putLong(long offset, long value) {
+		this.chunkAt(offset, Long.BYTES).putLong(this.positionOf(offset), value);
+		return this;
+	}
+
+	public float getFloat(long offset) {
+		return this.chunkAt(offset, Float.BYTES).getFloat(this.positionOf(offset));
+	}
+
+	public TensorStorage putFloat(long offset, float value) {
+		this.chunkAt(offset, Float.BYTES).putFloat(this.positionOf(offset), value);
+		return this;
+	}
+
+	public double getDouble(long offset) {
+		return this.chunkAt(offset, Double.BYTES).getDouble(this.positionOf(offset));
+	}
+
+	public TensorStorage putDouble(long offset, double value) {
+		this.chunkAt(offset, Double.BYTES).putDouble(this.positionOf(offset), value);
+		return this;
+	}
+
+	public TensorStorage get(long offset, byte[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Byte.BYTES,
+				(chunk, done, count) -> chunk.get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, byte[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Byte.BYTES,
+				(chunk, done, count) -> chunk.put(src, srcOffset + done, count));
+	}
+
+	public TensorStorage get(long offset, short[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Short.BYTES,
+				(chunk, done, count) -> chunk.asShortBuffer().get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, short[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Short.BYTES,
+				(chunk, done, count) -> chunk.asShortBuffer().put(src, srcOffset + done, count));
+	}
+
+	public TensorStorage get(long offset, int[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Integer.BYTES,
+				(chunk, done, count) -> chunk.asIntBuffer().get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, int[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Integer.BYTES,
+				(chunk, done, count) -> chunk.asIntBuffer().put(src, srcOffset + done, count));
+	}
+
+	public TensorStorage get(long offset, long[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Long.BYTES,
+				(chunk, done, count) -> chunk.asLongBuffer().get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, long[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Long.BYTES,
+				(chunk, done, count) -> chunk.asLongBuffer().put(src, srcOffset + done, count));
+	}
+
+	public TensorStorage get(long offset, float[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Float.BYTES,
+				(chunk, done, count) -> chunk.asFloatBuffer().get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, float[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Float.BYTES,
+				(chunk, done, count) -> chunk.asFloatBuffer().put(src, srcOffset + done, count));
+	}
+
+	public TensorStorage get(long offset, double[] dst, int dstOffset, int length) {
+		return this.bulk(offset, length, Double.BYTES,
+				(chunk, done, count) -> chunk.asDoubleBuffer().get(dst, dstOffset + done, count));
+	}
+
+	public TensorStorage put(long offset, double[] src, int srcOffset, int length) {
+		return this.bulk(offset, length, Double.BYTES,
+				(chunk, done, count) -> chunk.asDoubleBuffer().put(src, srcOffset + done, count));
+	}
+
+	@FunctionalInterface
+	private interface ChunkAccess {
+
+		/**
+		 * @param chunk
+		 *            position位于第一个要访问的值
+		 * @param done
+		 *            在之前的块中已访问的值的数量
+		 * @param count
+		 *            在此块中要访问的值的数量
+		 */
+		void access(ByteBuffer chunk, int done, int count);
+
+	}
+
+	private TensorStorage bulk(long offset, int length, int valueSize, ChunkAccess access) {
+		if (length < 0)
+			throw new IllegalArgumentException("Negative length: " + length);
+		if (length == 0)
+			return this;
+
+		long byteLength = (long) length * valueSize;
+		this.chunkAt(offset, valueSize);
+		if (offset + byteLength > this.byteSize)
+			throw new IndexOutOfBoundsException(
+					String.format("[%s, +%s) is out of storage with %s bytes", offset, byteLength, this.byteSize));
+
+		int done = 0;
+		while (done < length) {
+			ByteBuffer chunk = this.chunks[(int) (offset >>> this.chunkShift)].duplicate().order(this.order);
+			chunk.position(this.positionOf(offset));
+			int count = Math.min(length - done, chunk.remaining() / valueSize);
+			access.access(chunk, done, count);
+			done += count;
+			offset += (long) count * valueSize;
+		}
+		return this;
+	}
+
+	/**
+	 * 释放归此storage所有的块
+	 * 
+	 * @return 有块无法释放时返回false
+	 */
+	public boolean release() {
+		return TensorStorage.release(this.chunks, this.deallocators);
+	}
+
+	private static boolean release(ByteBuffer[] chunks, BufferDeallocator[] deallocators) {
+		boolean released = true;
+		for (int n = 0; n < chunks.length; n++) {
+			if (chunks[n] != null && deallocators[n] != null)
+				released &= deallocators[n].deallocate(chunks[n]);
+			chunks[n] = null;
+		}
+		return released;
+	}
+
+	@Override
+	public String toString() {
+		return "TensorStorage [byteSize=" + byteSize + ", chunks=" + chunks.length + ", order=" + order + "]";
+	}
+
+}
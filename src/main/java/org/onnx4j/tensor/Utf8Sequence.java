@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 引用STRING元素UTF-8字节(不复制)的{@link CharSequence}
+ * 
+ * 预处理图中常见的ASCII文本直接由字节读取，其他文本在首次访问时解码为char。
+ * <p>
+ * 只在所读取的Tensor关闭之前有效，可通过{@link StringArray#get(int, Utf8Sequence)}重用于其他元素。
+ */
+public final class Utf8Sequence implements CharSequence, Comparable<Utf8Sequence> {
+
+	private ByteBuffer buffer;
+	private int from;
+	private int to;
+
+	//
+	// 检查之前为null，之后ASCII文本为空数组，其他文本为解码后的char
+	//
+	private char[] chars;
+
+	private static final char[] ASCII = new char[0];
+
+	public Utf8Sequence() {
+		this.reset(ByteBuffer.allocate(0), 0, 0);
+	}
+
+	Utf8Sequence(ByteBuffer buffer, int from, int to) {
+		this.reset(buffer, from, to);
+	}
+
+	Utf8Sequence reset(ByteBuffer buffer, int from, int to) {
+		this.buffer = buffer;
+		this.from = from;
+		this.to = to;
+		this.chars = null;
+		return this;
+	}
+
+	private char[] decoded() {
+		char[] chars = this.chars;
+		if (chars == null) {
+			chars = ASCII;
+			for (int n = this.from; n < this.to; n++) {
+				if (this.buffer.get(n) < 0) {
+					CharBuffer decoded = StandardCharsets.UTF_8.decode(this.getBytes());
+					chars = new char[decoded.remaining()];
+					decoded.get(chars);
+					break;
+				}
+			}
+			this.chars = chars;
+		}
+		return chars;
+	}
+
+	public boolean isAscii() {
+		return this.decoded() == ASCII;
+	}
+
+	/**
+	 * @return UTF-8字节，不复制
+	 */
+	public ByteBuffer getBytes() {
+		ByteBuffer bytes = this.buffer.duplicate();
+		bytes.limit(this.to).position(this.from);
+		return bytes.slice();
+	}
+
+	public int byteLength() {
+		return this.to - this.from;
+	}
+
+	@Override
+	public int length() {
+		char[] chars = this.decoded();
+		return (chars == ASCII) ? this.to - this.from : chars.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		char[] chars = this.decoded();
+		if (chars != ASCII)
+			return chars[index];
+
+		if (index < 0 || index >= this.to - this.from)
+			throw new IndexOutOfBoundsException(
+					String.format("Index %s out of %s chars", index, this.to - this.from));
+
+		return (char) this.buffer.get(this.from + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end < start || end > this.length())
+			throw new IndexOutOfBoundsException(
+					String.format("Range [%s, %s) out of %s chars", start, end, this.length()));
+
+		char[] chars = this.decoded();
+		return (chars == ASCII) ? new Utf8Sequence(this.buffer, this.from + start, this.from + end)
+				: CharBuffer.wrap(chars, start, end - start);
+	}
+
+	/**
+	 * @return 两者的char相同时返回true，如与String比较
+	 */
+	public boolean contentEquals(CharSequence other) {
+		if (other instanceof Utf8Sequence)
+			return this.getBytes().equals(((Utf8Sequence) other).getBytes());
+
+		int length = this.length();
+		if (other == null || other.length() != length)
+			return false;
+
+		for (int n = 0; n < length; n++) {
+			if (this.charAt(n) != other.charAt(n))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 比较UTF-8字节，其顺序与code point的顺序一致
+	 */
+	@Override
+	public int compareTo(Utf8Sequence other) {
+		int length = Math.min(this.byteLength(), other.byteLength());
+		for (int n = 0; n < length; n++) {
+			int diff = (this.buffer.get(this.from + n) & 0xFF) - (other.buffer.get(other.from + n) & 0xFF);
+			if (diff != 0)
+				return diff;
+		}
+		return this.byteLength() - other.byteLength();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Utf8Sequence && this.contentEquals((Utf8Sequence) obj);
+	}
+
+	/**
+	 * @return 与相同文本的{@link String#hashCode()}相同
+	 */
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int n = 0, length = this.length(); n < length; n++) {
+			hash = 31 * hash + this.charAt(n);
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		char[] chars = this.decoded();
+		return (chars == ASCII) ? StandardCharsets.US_ASCII.decode(this.getBytes()).toString() : new String(chars);
+	}
+
+}
@@ -25,6 +25,11 @@ public class ValueInfo {
 	private DataType dataType;
 	private Shape shape;
 
+	//
+	// 量化类型(INT8/UINT8/INT32)的scale及zero point，非量化数据为null
+	//
+	private QuantizationParams quantization;
+
 	public static ValueInfo toValueInfo(ValueInfoProto valueInfoProto) {
 		TensorProto.DataType dataTypeProto = TensorProto.DataType
 				.forNumber(valueInfoProto.getType().getTensorType()
@@ -41,6 +46,15 @@ public class ValueInfo {
 		this.shape = shape;
 	}
 
+	public ValueInfo(DataType dataType, Shape shape, QuantizationParams quantization) {
+		this(dataType, shape);
+
+		if (quantization != null)
+			quantization.check(dataType, shape);
+
+		this.quantization = quantization;
+	}
+
 	public DataType getDataType() {
 		return dataType;
 	}
@@ -49,6 +63,14 @@ public class ValueInfo {
 		return shape;
 	}
 	
+	public QuantizationParams getQuantization() {
+		return quantization;
+	}
+
+	public boolean isQuantized() {
+		return this.quantization != null;
+	}
+
 	public int getRank() {
 		return this.shape.dims();
 	}
@@ -13,6 +13,11 @@ public final class BufferUtil {
 	public static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.UTF_8);
 	public static final ByteOrder NATIVE_BYTE_ORDER = ByteOrder.nativeOrder();
 	public static final long ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+	public static final long SHORT_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(short[].class);
+	public static final long INT_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
+	public static final long LONG_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(long[].class);
+	public static final long FLOAT_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(float[].class);
+	public static final long DOUBLE_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(double[].class);
 	public static final long BYTE_BUFFER_HB_FIELD_OFFSET;
 	public static final long BYTE_BUFFER_OFFSET_FIELD_OFFSET;
 	public static final long BYTE_BUFFER_ADDRESS_FIELD_OFFSET;
@@ -126,19 +131,120 @@ public final class BufferUtil {
 	 *             if the alignment is not a power of 2.
 	 */
 	public static ByteBuffer allocateDirectAligned(final int capacity, final int alignment) {
-		/*if (!isPowerOfTwo(alignment)) {
+		if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
 			throw new IllegalArgumentException("Must be a power of 2: alignment=" + alignment);
-		}*/
+		}
 
-		final ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + alignment);
+		return alignedSlice(ByteBuffer.allocateDirect(capacity + alignment - 1), capacity, alignment);
+	}
 
+	/**
+	 * Take the aligned part of a direct buffer allocated with
+	 * {@code capacity + alignment - 1} bytes. Unlike
+	 * {@link #allocateDirectAligned(int, int)}, the caller keeps the original
+	 * buffer and can deallocate it explicitly.
+	 *
+	 * @param buffer
+	 *            direct buffer with at least capacity + alignment - 1 bytes.
+	 * @param capacity
+	 *            required for the slice.
+	 * @param alignment
+	 *            boundary at which the slice should begin, a power of 2.
+	 * @return a slice of buffer with the required alignment.
+	 */
+	public static ByteBuffer alignedSlice(final ByteBuffer buffer, final int capacity, final int alignment) {
 		final long address = address(buffer);
 		final int remainder = (int) (address & (alignment - 1));
-		final int offset = alignment - remainder;
+		final int offset = (alignment - remainder) & (alignment - 1);
+
+		final ByteBuffer aligned = buffer.duplicate();
+		aligned.limit(capacity + offset);
+		aligned.position(offset);
 
-		buffer.limit(capacity + offset);
-		buffer.position(offset);
+		return aligned.slice();
+	}
 
-		return buffer.slice();
+	/**
+	 * Check whether the storage of a buffer begins at an alignment boundary.
+	 *
+	 * @param buffer
+	 *            buffer to be checked.
+	 * @param alignment
+	 *            boundary in bytes, a power of 2; 0 or 1 means no alignment.
+	 * @return true if the alignment is not required, or the buffer is direct
+	 *         and aligned.
+	 */
+	public static boolean isAligned(final ByteBuffer buffer, final int alignment) {
+		if (alignment <= 1) {
+			return true;
+		}
+
+		return buffer.isDirect() && (address(buffer) & (alignment - 1)) == 0;
+	}
+
+	/**
+	 * Copy bytes of a buffer in native byte order into a primitive array with
+	 * one bulk memory copy, instead of reading them value by value.
+	 *
+	 * @param src
+	 *            direct or heap buffer, read at absolute positions.
+	 * @param index
+	 *            byte index in src at which the copy begins.
+	 * @param dst
+	 *            primitive array to be written.
+	 * @param dstOffset
+	 *            offset in bytes from the base of dst, see
+	 *            {@link sun.misc.Unsafe#arrayBaseOffset(Class)}.
+	 * @param length
+	 *            bytes to be copied, the caller checks the bounds of dst.
+	 * @return false if src is not in native byte order and nothing is copied.
+	 */
+	public static boolean copyToArray(final ByteBuffer src, final int index, final Object dst, final long dstOffset,
+			final int length) {
+		if (!src.order().equals(NATIVE_BYTE_ORDER) && !(dst instanceof byte[])) {
+			return false;
+		}
+
+		boundsCheck(src, index, length);
+		if (src.isDirect()) {
+			UNSAFE.copyMemory(null, address(src) + index, dst, dstOffset, length);
+		} else {
+			UNSAFE.copyMemory(array(src), ARRAY_BASE_OFFSET + arrayOffset(src) + index, dst, dstOffset, length);
+		}
+		return true;
+	}
+
+	/**
+	 * Copy the remaining bytes of src into dst at its position, converting the
+	 * byte order of every component when the orders of two buffers differ.
+	 *
+	 * @param dst
+	 *            buffer to be written.
+	 * @param src
+	 *            buffer to be read, remains unchanged.
+	 * @param componentSize
+	 *            size in bytes of the values which byte order applies to.
+	 */
+	public static void copy(final ByteBuffer dst, final ByteBuffer src, final int componentSize) {
+		final ByteBuffer from = src.duplicate().order(src.order());
+		if (componentSize == Byte.BYTES || from.order().equals(dst.order())) {
+			dst.put(from);
+			return;
+		}
+
+		switch (componentSize) {
+		case Short.BYTES:
+			dst.asShortBuffer().put(from.asShortBuffer());
+			break;
+		case Integer.BYTES:
+			dst.asIntBuffer().put(from.asIntBuffer());
+			break;
+		case Long.BYTES:
+			dst.asLongBuffer().put(from.asLongBuffer());
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported component size: " + componentSize);
+		}
+		dst.position(dst.position() + from.remaining());
 	}
 }
@@ -1,31 +1,75 @@
 package org.onnx4j.utils;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
+/**
+ * Releases the native memory of a direct buffer immediately instead of waiting
+ * for the GC.
+ * <p>
+ * On JDK 9 and later the memory is released by
+ * {@code sun.misc.Unsafe.invokeCleaner(ByteBuffer)}, which is exported by the
+ * jdk.unsupported module; on JDK 8 by the {@code sun.misc.Cleaner} of the
+ * buffer. The method handles are resolved once when this class is loaded.
+ * <p>
+ * Only a buffer which owns its memory, i.e. not a slice or duplicate of
+ * another buffer, can be released.
+ */
 public class DirectBufferDealloc {
 
-	protected static final Class<?> directBufferClass;
-	protected static final Method getCleanerMethod;
-	protected static final Method getAttachmentMethod;
+	/**
+	 * (ByteBuffer)void, JDK 9+
+	 */
+	private static final MethodHandle invokeCleanerHandle;
 
-	protected static final Class<?> cleanerClass;
-	protected static final Method doCleanMethod;
+	/**
+	 * (Object)Object, JDK 8
+	 */
+	private static final MethodHandle getCleanerHandle;
+	private static final MethodHandle getAttachmentHandle;
 
-	static {
-		try {
-			directBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
-			getCleanerMethod = directBufferClass.getMethod("cleaner");
-			getAttachmentMethod = directBufferClass.getMethod("attachment");
+	/**
+	 * (Object)void, JDK 8
+	 */
+	private static final MethodHandle doCleanHandle;
 
-			cleanerClass = Class.forName("sun.misc.Cleaner");
-			doCleanMethod = cleanerClass.getMethod("clean");
-		} catch (ClassNotFoundException | NoSuchMethodException e) {
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle invokeCleaner = null;
+		MethodHandle getCleaner = null;
+		MethodHandle getAttachment = null;
+		MethodHandle doClean = null;
 
-			throw new RuntimeException(e);
+		try {
+			invokeCleaner = lookup
+					.findVirtual(UnsafeAccess.UNSAFE.getClass(), "invokeCleaner",
+							MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(UnsafeAccess.UNSAFE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			try {
+				Class<?> directBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
+				Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+				getCleaner = lookup.findVirtual(directBufferClass, "cleaner", MethodType.methodType(cleanerClass))
+						.asType(MethodType.methodType(Object.class, Object.class));
+				getAttachment = lookup
+						.findVirtual(directBufferClass, "attachment", MethodType.methodType(Object.class))
+						.asType(MethodType.methodType(Object.class, Object.class));
+				doClean = lookup.findVirtual(cleanerClass, "clean", MethodType.methodType(void.class))
+						.asType(MethodType.methodType(void.class, Object.class));
+			} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException ex) {
+				ex.addSuppressed(e);
+				throw new ExceptionInInitializerError(ex);
+			}
 		}
+
+		invokeCleanerHandle = invokeCleaner;
+		getCleanerHandle = getCleaner;
+		getAttachmentHandle = getAttachment;
+		doCleanHandle = doClean;
 	}
 
 	public static void deallocateDirectBuffers(Collection<? extends Buffer> directBuffers) {
@@ -49,23 +93,35 @@ public class DirectBufferDealloc {
 	}
 
 	public static boolean deallocateDirectBuffer0(Object directBuffer) {
-		if (directBufferClass.isInstance(directBuffer)) {
+		if (directBuffer instanceof ByteBuffer == false || ((ByteBuffer) directBuffer).isDirect() == false)
+			return false;
+
+		if (invokeCleanerHandle != null) {
 			try {
-				Object cleaner = getCleanerMethod.invoke(directBuffer);
-				if (cleanerClass.isInstance(cleaner)) {
-					doCleanMethod.invoke(cleaner);
-				} else {
-					return false;
-				}
-
-				Object attachment = getAttachmentMethod.invoke(directBuffer);
-				deallocateDirectBuffer0(attachment);
+				invokeCleanerHandle.invokeExact((ByteBuffer) directBuffer);
 				return true;
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			} catch (IllegalArgumentException e) {
+				//
+				// slice or duplicate
+				//
+				return false;
+			} catch (Throwable e) {
 				throw new RuntimeException(e);
 			}
-		} else {
-			return false;
+		}
+
+		try {
+			Object cleaner = (Object) getCleanerHandle.invokeExact(directBuffer);
+			if (cleaner == null)
+				return false;
+
+			doCleanHandle.invokeExact(cleaner);
+
+			Object attachment = (Object) getAttachmentHandle.invokeExact(directBuffer);
+			deallocateDirectBuffer0(attachment);
+			return true;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.utils;
+
+import java.nio.ShortBuffer;
+
+/**
+ * float与IEEE 754半精度(binary16)之间的转换，半精度以short保存其原始的位；
+ * 以及float与bfloat16(float的高16位)之间的转换
+ * <p>
+ * 批量转换在常见情况下每个元素没有依赖数据的分支：半精度转float查表，float转半精度或bfloat16以整数运算舍入，
+ * 只有少见的值(非规格化数、溢出、NaN)才交给逐个元素的转换
+ */
+public class HalfFloatUtil {
+
+	/**
+	 * 每个半精度位模式对应的float，首次批量转换时创建
+	 */
+	private static class HalfTable {
+
+		private static final float[] TO_FLOAT = new float[1 << 16];
+
+		static {
+			for (int n = 0; n < TO_FLOAT.length; n++) {
+				TO_FLOAT[n] = HalfFloatUtil.toFloat((short) n);
+			}
+		}
+
+	}
+
+	public static float toFloat(short half) {
+		int bits = half & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x3FF;
+
+		if (exponent == 0x1F)
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+
+		if (exponent == 0) {
+			if (mantissa == 0)
+				return Float.intBitsToFloat(sign);
+
+			// 非规格化数，先规格化
+			exponent = 1;
+			while ((mantissa & 0x400) == 0) {
+				mantissa <<= 1;
+				exponent--;
+			}
+			mantissa &= 0x3FF;
+		}
+
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+	}
+
+	/**
+	 * 舍入到最接近的半精度值，恰在中间时取偶数
+	 */
+	public static short fromFloat(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xFF;
+		int mantissa = bits & 0x7FFFFF;
+
+		if (exponent == 0xFF)
+			return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 | (mantissa >>> 13) : 0));
+
+		int halfExponent = exponent - 112;
+		if (halfExponent >= 0x1F)
+			return (short) (sign | 0x7C00);
+
+		if (halfExponent <= 0) {
+			if (halfExponent < -10)
+				return (short) sign;
+
+			// 非规格化数
+			mantissa |= 0x800000;
+			int shift = 14 - halfExponent;
+			int halfMantissa = mantissa >>> shift;
+			int remainder = mantissa & ((1 << shift) - 1);
+			int halfway = 1 << (shift - 1);
+			if (remainder > halfway || (remainder == halfway && (halfMantissa & 1) != 0))
+				halfMantissa++;
+			return (short) (sign | halfMantissa);
+		}
+
+		int half = (halfExponent << 10) | (mantissa >>> 13);
+		int remainder = mantissa & 0x1FFF;
+		if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0))
+			half++;
+		return (short) (sign | half);
+	}
+
+	/**
+	 * 将src中从绝对位置srcIndex开始的length个半精度值转换为float写入dst，不改变src的position
+	 */
+	public static void toFloat(ShortBuffer src, int srcIndex, float[] dst, int dstOffset, int length) {
+		HalfFloatUtil.checkRange(src.limit(), srcIndex, dst.length, dstOffset, length);
+
+		float[] table = HalfTable.TO_FLOAT;
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = table[src.get(srcIndex + n) & 0xFFFF];
+	}
+
+	/**
+	 * 将src中的length个float舍入到最接近的半精度值(恰在中间时取偶数)，从绝对位置dstIndex开始写入dst，不改变dst的position
+	 */
+	public static void fromFloat(float[] src, int srcOffset, ShortBuffer dst, int dstIndex, int length) {
+		HalfFloatUtil.checkRange(src.length, srcOffset, dst.limit(), dstIndex, length);
+
+		for (int n = 0; n < length; n++) {
+			int bits = Float.floatToRawIntBits(src[srcOffset + n]);
+			int magnitude = bits & 0x7FFFFFFF;
+
+			//
+			// 规格化的半精度值，即float的指数在[113, 142]之间：调整指数的偏移并对舍弃的13位舍入，
+			// 进位到指数时恰好舍入为下一个数量级或无穷大
+			//
+			if (magnitude >= 0x38800000 && magnitude < 0x47800000) {
+				int rebiased = magnitude - 0x38000000;
+				dst.put(dstIndex + n, (short) (((bits >>> 16) & 0x8000)
+						| ((rebiased + 0xFFF + ((rebiased >>> 13) & 1)) >>> 13)));
+			} else {
+				dst.put(dstIndex + n, HalfFloatUtil.fromFloat(src[srcOffset + n]));
+			}
+		}
+	}
+
+	public static float bfloat16ToFloat(short bfloat16) {
+		return Float.intBitsToFloat(bfloat16 << 16);
+	}
+
+	/**
+	 * 舍入到最接近的bfloat16值，恰在中间时取偶数；NaN仍为NaN
+	 */
+	public static short floatToBFloat16(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		if ((bits & 0x7FFFFFFF) > 0x7F800000)
+			return (short) ((bits >>> 16) | 0x40);
+
+		return (short) ((bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16);
+	}
+
+	/**
+	 * 将src中从绝对位置srcIndex开始的length个bfloat16值转换为float写入dst，不改变src的position
+	 */
+	public static void bfloat16ToFloat(ShortBuffer src, int srcIndex, float[] dst, int dstOffset, int length) {
+		HalfFloatUtil.checkRange(src.limit(), srcIndex, dst.length, dstOffset, length);
+
+		for (int n = 0; n < length; n++)
+			dst[dstOffset + n] = Float.intBitsToFloat(src.get(srcIndex + n) << 16);
+	}
+
+	/**
+	 * 将src中的length个float按{@link #floatToBFloat16(float)}转换，从绝对位置dstIndex开始写入dst，不改变dst的position
+	 */
+	public static void floatToBFloat16(float[] src, int srcOffset, ShortBuffer dst, int dstIndex, int length) {
+		HalfFloatUtil.checkRange(src.length, srcOffset, dst.limit(), dstIndex, length);
+
+		for (int n = 0; n < length; n++)
+			dst.put(dstIndex + n, HalfFloatUtil.floatToBFloat16(src[srcOffset + n]));
+	}
+
+	private static void checkRange(int srcLength, int srcOffset, int dstLength, int dstOffset, int length) {
+		if (length < 0 || srcOffset < 0 || srcOffset > srcLength - length || dstOffset < 0
+				|| dstOffset > dstLength - length)
+			throw new IndexOutOfBoundsException(String.format("Can not convert [%s, +%s) of %s to [%s, +%s) of %s",
+					srcOffset, length, srcLength, dstOffset, length, dstLength));
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onnx4j.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 对象变为phantom reachable时执行清理，作为本应显式释放的本地资源的兜底
+ * <p>
+ * JDK 9及以上使用{@code java.lang.ref.Cleaner}，JDK 8使用{@code sun.misc.Cleaner}，均只通过method handle查找一次，同一构建可在两者上运行。
+ * action不能引用所注册的对象，否则该对象永远不会变为phantom reachable；
+ * action在清理线程(JDK 8为reference handler线程)中执行，应尽量简短且不能抛出异常，此处捕获并记录所有异常。
+ */
+public final class ResourceCleaner {
+
+	private static Logger logger = LoggerFactory.getLogger(ResourceCleaner.class);
+
+	/**
+	 * 已注册的action，在其对象变为phantom reachable时执行
+	 */
+	@FunctionalInterface
+	public interface Cleanable {
+
+		/**
+		 * 取消注册并执行action，总共最多执行一次
+		 */
+		void clean();
+
+	}
+
+	/**
+	 * (Object, Runnable)Object
+	 */
+	private static final MethodHandle registerHandle;
+
+	/**
+	 * (Object)void
+	 */
+	private static final MethodHandle cleanHandle;
+
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle register;
+		MethodHandle clean;
+
+		try {
+			Class<?> cleanerClass = Class.forName("java.lang.ref.Cleaner");
+			Class<?> cleanableClass = Class.forName("java.lang.ref.Cleaner$Cleanable");
+			Object cleaner = lookup.findStatic(cleanerClass, "create", MethodType.methodType(cleanerClass))
+					.invoke();
+			register = lookup
+					.findVirtual(cleanerClass, "register",
+							MethodType.methodType(cleanableClass, Object.class, Runnable.class))
+					.bindTo(cleaner);
+			clean = lookup.findVirtual(cleanableClass, "clean", MethodType.methodType(void.class));
+		} catch (ClassNotFoundException e) {
+			try {
+				Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+				register = lookup.findStatic(cleanerClass, "create",
+						MethodType.methodType(cleanerClass, Object.class, Runnable.class));
+				clean = lookup.findVirtual(cleanerClass, "clean", MethodType.methodType(void.class));
+			} catch (ReflectiveOperationException ex) {
+				ex.addSuppressed(e);
+				throw new ExceptionInInitializerError(ex);
+			}
+		} catch (Throwable e) {
+			throw new ExceptionInInitializerError(e);
+		}
+
+		registerHandle = register.asType(MethodType.methodType(Object.class, Object.class, Runnable.class));
+		cleanHandle = clean.asType(MethodType.methodType(void.class, Object.class));
+	}
+
+	private ResourceCleaner() {
+	}
+
+	/**
+	 * @param object
+	 *            跟踪其可达性的对象
+	 * @param action
+	 *            由{@link Cleanable#clean()}或在object变为phantom reachable之后执行一次
+	 * @return
+	 */
+	public static Cleanable register(Object object, Runnable action) {
+		Runnable safeAction = () -> {
+			try {
+				action.run();
+			} catch (Throwable e) {
+				logger.error("Cleanup action failed", e);
+			}
+		};
+
+		Object registration;
+		try {
+			registration = (Object) registerHandle.invokeExact(object, safeAction);
+		} catch (Throwable e) {
+			throw new IllegalStateException("Can not register cleanup action", e);
+		}
+
+		return () -> {
+			try {
+				cleanHandle.invokeExact(registration);
+			} catch (Throwable e) {
+				throw new IllegalStateException("Can not run cleanup action", e);
+			}
+		};
+	}
+
+}
@@ -17,14 +17,43 @@
 package org.onnx4j;
 
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.onnx4j.exceptions.ModelException;
+import org.onnx4j.exceptions.ModelException.ModelExceptionEnums;
 import org.onnx4j.model.Graph;
+import org.onnx4j.model.graph.Constant;
 import org.onnx4j.model.graph.Node;
 import org.onnx4j.model.graph.exchanges.GraphOutput;
+import org.onnx4j.model.graph.node.Attribute;
+import org.onnx4j.prototypes.OnnxProto3.GraphProto;
+import org.onnx4j.prototypes.OnnxProto3.ModelProto;
+import org.onnx4j.prototypes.OnnxProto3.StringStringEntryProto;
+import org.onnx4j.prototypes.OnnxProto3.TensorAnnotation;
+import org.onnx4j.prototypes.OnnxProto3.TensorProto;
+import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.MemoryBudget;
+import org.onnx4j.tensor.QuantizationParams;
+import org.onnx4j.tensor.SharedTensorStore;
+import org.onnx4j.utils.BufferUtil;
 
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.ImmutableGraph;
+import com.google.protobuf.ByteString;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -71,7 +100,463 @@ public class ModelTest extends TestCase {
 			model.close();
 		}
 	}
+
+	public void testMemoryMetrics() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+
+		//
+		// 每个模型在全局预算之下有各自的预算，关闭后其Tensor占用的内存全部归还
+		//
+		MemoryBudget budget;
+		try (Model model = new Model(modelPath); Model other = new Model(modelPath)) {
+			budget = (MemoryBudget) model.getMemoryMetrics();
+			assertSame(MemoryBudget.getGlobal(), budget.getParent());
+			assertNotSame(budget, other.getMemoryMetrics());
+			try (Model unbudgeted = new Model(modelPath, Tensor.options().setMemoryBudget(null))) {
+				assertNull(unbudgeted.getMemoryMetrics());
+			}
+		}
+		assertEquals(0L, budget.getUsedBytes());
+	}
 	
+	public void testLoadMapped() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+
+		Tensor view;
+		try (Model streamed = new Model(modelPath); Model mapped = new Model(Paths.get(modelPath))) {
+			Constant[] expectedConstants = streamed.getGraph().getConstants();
+			Constant[] actualConstants = mapped.getGraph().getConstants();
+			assertEquals(expectedConstants.length, actualConstants.length);
+
+			long lowest = Long.MAX_VALUE, highest = Long.MIN_VALUE;
+			for (int n = 0; n < expectedConstants.length; n++) {
+				Tensor expected = expectedConstants[n].getTensor();
+				Tensor actual = actualConstants[n].getTensor();
+				assertEquals(expected.getName(), actual.getName());
+				assertTrue(expected.equals(actual.getValueInfo()));
+				assertEquals(expected.getData(), actual.getData());
+
+				//
+				// 零拷贝：数据直接引用映射区域，均落在模型文件大小的范围之内
+				//
+				assertNull(expected.getMemoryLease());
+				assertSame(mapped.getTensorOptions().getMemoryLease(), actual.getMemoryLease());
+				long address = BufferUtil.address(actual.getData());
+				lowest = Math.min(lowest, address);
+				highest = Math.max(highest, address + actual.getMemoryBytes());
+			}
+			assertTrue(highest - lowest <= Files.size(Paths.get(modelPath)));
+
+			//
+			// 两种加载方式均分别记录读取与解析的耗时
+			//
+			for (Model model : new Model[] { streamed, mapped }) {
+				assertTrue(model.getLoadTimings().get(LoadTimings.Phase.READ, TimeUnit.NANOSECONDS) > 0);
+				assertTrue(model.getLoadTimings().get(LoadTimings.Phase.PARSE, TimeUnit.NANOSECONDS) > 0);
+			}
+
+			view = actualConstants[0].getTensor().reshape(-1);
+			assertEquals(actualConstants[0].getTensor().getByte(0L), view.getByte(0L));
+		}
+
+		//
+		// 模型关闭后映射区域已解除，视图不能再读取
+		//
+		try {
+			view.getByte(0L);
+			fail("read after the mapping is released");
+		} catch (IllegalStateException e) {
+		} finally {
+			view.close();
+		}
+	}
+
+	public void testLoadLazily() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+
+		try (Model model = new Model(Paths.get(modelPath), Model.options().setLazyConstants(true))) {
+			for (Constant constant : model.getGraph().getConstants()) {
+				assertFalse(constant.isMaterialized());
+				assertNotNull(constant.getTensor());
+				assertTrue(constant.isMaterialized());
+				assertSame(constant.getTensor(), model.getTensorManager().get(constant.getName()));
+			}
+		}
+
+		Model.Options options = Model.options().setLazyConstants(true).setPrefetchConstants(true);
+		try (Model model = new Model(Paths.get(modelPath), options)) {
+			model.prefetchConstants().get();
+			for (Constant constant : model.getGraph().getConstants()) {
+				assertTrue(constant.isMaterialized());
+			}
+		}
+
+		//
+		// 模型关闭后不能再加载常量
+		//
+		Model closed;
+		try (Model model = new Model(Paths.get(modelPath), Model.options().setLazyConstants(true))) {
+			closed = model;
+		}
+		for (Constant constant : closed.getGraph().getConstants()) {
+			try {
+				constant.getTensor();
+				fail("Constant loaded after its model is closed");
+			} catch (IllegalStateException e) {
+			}
+		}
+	}
+
+	public void testLoadInParallel() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+
+		try (Model sequential = new Model(Paths.get(modelPath));
+				Model parallel = new Model(Paths.get(modelPath), Model.options().setLoadParallelism(4))) {
+			Constant[] expectedConstants = sequential.getGraph().getConstants();
+			Constant[] actualConstants = parallel.getGraph().getConstants();
+			assertEquals(expectedConstants.length, actualConstants.length);
+
+			for (int n = 0; n < expectedConstants.length; n++) {
+				assertTrue(actualConstants[n].isMaterialized());
+				assertEquals(expectedConstants[n].getName(), actualConstants[n].getName());
+				assertEquals(expectedConstants[n].getTensor().getData(), actualConstants[n].getTensor().getData());
+				assertSame(actualConstants[n].getTensor(),
+						parallel.getTensorManager().get(actualConstants[n].getName()));
+			}
+
+			assertTrue(parallel.getLoadTimings().get(LoadTimings.Phase.PARSE, TimeUnit.NANOSECONDS) > 0);
+			assertTrue(parallel.getLoadTimings().get(LoadTimings.Phase.CONSTANTS, TimeUnit.NANOSECONDS) > 0);
+		}
+	}
+
+	public void testCancelLoadInParallel() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+
+		//
+		// simple_tf.onnx只有一个常量，会按顺序加载；补充若干常量使loadAll在ForkJoinPool中并行加载
+		//
+		ModelProto modelProto = ModelProto.parseFrom(Files.readAllBytes(Paths.get(modelPath)));
+		GraphProto.Builder graphBuilder = modelProto.getGraph().toBuilder();
+		for (int n = 0; n < 64; n++) {
+			graphBuilder.addInitializer(TensorProto.newBuilder().setName("c" + n)
+					.setDataType(TensorProto.DataType.FLOAT_VALUE).addDims(256L)
+					.setRawData(ByteString.copyFrom(new byte[256 * Float.BYTES])));
+		}
+		Path parallelModelPath = Files.createTempFile("simple_tf", ".onnx");
+		Files.write(parallelModelPath, modelProto.toBuilder().setGraph(graphBuilder).build().toByteArray());
+
+		AtomicInteger loadedConstants = new AtomicInteger();
+		AtomicInteger lateConstants = new AtomicInteger();
+		AtomicBoolean thrown = new AtomicBoolean();
+		LoadListener listener = new LoadListener() {
+
+			@Override
+			public void onConstantsLoaded(int loaded, int total) {
+				loadedConstants.incrementAndGet();
+				if (thrown.get())
+					lateConstants.incrementAndGet();
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return loadedConstants.get() > 0;
+			}
+
+		};
+
+		try (Model model = new Model(parallelModelPath,
+				Model.options().setLoadParallelism(4).setLoadListener(listener))) {
+			fail("Loading should have been cancelled");
+		} catch (CancellationException e) {
+			thrown.set(true);
+		} finally {
+			Files.deleteIfExists(parallelModelPath);
+		}
+
+		//
+		// 构造函数抛出异常前已等待所有加载线程结束，此后不会再有常量完成加载
+		//
+		Thread.sleep(100L);
+		assertTrue(loadedConstants.get() > 0);
+		assertEquals(0, lateConstants.get());
+	}
+
+	public void testCache() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+		Path cachePath = Files.createTempFile("simple_tf", ".onnx4j");
+
+		try (Model model = new Model(modelPath)) {
+			ModelCache.save(model, cachePath);
+
+			try (Model cached = ModelCache.open(cachePath)) {
+				assertEquals(model.getIrVersion(), cached.getIrVersion());
+				assertEquals(model.getOpsetIds()[0].getId(), cached.getOpsetIds()[0].getId());
+
+				List<Node> expectedNodes = model.getGraph().getSortedNodes();
+				List<Node> actualNodes = cached.getGraph().getSortedNodes();
+				assertEquals(expectedNodes.size(), actualNodes.size());
+				for (int n = 0; n < expectedNodes.size(); n++) {
+					Node expected = expectedNodes.get(n);
+					Node actual = actualNodes.get(n);
+					assertEquals(expected.getOpType(), actual.getOpType());
+					assertTrue(Arrays.equals(expected.getInputNames(), actual.getInputNames()));
+					assertTrue(Arrays.equals(expected.getOutputNames(), actual.getOutputNames()));
+					for (Attribute<?> attr : expected.getAttrs().getAttrs()) {
+						if (attr.getValue() instanceof Tensor == false)
+							assertEquals(attr.getValue(), actual.getAttrs().getAttr(attr.getName()).getValue());
+					}
+					assertEquals(model.getGraph().successors(expectedNodes.get(n)).size(),
+							cached.getGraph().successors(actualNodes.get(n)).size());
+				}
+
+				Constant[] expectedConstants = model.getGraph().getConstants();
+				Constant[] actualConstants = cached.getGraph().getConstants();
+				assertEquals(expectedConstants.length, actualConstants.length);
+				for (int n = 0; n < expectedConstants.length; n++) {
+					Tensor expected = expectedConstants[n].getTensor();
+					Tensor actual = actualConstants[n].getTensor();
+					assertEquals(expected.getName(), actual.getName());
+					assertTrue(expected.equals(actual.getValueInfo()));
+					assertEquals(expected.getData(), actual.getData());
+				}
+
+				GraphOutput[] outputs = cached.getGraph().getOutputs();
+				assertEquals(model.getGraph().getOutputs().length, outputs.length);
+				assertEquals(model.getGraph().getOutputs()[0].getNode().getName(), outputs[0].getNode().getName());
+			}
+
+			//
+			// 缓存中的模型同样需要检查IR版本，元数据依次为docString(长度及UTF-8字节)和irVersion
+			//
+			ByteBuffer cache = ByteBuffer.wrap(Files.readAllBytes(cachePath));
+			int docStringLength = cache.getInt(64);
+			cache.putLong(64 + Integer.BYTES + Math.max(docStringLength, 0), Long.MAX_VALUE);
+			Files.write(cachePath, cache.array());
+			try (Model cached = ModelCache.open(cachePath)) {
+				fail("ModelException expected");
+			} catch (ModelException e) {
+				assertEquals(ModelExceptionEnums.IR_VER_UNSUPPORTED.getErrorCode(), e.getErrorCode());
+			}
+		} finally {
+			Files.deleteIfExists(cachePath);
+		}
+	}
+
+	public void testLoadAsync() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+		AtomicLong parsedBytes = new AtomicLong();
+		AtomicInteger builtNodes = new AtomicInteger();
+		AtomicInteger loadedConstants = new AtomicInteger();
+		AtomicReference<Thread> loaderThread = new AtomicReference<Thread>();
+		LoadListener listener = new LoadListener() {
+
+			@Override
+			public void onBytesParsed(long parsed, long total) {
+				parsedBytes.set(parsed);
+				loaderThread.set(Thread.currentThread());
+			}
+
+			@Override
+			public void onNodesBuilt(int built, int total) {
+				builtNodes.set(built);
+			}
+
+			@Override
+			public void onConstantsLoaded(int loaded, int total) {
+				loadedConstants.set(loaded);
+			}
+
+		};
+
+		try (Model model = Model.loadAsync(Paths.get(modelPath), Model.options().setLoadListener(listener)).get()) {
+			assertEquals(Files.size(Paths.get(modelPath)), parsedBytes.get());
+			assertEquals(model.getGraph().getSortedNodes().size(), builtNodes.get());
+			assertEquals(model.getGraph().getConstants().length, loadedConstants.get());
+			assertTrue(loaderThread.get().isDaemon());
+			assertTrue(loaderThread.get().getName().startsWith("onnx4j-loader-"));
+		}
+
+		CompletableFuture<?>[] cancelling = new CompletableFuture<?>[1];
+		CountDownLatch started = new CountDownLatch(1);
+		CompletableFuture<Model> future = Model.loadAsync(Paths.get(modelPath),
+				Model.options().setLoadListener(new LoadListener() {
+
+					@Override
+					public void onBytesParsed(long parsed, long total) {
+						try {
+							started.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						cancelling[0].cancel(false);
+					}
+
+				}));
+		cancelling[0] = future;
+		started.countDown();
+
+		try {
+			future.get();
+			fail("Loading should have been cancelled");
+		} catch (CancellationException e) {
+			assertTrue(future.isCancelled());
+		}
+
+		try {
+			new Model(Paths.get(modelPath + ".missing"));
+			fail("Missing model should not be loaded");
+		} catch (ModelException e) {
+			assertEquals(ModelExceptionEnums.MODEL_NOT_EXISTS.getErrorCode(), e.getErrorCode());
+		}
+	}
+
+	public void testSharedTensorStore() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+		MemoryBudget budget = new MemoryBudget("shared", Long.MAX_VALUE, MemoryBudget.Policy.FAIL, 0L);
+		SharedTensorStore store = new SharedTensorStore(budget);
+		Model.Options options = Model.options().setSharedTensorStore(store)
+				.setTensorOptions(Tensor.options().setMemoryBudget(budget));
+
+		Model model = new Model(modelPath, options);
+		int sharedBuffers = store.size();
+		long sharedBytes = store.getMemoryBytes();
+		assertTrue(sharedBuffers > 0);
+
+		//
+		// 共享的数据计入store的预算，不计入首先加载它的模型
+		//
+		assertEquals(sharedBytes, budget.getUsedBytes());
+		assertEquals(0L, model.getMemoryMetrics().getUsedBytes());
+
+		try (Model variant = new Model(modelPath, options)) {
+			assertEquals(sharedBuffers, store.size());
+			assertEquals(sharedBytes, store.getMemoryBytes());
+			assertEquals(sharedBytes, budget.getUsedBytes());
+			assertEquals(0L, variant.getMemoryMetrics().getUsedBytes());
+
+			Constant[] constants = model.getGraph().getConstants();
+			Constant[] variantConstants = variant.getGraph().getConstants();
+			for (int n = 0; n < constants.length; n++) {
+				assertEquals(BufferUtil.address(constants[n].getTensor().getData()),
+						BufferUtil.address(variantConstants[n].getTensor().getData()));
+			}
+			ByteBuffer expected = ByteBuffer.allocate((int) constants[0].getTensor().getMemoryBytes());
+			expected.put(constants[0].getTensor().getData()).flip();
+
+			model.close();
+			assertEquals(sharedBuffers, store.size());
+			assertEquals(sharedBytes, budget.getUsedBytes());
+			assertEquals(expected, variantConstants[0].getTensor().getData());
+		}
+		assertEquals(0, store.size());
+		assertEquals(0L, budget.getUsedBytes());
+	}
+
+	public void testQuantizationAnnotation() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+		ModelProto modelProto = ModelProto.parseFrom(Files.readAllBytes(Paths.get(modelPath)));
+
+		//
+		// INT8权重按轴0量化，scale及zero point均为常量；另一标注指向非常量，应被忽略
+		//
+		GraphProto graphProto = modelProto.getGraph().toBuilder()
+				.addInitializer(TensorProto.newBuilder().setName("q_w").setDataType(TensorProto.DataType.INT8_VALUE)
+						.addDims(2L).addDims(3L).addInt32Data(-1).addInt32Data(0).addInt32Data(1)
+						.addInt32Data(-128).addInt32Data(0).addInt32Data(127))
+				.addInitializer(TensorProto.newBuilder().setName("q_scale")
+						.setDataType(TensorProto.DataType.FLOAT_VALUE).addDims(2L).addFloatData(0.5f)
+						.addFloatData(2f))
+				.addInitializer(TensorProto.newBuilder().setName("q_zp").setDataType(TensorProto.DataType.INT8_VALUE)
+						.addDims(2L).addInt32Data(0).addInt32Data(1))
+				.addQuantizationAnnotation(TensorAnnotation.newBuilder().setTensorName("q_w")
+						.addQuantParameterTensorNames(
+								StringStringEntryProto.newBuilder().setKey("SCALE_TENSOR").setValue("q_scale"))
+						.addQuantParameterTensorNames(
+								StringStringEntryProto.newBuilder().setKey("ZERO_POINT_TENSOR").setValue("q_zp")))
+				.addQuantizationAnnotation(TensorAnnotation.newBuilder().setTensorName("q_zp")
+						.addQuantParameterTensorNames(
+								StringStringEntryProto.newBuilder().setKey("SCALE_TENSOR").setValue("missing")))
+				.build();
+
+		try (Model model = new Model(modelProto.toBuilder().setGraph(graphProto).build(), Tensor.options())) {
+			QuantizationParams expected = QuantizationParams.perAxis(DataType.INT8, 0, new float[] { 0.5f, 2f },
+					new long[] { 0L, 1L });
+			for (Constant constant : model.getGraph().getConstants()) {
+				if ("q_w".equals(constant.getName()))
+					assertEquals(expected, constant.getTensor().getQuantization());
+				else
+					assertNull(constant.getTensor().getQuantization());
+			}
+
+			//
+			// 量化参数随权重写入缓存
+			//
+			Path cachePath = Files.createTempFile("quantized", ".onnx4j");
+			try {
+				ModelCache.save(model, cachePath);
+				try (Model cached = ModelCache.open(cachePath)) {
+					Constant[] expectedConstants = model.getGraph().getConstants();
+					Constant[] actualConstants = cached.getGraph().getConstants();
+					for (int n = 0; n < expectedConstants.length; n++) {
+						assertEquals(expectedConstants[n].getTensor().getQuantization(),
+								actualConstants[n].getTensor().getQuantization());
+					}
+				}
+			} finally {
+				Files.deleteIfExists(cachePath);
+			}
+		}
+	}
+
+	public void testModelHandle() throws Exception {
+		String modelPath = URLDecoder.decode(ModelTest.class.getResource("/simple_tf.onnx").getFile(), "utf-8");
+		Model first = new Model(modelPath);
+		Model second = new Model(modelPath);
+
+		try (ModelHandle handle = new ModelHandle(first)) {
+			ModelHandle.Pin pin = handle.pin();
+			assertSame(first, pin.getModel());
+
+			CompletableFuture<Void> retired = handle.swap(second);
+			assertEquals(2, handle.getVersion());
+			assertFalse(retired.isDone());
+			assertFalse(first.isClosed());
+
+			try (ModelHandle.Pin next = handle.pin()) {
+				assertSame(second, next.getModel());
+			}
+
+			pin.close();
+			pin.close();
+			assertTrue(retired.isDone());
+			assertTrue(first.isClosed());
+			assertFalse(second.isClosed());
+
+			//
+			// 多个线程同时关闭同一个Pin，只释放一次引用，不会关闭仍被ModelHandle持有的Model
+			//
+			ModelHandle.Pin shared = handle.pin();
+			CountDownLatch start = new CountDownLatch(1);
+			Thread[] closers = new Thread[8];
+			for (int n = 0; n < closers.length; n++) {
+				closers[n] = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					shared.close();
+				});
+				closers[n].start();
+			}
+			start.countDown();
+			for (Thread closer : closers)
+				closer.join();
+			assertFalse(second.isClosed());
+		}
+		assertTrue(second.isClosed());
+	}
+
 	private void handle(Graph g, Node node) {
 		Set<Node> set = g.predecessors(node);
 		for (Node predecessorNode : set) {
@@ -16,6 +16,18 @@
  */
 package org.onnx4j;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 import org.onnx4j.tensor.DataType;
 import org.onnx4j.tensor.Shape;
@@ -37,4 +49,150 @@ public class TensorManagerTest {
 		}
 	}
 
+	@Test
+	public void testConcurrentAttach() throws Exception {
+		TensorManager<Tensor> tsMgr = new TensorManager<Tensor>() {
+
+			@Override
+			protected void dispose(Tensor tensor) {
+				tensor.close();
+			}
+
+			@Override
+			protected long sizeOf(Tensor tensor) {
+				return tensor.getMemoryBytes();
+			}
+
+		};
+
+		int threads = 8, tensorsPerThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				for (int n = 0; n < tensorsPerThread; n++) {
+					Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options())
+							.name(thread + "-" + n).manager(tsMgr).build();
+					if (n % 2 == 1) {
+						tsMgr.detach(tensor.getName());
+						tensor.close();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(threads * tensorsPerThread / 2, tsMgr.getLiveCount());
+		assertEquals(threads * tensorsPerThread / 2 * 16L, tsMgr.getLiveBytes());
+		assertEquals(threads * tensorsPerThread / 2, tsMgr.get().size());
+
+		tsMgr.close();
+		assertTrue(tsMgr.isClosed());
+		assertEquals(0L, tsMgr.getLiveCount());
+		assertEquals(0L, tsMgr.getLiveBytes());
+
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options()).build()) {
+			tsMgr.attach("late", tensor);
+			fail("Attaching to a closed TensorManager should fail");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testConcurrentAttachWithSameName() throws Exception {
+		TensorManager<Tensor> tsMgr = new TensorManager<Tensor>() {
+
+			@Override
+			protected void dispose(Tensor tensor) {
+				tensor.close();
+			}
+
+			@Override
+			protected long sizeOf(Tensor tensor) {
+				return tensor.getMemoryBytes();
+			}
+
+		};
+
+		//
+		// 每个请求线程以相同的名称attach各自的Tensor，用完后只收回并关闭自己的Tensor
+		//
+		int threads = 8, tensorsPerThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				for (int n = 0; n < tensorsPerThread; n++) {
+					Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options())
+							.name("output").manager(tsMgr).build();
+					assertTrue(tsMgr.detach("output", tensor));
+					assertFalse(tsMgr.detach("output", tensor));
+					tensor.close();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(0L, tsMgr.getLiveCount());
+		assertEquals(0L, tsMgr.getLiveBytes());
+		assertTrue(tsMgr.get().isEmpty());
+
+		//
+		// 同名的Tensor互不影响，收回其中一个后另一个仍被管理并在close时释放
+		//
+		Tensor first = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options()).name("output")
+				.manager(tsMgr).build();
+		Tensor second = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options()).name("output")
+				.manager(tsMgr).build();
+		assertEquals(2L, tsMgr.getLiveCount());
+		assertTrue(tsMgr.detach("output", first));
+		assertEquals(1L, tsMgr.getLiveCount());
+		assertEquals(16L, tsMgr.getLiveBytes());
+		first.close();
+
+		tsMgr.close();
+		assertEquals(0L, tsMgr.getLiveCount());
+		try {
+			second.getData();
+			fail("Tensor should have been released by close()");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testDetachWithOtherName() throws Exception {
+		TensorManager<Tensor> tsMgr = new TensorManager<Tensor>() {
+
+			@Override
+			protected void dispose(Tensor tensor) {
+				tensor.close();
+			}
+
+		};
+
+		//
+		// 名称不符时不收回，Tensor仍可按原名称获取，并在close时释放
+		//
+		Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(4L), Tensor.options()).name("output")
+				.manager(tsMgr).build();
+		assertFalse(tsMgr.detach("other", tensor));
+		assertEquals(1L, tsMgr.getLiveCount());
+		assertSame(tensor, tsMgr.get("output"));
+
+		tsMgr.close();
+		assertEquals(0L, tsMgr.getLiveCount());
+		try {
+			tensor.getData();
+			fail("Tensor should have been released by close()");
+		} catch (IllegalStateException e) {
+		}
+	}
+
 }
\ No newline at end of file
@@ -17,19 +17,53 @@
 package org.onnx4j;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
 
 import org.junit.Test;
+import org.onnx4j.prototypes.OnnxProto3.StringStringEntryProto;
+import org.onnx4j.prototypes.OnnxProto3.TensorProto;
+import org.onnx4j.exceptions.ModelException;
+import org.onnx4j.exceptions.ModelException.ModelExceptionEnums;
+import org.onnx4j.exceptions.TensorException;
+import org.onnx4j.exceptions.TensorException.NodeExceptionEnums;
+import org.onnx4j.tensor.BufferPool;
 import org.onnx4j.tensor.DataType;
+import org.onnx4j.tensor.MemoryBudget;
+import org.onnx4j.tensor.QuantizationParams;
 import org.onnx4j.tensor.Shape;
+import org.onnx4j.tensor.SparseTensor;
+import org.onnx4j.tensor.StringArray;
+import org.onnx4j.tensor.StringData;
+import org.onnx4j.tensor.TensorArena;
 import org.onnx4j.tensor.TensorBuilder;
+import org.onnx4j.tensor.TensorScope;
+import org.onnx4j.tensor.TensorStorage;
+import org.onnx4j.tensor.Utf8Sequence;
 import org.onnx4j.utils.BufferUtil;
+import org.onnx4j.utils.DirectBufferDealloc;
+import org.onnx4j.utils.HalfFloatUtil;
 import org.onnx4j.utils.UnsafeAccess;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+
 /**
  * Unit test for Tensor.class
  */
@@ -63,6 +97,864 @@ public class TensorTest {
 		}
 	}
 
+	@Test
+	public void testExternalData() throws Exception {
+		Path rootDir = Files.createTempDirectory("onnx4j");
+		Path baseDir = Files.createDirectory(rootDir.resolve("model"));
+		try {
+			Path dataPath = baseDir.resolve("weights.bin");
+			ByteBuffer weights = ByteBuffer.allocate(16 + 6 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			weights.position(16);
+			for (int n = 0; n < 6; n++) {
+				weights.putFloat(n * 0.5f);
+			}
+			Files.write(dataPath, weights.array());
+
+			TensorProto tensorProto = TensorProto.newBuilder()
+					.setName("w")
+					.setDataType(TensorProto.DataType.FLOAT_VALUE)
+					.addDims(2L).addDims(3L)
+					.setDataLocation(TensorProto.DataLocation.EXTERNAL)
+					.addExternalData(StringStringEntryProto.newBuilder().setKey("location").setValue("weights.bin"))
+					.addExternalData(StringStringEntryProto.newBuilder().setKey("offset").setValue("16"))
+					.addExternalData(StringStringEntryProto.newBuilder().setKey("length").setValue("24"))
+					.build();
+
+			Tensor.Options[] optionsList = { Tensor.options().setByteOrder(ByteOrder.LITTLE_ENDIAN),
+					Tensor.options().setByteOrder(ByteOrder.LITTLE_ENDIAN).setAllocationMode(Tensor.AllocationMode.HEAP) };
+			for (Tensor.Options options : optionsList) {
+				try (Tensor tensor = TensorBuilder.builder(tensorProto, baseDir, options).build()) {
+					assertEquals(Shape.create(2L, 3L), tensor.getValueInfo().getShape());
+					assertEquals(24L, tensor.getMemoryBytes());
+					for (int n = 0; n < 6; n++) {
+						assertEquals(n * 0.5f, tensor.getData().getFloat(n * Float.BYTES), 0f);
+					}
+				}
+			}
+
+			//
+			// 不允许引用模型所在目录之外的文件
+			//
+			Path secretPath = Files.write(rootDir.resolve("secret.bin"), new byte[6 * Float.BYTES]);
+			Files.createSymbolicLink(baseDir.resolve("link.bin"), secretPath);
+			Files.createSymbolicLink(baseDir.resolve("outside"), rootDir);
+			for (String location : new String[] { "../secret.bin", "sub/../../secret.bin",
+					secretPath.toAbsolutePath().toString(), "link.bin", "outside/secret.bin" }) {
+				TensorProto traversal = tensorProto.toBuilder().clearExternalData()
+						.addExternalData(StringStringEntryProto.newBuilder().setKey("location").setValue(location))
+						.build();
+				try {
+					TensorBuilder.builder(traversal, baseDir, Tensor.options()).build().close();
+					fail("external data out of the directory of model: " + location);
+				} catch (ModelException e) {
+					assertEquals(ModelExceptionEnums.EXTERNAL_DATA_UNRESOLVABLE.getErrorCode(), e.getErrorCode());
+				}
+			}
+		} finally {
+			try (Stream<Path> paths = Files.walk(rootDir)) {
+				for (Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTypedData() throws Exception {
+		Tensor.Options[] optionsList = { Tensor.options().setByteOrder(ByteOrder.LITTLE_ENDIAN),
+				Tensor.options().setByteOrder(ByteOrder.BIG_ENDIAN).setAllocationMode(Tensor.AllocationMode.HEAP) };
+		for (Tensor.Options options : optionsList) {
+			TensorProto floats = TensorProto.newBuilder().setDataType(TensorProto.DataType.FLOAT_VALUE)
+					.addDims(2L).addDims(2L).addFloatData(0.5f).addFloatData(1f).addFloatData(1.5f).addFloatData(2f)
+					.build();
+			try (Tensor tensor = TensorBuilder.builder(floats, options).build()) {
+				assertEquals(Shape.create(2L, 2L), tensor.getValueInfo().getShape());
+				assertEquals(1.5f, tensor.getData().getFloat(2 * Float.BYTES), 0f);
+			}
+
+			TensorProto longs = TensorProto.newBuilder().setDataType(TensorProto.DataType.INT64_VALUE)
+					.addInt64Data(-1L).addInt64Data(Long.MAX_VALUE).build();
+			try (Tensor tensor = TensorBuilder.builder(longs, options).build()) {
+				assertEquals(Shape.create(2L), tensor.getValueInfo().getShape());
+				assertEquals(Long.MAX_VALUE, tensor.getData().getLong(Long.BYTES));
+			}
+
+			TensorProto doubles = TensorProto.newBuilder().setDataType(TensorProto.DataType.DOUBLE_VALUE)
+					.addDoubleData(0.25d).addDoubleData(-4d).build();
+			try (Tensor tensor = TensorBuilder.builder(doubles, options).build()) {
+				assertEquals(-4d, tensor.getData().getDouble(Double.BYTES), 0d);
+			}
+
+			TensorProto uints = TensorProto.newBuilder().setDataType(TensorProto.DataType.UINT32_VALUE)
+					.addUint64Data(0xFFFFFFFFL).build();
+			try (Tensor tensor = TensorBuilder.builder(uints, options).build()) {
+				assertEquals(4L, tensor.getMemoryBytes());
+				assertEquals(-1, tensor.getData().getInt(0));
+			}
+
+			ByteBuffer raw = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			raw.putInt(1).putInt(-2).putInt(3).flip();
+			TensorProto ints = TensorProto.newBuilder().setDataType(TensorProto.DataType.INT32_VALUE)
+					.addDims(3L).setRawData(ByteString.copyFrom(raw)).build();
+			try (Tensor tensor = TensorBuilder.builder(ints, options).build()) {
+				assertEquals(-2, tensor.getData().getInt(Integer.BYTES));
+				assertEquals(3, tensor.getData().getInt(2 * Integer.BYTES));
+			}
+		}
+	}
+
+	@Test
+	public void testCompactTypes() throws Exception {
+		TensorProto halfs = TensorProto.newBuilder().setDataType(TensorProto.DataType.FLOAT16_VALUE)
+				.addInt32Data(HalfFloatUtil.fromFloat(1.5f)).addInt32Data(HalfFloatUtil.fromFloat(-0.25f) & 0xFFFF)
+				.build();
+		try (Tensor tensor = TensorBuilder.builder(halfs).build()) {
+			assertEquals(4L, tensor.getMemoryBytes());
+			assertEquals(2L, tensor.getElementSize());
+			assertEquals("Tensor[2] = [1.5,\t-0.25]", tensor.toString().replaceAll("\n", ""));
+		}
+
+		TensorProto bools = TensorProto.newBuilder().setDataType(TensorProto.DataType.BOOL_VALUE).addDims(3L)
+				.addInt32Data(1).addInt32Data(0).addInt32Data(1).build();
+		try (Tensor tensor = TensorBuilder.builder(bools).build()) {
+			assertEquals(3L, tensor.getMemoryBytes());
+			assertEquals("Tensor[3] = [true,\tfalse,\ttrue]", tensor.toString().replaceAll("\n", ""));
+		}
+
+		TensorProto bytes = TensorProto.newBuilder().setDataType(TensorProto.DataType.UINT8_VALUE)
+				.setRawData(ByteString.copyFrom(new byte[] { 1, (byte) 200 })).build();
+		try (Tensor tensor = TensorBuilder.builder(bytes).build()) {
+			assertEquals(2L, tensor.getMemoryBytes());
+			assertEquals("Tensor[2] = [1,\t200]", tensor.toString().replaceAll("\n", ""));
+		}
+
+		TensorProto strings = TensorProto.newBuilder().setDataType(TensorProto.DataType.STRING_VALUE)
+				.addStringData(ByteString.copyFromUtf8("onnx")).addStringData(ByteString.EMPTY)
+				.addStringData(ByteString.copyFromUtf8("模型")).build();
+		try (Tensor tensor = TensorBuilder.builder(strings).build()) {
+			assertEquals(3L, tensor.getElementSize());
+			assertEquals(4 * Integer.BYTES + 4 + 6, tensor.getMemoryBytes());
+			assertEquals(3, StringData.count(tensor.getData()));
+			assertEquals("", StringData.get(tensor.getData(), 1));
+			assertEquals("模型", StringData.get(tensor.getData(), 2));
+
+			//
+			// 以CharSequence视图读取，切片共享同一块内存
+			//
+			StringArray values = tensor.getStrings();
+			Utf8Sequence reuse = new Utf8Sequence();
+			assertTrue(values.get(0, reuse).isAscii());
+			assertTrue(reuse.contentEquals("onnx"));
+			assertEquals("onnx".hashCode(), reuse.hashCode());
+			assertEquals('n', reuse.charAt(1));
+			assertEquals(2, values.get(2, reuse).length());
+			assertEquals(6, reuse.byteLength());
+			assertEquals('型', reuse.charAt(1));
+
+			StringArray slice = values.slice(1, 3);
+			assertEquals(2, slice.size());
+			assertEquals("模型", slice.getString(1));
+			assertEquals("[, 模型]", slice.toString());
+
+			ByteBuffer rawData = ByteBuffer.allocate(slice.byteSize()).order(ByteOrder.LITTLE_ENDIAN);
+			slice.copyTo(rawData);
+			rawData.flip();
+			try (Tensor copy = TensorBuilder.builder(DataType.STRING, Shape.create(2L), rawData, Tensor.options())
+					.build()) {
+				assertEquals("模型", copy.getStrings().getString(1));
+			}
+		}
+
+		TensorProto complexes = TensorProto.newBuilder().setDataType(TensorProto.DataType.COMPLEX64_VALUE)
+				.addFloatData(1f).addFloatData(2f).addFloatData(3f).addFloatData(4f).build();
+		try (Tensor tensor = TensorBuilder.builder(complexes).build()) {
+			assertEquals(2L, tensor.getElementSize());
+			assertEquals("Tensor[2] = [1.0+2.0i,\t3.0+4.0i]", tensor.toString().replaceAll("\n", ""));
+		}
+
+		//
+		// 复数分量个数为奇数，或元素个数与shape不符
+		//
+		TensorProto unpaired = TensorProto.newBuilder().setDataType(TensorProto.DataType.COMPLEX128_VALUE)
+				.addDoubleData(1d).addDoubleData(2d).addDoubleData(3d).build();
+		try {
+			TensorBuilder.builder(unpaired);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("3 components"));
+		}
+
+		TensorProto misshaped = complexes.toBuilder().addDims(3L).build();
+		try {
+			TensorBuilder.builder(misshaped);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("has 2 elements, but 3 expected"));
+		}
+	}
+
+	@Test
+	public void testHalfPrecision() throws Exception {
+		//
+		// 批量转换与逐个转换的结果一致
+		//
+		float[] floats = new float[1 << 16];
+		for (int bits = 0, n = 0; n < floats.length; bits += 65521, n++) {
+			floats[n] = Float.intBitsToFloat(bits);
+		}
+		ShortBuffer halfs = ShortBuffer.allocate(floats.length);
+		ShortBuffer bfloat16s = ShortBuffer.allocate(floats.length);
+		HalfFloatUtil.fromFloat(floats, 0, halfs, 0, floats.length);
+		HalfFloatUtil.floatToBFloat16(floats, 0, bfloat16s, 0, floats.length);
+		float[] widened = new float[floats.length];
+		HalfFloatUtil.toFloat(halfs, 0, widened, 0, floats.length);
+		for (int n = 0; n < floats.length; n++) {
+			assertEquals(HalfFloatUtil.fromFloat(floats[n]), halfs.get(n));
+			assertEquals(Float.floatToIntBits(HalfFloatUtil.toFloat(halfs.get(n))), Float.floatToIntBits(widened[n]));
+		}
+		assertEquals(0x3F80, HalfFloatUtil.floatToBFloat16(1f));
+		assertEquals(0x3F81, HalfFloatUtil.floatToBFloat16(Float.intBitsToFloat(0x3F80C000)));
+		assertEquals(0x3F80, HalfFloatUtil.floatToBFloat16(Float.intBitsToFloat(0x3F808000)));
+		assertTrue(Float.isNaN(HalfFloatUtil.bfloat16ToFloat(HalfFloatUtil.floatToBFloat16(Float.NaN))));
+
+		TensorProto bfloat16Proto = TensorProto.newBuilder().setDataType(TensorProto.DataType.BFLOAT16_VALUE)
+				.addInt32Data(HalfFloatUtil.floatToBFloat16(1.5f)).addInt32Data(HalfFloatUtil.floatToBFloat16(-2f))
+				.addInt32Data(HalfFloatUtil.floatToBFloat16(0.25f)).build();
+		try (Tensor tensor = TensorBuilder.builder(bfloat16Proto).build()) {
+			assertEquals(DataType.BFLOAT16, tensor.getDataType());
+			assertFalse(Arrays.asList(DataType.allTypes()).contains(DataType.BFLOAT16));
+			assertEquals(6L, tensor.getMemoryBytes());
+			assertEquals(-2f, tensor.getFloat(1L), 0f);
+			float[] tile = new float[2];
+			tensor.copyTo(tile, 0, 1L, 2);
+			assertEquals(-2f, tile[0], 0f);
+			assertEquals(0.25f, tile[1], 0f);
+			assertEquals("Tensor[3] = [1.5,\t-2.0,\t0.25]", tensor.toString().replaceAll("\n", ""));
+		}
+	}
+
+	@Test
+	public void testQuantization() throws Exception {
+		QuantizationParams perTensor = QuantizationParams.perTensor(DataType.UINT8, 0.5f, 128L);
+		assertEquals(130L, perTensor.quantize(1.25f, 0));
+		assertEquals(132L, perTensor.quantize(1.75f, 0));
+		assertEquals(255L, perTensor.quantize(1000f, 0));
+		assertEquals(-64f, perTensor.dequantize(0L, 0), 0f);
+
+		//
+		// INT8权重保持1字节存放，按输出通道(轴0)量化
+		//
+		TensorProto weights = TensorProto.newBuilder().setName("w").setDataType(TensorProto.DataType.INT8_VALUE)
+				.addDims(2L).addDims(3L).addInt32Data(-1).addInt32Data(0).addInt32Data(1).addInt32Data(-128)
+				.addInt32Data(0).addInt32Data(127).build();
+		QuantizationParams perAxis = QuantizationParams.perAxis(DataType.INT8, 0, new float[] { 0.5f, 2f },
+				new long[] { 0L, 1L });
+		try (Tensor w = TensorBuilder.builder(weights).quantization(perAxis).build();
+				Tensor scale = TensorBuilder.builder(DataType.FLOAT, Shape.create(2L), Tensor.options())
+						.putFloat(0.5f).putFloat(2f)
+						.build();
+				Tensor zeroPoint = TensorBuilder.builder(DataType.INT8, Shape.create(2L), Tensor.options())
+						.put(new byte[] { 0, 1 }).build()) {
+			assertEquals(6L, w.getMemoryBytes());
+			assertEquals(perAxis, w.getQuantization());
+			assertEquals(perAxis, QuantizationParams.of(scale, zeroPoint, 0));
+
+			float[] tile = new float[4];
+			perAxis.dequantize(w, 2L, tile, 0, 4);
+			assertEquals(0.5f, tile[0], 0f);
+			assertEquals(-258f, tile[1], 0f);
+			assertEquals(-2f, tile[2], 0f);
+			assertEquals(252f, tile[3], 0f);
+
+			try {
+				TensorBuilder.builder(weights).quantization(QuantizationParams.perAxis(DataType.INT8, 1,
+						new float[] { 1f, 1f }, new long[] { 0L, 0L })).build().close();
+				fail("3 channels along axis 1");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testSparseTensor() throws Exception {
+		//
+		// SparseTensorProto: values = 1, indices = 2, dims = 3
+		//
+		TensorProto values = TensorProto.newBuilder().setName("w").setDataType(TensorProto.DataType.FLOAT_VALUE)
+				.addDims(3L).addFloatData(1f).addFloatData(2f).addFloatData(3f).build();
+		TensorProto indices = TensorProto.newBuilder().setDataType(TensorProto.DataType.INT64_VALUE).addDims(3L)
+				.addDims(2L).addInt64Data(0L).addInt64Data(1L).addInt64Data(2L).addInt64Data(0L).addInt64Data(2L)
+				.addInt64Data(3L).build();
+		ByteString.Output bytes = ByteString.newOutput();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		out.writeBytes(1, values.toByteString());
+		out.writeBytes(2, indices.toByteString());
+		out.writeInt64(3, 3L);
+		out.writeInt64(3, 4L);
+		out.flush();
+
+		try (SparseTensor coo = SparseTensor.parse(bytes.toByteString(), null, Tensor.options())) {
+			assertEquals("w", coo.getName());
+			assertEquals(SparseTensor.Layout.COO, coo.getLayout());
+			assertEquals(Shape.create(3L, 4L), coo.getShape());
+			assertEquals(0.25d, coo.getDensity(), 0d);
+			assertEquals(8L, coo.linearIndex(1L));
+
+			try (SparseTensor csr = coo.toCsr(Tensor.options())) {
+				assertEquals(SparseTensor.Layout.CSR, csr.getLayout());
+				long[] rowPointers = new long[4];
+				csr.getRowPointers().copyTo(rowPointers, 0, 0L, 4);
+				assertEquals("[0, 1, 1, 3]", Arrays.toString(rowPointers));
+				assertEquals(11L, csr.linearIndex(2L));
+			}
+
+			try (Tensor dense = coo.toDense(Tensor.options())) {
+				assertEquals(Shape.create(3L, 4L), dense.getValueInfo().getShape());
+				assertEquals(1f, dense.getFloat(1L), 0f);
+				assertEquals(0f, dense.getFloat(2L), 0f);
+				assertEquals(3f, dense.getFloat(11L), 0f);
+			}
+
+			//
+			// 转换为CSR后共享的values在COO关闭前仍可读
+			//
+			assertEquals(2f, coo.getValues().getFloat(1L), 0f);
+		}
+
+		//
+		// 值、下标及行指针以不同的名称注册，不会相互覆盖，随TensorManager一同释放
+		//
+		TensorManager<Tensor> tsMgr = new TensorManager<Tensor>() {
+
+			@Override
+			protected void dispose(Tensor tensor) {
+				tensor.close();
+			}
+
+		};
+		SparseTensor csr;
+		try (SparseTensor coo = SparseTensor.parse(bytes.toByteString(), null, Tensor.options())) {
+			csr = coo.toCsr(Tensor.options());
+		}
+		csr.manage(tsMgr);
+		assertEquals(3L, tsMgr.getLiveCount());
+		assertTrue(csr.getValues() == tsMgr.get("w"));
+		assertTrue(csr.getIndices() == tsMgr.get("w/indices"));
+		assertTrue(csr.getRowPointers() == tsMgr.get("w/row_pointers"));
+		tsMgr.close();
+		try {
+			csr.getRowPointers().getData();
+			fail("Row pointers should be closed with the tensor manager");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testBulkWriters() throws Exception {
+		float[][][] image = new float[2][3][4];
+		for (int c = 0; c < 2; c++)
+			for (int h = 0; h < 3; h++)
+				for (int w = 0; w < 4; w++)
+					image[c][h][w] = c * 100 + h * 10 + w;
+		try (Tensor tensor = TensorBuilder.from(DataType.FLOAT, Shape.create(1L, 2L, 3L, 4L), image, Tensor.options())
+				.build()) {
+			assertEquals(123f, tensor.getFloat(1 * 12 + 2 * 4 + 3), 0f);
+		}
+
+		//
+		// HEAP方式下byte[]不复制
+		//
+		byte[] bytes = new byte[] { 1, 2, 3 };
+		Tensor.Options heap = Tensor.options().setAllocationMode(Tensor.AllocationMode.HEAP);
+		try (Tensor tensor = TensorBuilder.from(DataType.UINT8, Shape.create(3L), bytes, heap).build()) {
+			bytes[1] = 42;
+			assertEquals(42, tensor.getByte(1L));
+		}
+
+		try (Tensor tensor = TensorBuilder.builder(DataType.INT64, Shape.create(4L), Tensor.options())
+				.put(new long[] { 1L, 2L }).put(LongBuffer.wrap(new long[] { 3L, 4L })).build()) {
+			assertEquals(4L, tensor.getLong(3L));
+		}
+
+		try {
+			TensorBuilder.from(DataType.FLOAT, Shape.create(5L), new float[4], Tensor.options());
+			fail("4 floats for 5 elements");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testCopyToCallerBuffers() throws Exception {
+		float[] values = new float[] { 1f, 2f, 3f, 4f, 5f, 6f };
+		try (Tensor tensor = TensorBuilder.from(DataType.FLOAT, Shape.create(2L, 3L), values, Tensor.options())
+				.build()) {
+			float[] dst = new float[4];
+			tensor.copyTo(dst, 1, 2L, 3);
+			assertTrue(Arrays.equals(new float[] { 0f, 3f, 4f, 5f }, dst));
+			try {
+				tensor.copyTo(new int[4], 0, 0L, 4);
+				fail("FLOAT tensor should not be copied to int[]");
+			} catch (IllegalArgumentException e) {
+			}
+			try {
+				tensor.copyTo(new double[4], 0, 0L, 4);
+				fail("FLOAT tensor should not be copied to double[]");
+			} catch (IllegalArgumentException e) {
+			}
+
+			//
+			// 按dst的字节序写入，位置随之前移
+			//
+			ByteBuffer direct = ByteBuffer.allocateDirect(8 * Float.BYTES).order(ByteOrder.BIG_ENDIAN);
+			direct.position(Float.BYTES);
+			tensor.copyTo(direct, 4L, 2L);
+			assertEquals(3 * Float.BYTES, direct.position());
+			assertEquals(5f, direct.getFloat(Float.BYTES), 0f);
+			assertEquals(6f, direct.getFloat(2 * Float.BYTES), 0f);
+
+			try {
+				tensor.copyTo(direct, 0L, 6L);
+				fail("6 floats for 5 free slots");
+			} catch (IndexOutOfBoundsException e) {
+			}
+
+			float[] bound = new float[6];
+			OutputBindings bindings = OutputBindings.create().bind("y", bound);
+			bindings.get("y").write(tensor);
+			assertTrue(Arrays.equals(values, bound));
+
+			try {
+				bindings.bind("y", new long[6]).get("y").write(tensor);
+				fail("FLOAT output should not be written to long[]");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+
+		//
+		// 直接在调用者的buffer上计算
+		//
+		ByteBuffer direct = ByteBuffer.allocateDirect(4 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		OutputBindings.Binding binding = OutputBindings.create().bind("z", direct).get("z");
+		try (Tensor tensor = binding.allocate(DataType.FLOAT, Shape.create(4L))) {
+			direct.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(new float[] { 7f, 8f, 9f, 10f });
+			assertEquals(9f, tensor.getFloat(2L), 0f);
+			binding.write(tensor);
+		}
+		assertEquals(9f, direct.getFloat(2 * Float.BYTES), 0f);
+		assertNull(binding.allocate(DataType.FLOAT, Shape.create(5L)));
+
+		//
+		// 在调用者的buffer上计算时沿用其字节序
+		//
+		ByteBuffer bigEndian = ByteBuffer.allocateDirect(2 * Float.BYTES).order(ByteOrder.BIG_ENDIAN);
+		bigEndian.putFloat(Float.BYTES, 11f);
+		try (Tensor tensor = OutputBindings.create().bind("w", bigEndian).get("w").allocate(DataType.FLOAT,
+				Shape.create(2L))) {
+			assertEquals(11f, tensor.getFloat(1L), 0f);
+		}
+	}
+
+	@Test
+	public void testPooledAllocation() throws Exception {
+		BufferPool pool = new BufferPool(4096, 16 * 1024, 4);
+		Tensor.Options options = Tensor.options().setAllocationMode(Tensor.AllocationMode.POOLED).setBufferPool(pool);
+
+		long address;
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(10L), options).build()) {
+			assertEquals(40L, tensor.getMemoryBytes());
+			assertEquals(40, tensor.getData().remaining());
+			assertEquals(64L, pool.getUsedBytes());
+			assertEquals(1d - 40d / 64d, pool.getFragmentation(), 1e-9);
+			address = BufferUtil.address(tensor.getData());
+		}
+		assertEquals(0L, pool.getUsedBytes());
+		assertEquals(1L, pool.getMisses());
+
+		try (Tensor tensor = TensorBuilder.builder(DataType.INT32, Shape.create(16L), options).build()) {
+			assertEquals(address, BufferUtil.address(tensor.getData()));
+			assertEquals(1L, pool.getHits());
+		}
+
+		try (Tensor tensor = TensorBuilder.builder(DataType.DOUBLE, Shape.create(1024L), options).build()) {
+			assertEquals(8192L, tensor.getMemoryBytes());
+			assertEquals(1L, pool.getUnpooled());
+		}
+		assertEquals(16 * 1024L, pool.getSlabBytes());
+
+		//
+		// 由其他线程(如Cleaner线程)释放的chunk进入共享的空闲列表，可被任意线程重用
+		//
+		Tensor released = TensorBuilder.builder(DataType.FLOAT, Shape.create(256L), options).build();
+		long releasedAddress = BufferUtil.address(released.getData());
+		Thread closer = new Thread(released::close);
+		closer.start();
+		closer.join();
+
+		long[] reusedAddress = new long[1];
+		Thread reuser = new Thread(() -> {
+			try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(256L), options).build()) {
+				reusedAddress[0] = BufferUtil.address(tensor.getData());
+			}
+		});
+		reuser.start();
+		reuser.join();
+		assertEquals(releasedAddress, reusedAddress[0]);
+	}
+
+	@Test
+	public void testAlignedAllocation() throws Exception {
+		ByteBuffer raw = ByteBuffer.allocateDirect(1 + 3 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		raw.position(1);
+		raw.putFloat(1f).putFloat(2f).putFloat(3f).position(1);
+
+		Tensor.Options[] optionsList = { Tensor.options().setAlignment(64).setByteOrder(ByteOrder.LITTLE_ENDIAN),
+				Tensor.options().setAlignment(256).setAllocationMode(Tensor.AllocationMode.POOLED)
+						.setBufferPool(new BufferPool(4096, 16 * 1024, 0)) };
+		for (Tensor.Options options : optionsList) {
+			for (int size = 1; size <= 9; size += 4) {
+				try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create((long) size), options)
+						.build()) {
+					assertEquals(0L, BufferUtil.address(tensor.getData()) % options.getAlignment());
+					assertEquals(size * Float.BYTES, tensor.getMemoryBytes());
+					assertEquals(size, tensor.getElementSize());
+				}
+			}
+
+			try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(3L), raw, options).build()) {
+				assertEquals(0L, BufferUtil.address(tensor.getData()) % options.getAlignment());
+				assertEquals(2f, tensor.getData().order(ByteOrder.LITTLE_ENDIAN).getFloat(Float.BYTES), 0f);
+			}
+		}
+	}
+
+	@Test
+	public void testChunkedStorage() throws Exception {
+		Tensor.Options options = Tensor.options().setByteOrder(ByteOrder.LITTLE_ENDIAN);
+		float[] values = new float[100];
+		for (int n = 0; n < values.length; n++) {
+			values[n] = n * 0.5f;
+		}
+
+		TensorStorage storage = TensorStorage.allocate(values.length * Float.BYTES, 64, options);
+		assertEquals(7, storage.getChunkCount());
+		storage.put(4L, values, 1, values.length - 1);
+		storage.putFloat(0L, values[0]);
+		assertEquals(values[16], storage.getFloat(16L * Float.BYTES), 0f);
+		assertEquals(99 * 0.5f, storage.getFloat(99L * Float.BYTES), 0f);
+
+		try (Tensor tensor = new Tensor("t", null, DataType.FLOAT, Shape.create(10L, 10L), storage)) {
+			assertEquals(400L, tensor.getMemoryBytes());
+			float[] row = new float[10];
+			tensor.getStorage().get(15L * Float.BYTES, row, 0, row.length);
+			for (int n = 0; n < row.length; n++) {
+				assertEquals(values[15 + n], row[n], 0f);
+			}
+
+			try {
+				tensor.getData();
+				fail("Chunked storage can not be viewed as a single ByteBuffer");
+			} catch (IllegalStateException e) {
+			}
+		}
+
+		Path dataPath = Files.createTempFile("onnx4j", ".bin");
+		ByteBuffer ints = ByteBuffer.allocate(7 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (int n = 0; n < 7; n++) {
+			ints.putInt(n);
+		}
+		Files.write(dataPath, ints.array());
+		try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+			TensorStorage mapped = TensorStorage.map(channel, 4L, 24L, 8);
+			assertEquals(3, mapped.getChunkCount());
+			assertEquals(3, mapped.getInt(8L));
+			int[] mappedInts = new int[5];
+			mapped.get(4L, mappedInts, 0, 5);
+			assertEquals(2, mappedInts[0]);
+			assertEquals(6, mappedInts[4]);
+			assertTrue(mapped.release());
+		}
+		Files.delete(dataPath);
+
+		try {
+			TensorBuilder.builder(DataType.DOUBLE, Shape.create(1L << 40, 1L << 30), options);
+			fail("Byte size over Long.MAX_VALUE should not be allocated");
+		} catch (ArithmeticException e) {
+		}
+	}
+
+	@Test
+	public void testTypedAccessors() throws Exception {
+		float[] values = new float[] { 1f, 2f, 3f, 4f, 5f, 6f };
+		try (Tensor tensor = TensorBuilder
+				.builder(DataType.FLOAT, Shape.create(2L, 3L), Tensor.options())
+				.write(data -> data.asFloatBuffer().put(values))
+				.build()) {
+			assertEquals(4f, tensor.getFloat(3L), 0f);
+			assertTrue(tensor.getFloatView() == tensor.getFloatView());
+			assertTrue(tensor.getFloatView().isReadOnly());
+			assertEquals(6f, tensor.getFloatView().get(5), 0f);
+			assertEquals(Float.floatToIntBits(2f), tensor.getInt(1L));
+
+			float[] row = new float[4];
+			tensor.copyTo(row, 1, 3L, 3);
+			assertEquals(0f, row[0], 0f);
+			assertEquals(4f, row[1], 0f);
+			assertEquals(6f, row[3], 0f);
+
+			try {
+				tensor.copyTo(row, 0, 4L, 3);
+				fail("Elements after the end should not be copied");
+			} catch (IndexOutOfBoundsException e) {
+			}
+
+			tensor.close();
+			try {
+				tensor.getFloat(0L);
+				fail("Closed tensor should not be read");
+			} catch (IllegalStateException e) {
+			}
+		}
+
+		TensorStorage storage = TensorStorage.allocate(16L * Long.BYTES, 64, Tensor.options());
+		for (int n = 0; n < 16; n++) {
+			storage.putLong((long) n * Long.BYTES, n * 10L);
+		}
+		try (Tensor tensor = new Tensor("chunked", null, DataType.INT64, Shape.create(16L), storage)) {
+			assertEquals(90L, tensor.getLong(9L));
+			long[] dst = new long[10];
+			tensor.copyTo(dst, 0, 6L, 10);
+			assertEquals(60L, dst[0]);
+			assertEquals(150L, dst[9]);
+		}
+	}
+
+	@Test
+	public void testStridedViews() throws Exception {
+		MemoryBudget budget = new MemoryBudget("views", Long.MAX_VALUE, MemoryBudget.Policy.FAIL, 0L);
+		Tensor.Options options = Tensor.options().setMemoryBudget(budget);
+		Tensor tensor = TensorBuilder
+				.builder(DataType.FLOAT, Shape.create(2L, 3L), options)
+				.write(data -> data.asFloatBuffer().put(new float[] { 0f, 1f, 2f, 3f, 4f, 5f }))
+				.build();
+
+		Tensor transposed = tensor.transpose();
+		assertFalse(transposed.isContiguous());
+		assertEquals(3L, transposed.getShape()[0]);
+		assertEquals(1L, transposed.getStrides()[0]);
+		assertEquals(3f, transposed.getFloat(1L), 0f);
+		float[] values = new float[6];
+		transposed.copyTo(values, 0, 0L, 6);
+		assertEquals(1f, values[2], 0f);
+		assertEquals(5f, values[5], 0f);
+		try {
+			transposed.getData();
+			fail("Strided view should not be viewed as a single ByteBuffer");
+		} catch (IllegalStateException e) {
+		}
+
+		try (Tensor sliced = transposed.slice(0, 1L, 2L, 1L); Tensor column = sliced.squeeze(0)) {
+			assertEquals(1, column.getRanks());
+			assertEquals(4f, column.getFloat(1L), 0f);
+		}
+
+		try (Tensor sliced = tensor.slice(0, -1L, Long.MAX_VALUE, 1L); Tensor rows = sliced.unsqueeze(0)) {
+			assertTrue(rows.isContiguous());
+			assertEquals(3, rows.getRanks());
+			assertEquals(5f, rows.getFloatView().get(2), 0f);
+		}
+
+		try (Tensor dense = transposed.contiguous(options); Tensor reshaped = dense.reshape(-1L)) {
+			assertTrue(dense.isContiguous());
+			assertEquals(6L, reshaped.getShape()[0]);
+			assertEquals(3f, reshaped.getFloat(1L), 0f);
+			assertEquals(48L, budget.getUsedBytes());
+		}
+
+		//
+		// 源Tensor关闭后，视图仍持有数据
+		//
+		tensor.close();
+		assertEquals(24L, budget.getUsedBytes());
+		assertEquals(2f, transposed.getFloat(4L), 0f);
+		transposed.close();
+		assertEquals(0L, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testTensorScope() throws Exception {
+		try (TensorArena arena = new TensorArena(256, Tensor.options())) {
+			Tensor escaped, a;
+			try (TensorScope request = arena.open()) {
+				a = request.builder(DataType.FLOAT, Shape.create(16L)).write(data -> data.putFloat(1f)).build();
+				assertEquals(0L, BufferUtil.address(a.getData()) % TensorArena.MIN_ALIGNMENT);
+
+				Tensor inner;
+				try (TensorScope nested = arena.open()) {
+					try {
+						request.builder(DataType.FLOAT, Shape.create(1L));
+						fail("Only the innermost scope can allocate");
+					} catch (IllegalStateException e) {
+					}
+
+					//
+					// 超出首块容量，追加溢出块
+					//
+					nested.builder(DataType.INT64, Shape.create(64L)).build();
+					Tensor output = nested.builder(DataType.FLOAT, Shape.create(1L))
+							.name("output")
+							.write(data -> data.putFloat(2f))
+							.build();
+					assertTrue(arena.getChunkCount() > 1);
+					inner = nested.escape(output);
+				}
+				assertEquals(2f, inner.getData().getFloat(0), 0f);
+				escaped = request.escape(inner);
+				assertEquals(1f, a.getData().getFloat(0), 0f);
+			}
+
+			//
+			// 溢出块在请求结束后按高水位合并为一块
+			//
+			assertEquals(1, arena.getChunkCount());
+			assertTrue(arena.getCapacity() >= arena.getHighWaterMark());
+			assertEquals("output", escaped.getName());
+			assertEquals(2f, escaped.getData().getFloat(0), 0f);
+			escaped.close();
+
+			//
+			// scope关闭后其内存将被重用，其中的Tensor及视图不能再读取
+			//
+			try {
+				a.getFloat(0L);
+				fail("read after the scope is closed");
+			} catch (IllegalStateException e) {
+			}
+
+			try (TensorScope request = arena.open()) {
+				request.builder(DataType.INT64, Shape.create(64L)).build();
+				request.builder(DataType.FLOAT, Shape.create(16L)).build();
+				assertEquals(1, arena.getChunkCount());
+			}
+		}
+
+		//
+		// 逃逸时按源Tensor的字节序读取，与arena的字节序无关
+		//
+		Tensor.Options littleEndian = Tensor.options().setByteOrder(ByteOrder.LITTLE_ENDIAN);
+		try (TensorArena arena = new TensorArena(256, littleEndian);
+				Tensor bigEndian = TensorBuilder.builder(DataType.FLOAT, Shape.create(2L),
+						Tensor.options().setByteOrder(ByteOrder.BIG_ENDIAN)).put(new float[] { 1.5f, -2f }).build()) {
+			Tensor escaped;
+			try (TensorScope request = arena.open()) {
+				escaped = request.escape(bigEndian);
+			}
+			assertEquals(ByteOrder.LITTLE_ENDIAN, escaped.getData().order());
+			assertEquals(1.5f, escaped.getFloat(0L), 0f);
+			assertEquals(-2f, escaped.getFloat(1L), 0f);
+			escaped.close();
+		}
+	}
+
+	@Test
+	public void testMemoryBudget() throws Exception {
+		long globalUsed = MemoryBudget.getGlobal().getUsedBytes();
+		MemoryBudget failing = new MemoryBudget("failing", 1024L, MemoryBudget.Policy.FAIL, 0L);
+		Tensor.Options options = Tensor.options().setMemoryBudget(failing);
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(128L), options).build()) {
+			assertEquals(512L, failing.getUsedBytes());
+			assertTrue(MemoryBudget.getGlobal().getUsedBytes() >= globalUsed + 512L);
+			try {
+				TensorBuilder.builder(DataType.FLOAT, Shape.create(192L), options).build();
+				fail("Budget should be exceeded");
+			} catch (TensorException e) {
+				assertEquals(NodeExceptionEnums.MEMORY_BUDGET_EXCEEDED.getErrorCode(), e.getErrorCode());
+			}
+		}
+		assertEquals(0L, failing.getUsedBytes());
+		assertEquals(512L, failing.getHighWaterMark());
+		assertEquals(1L, failing.getRejectedCount());
+
+		MemoryBudget spilling = new MemoryBudget("spilling", 1024L, MemoryBudget.Policy.SPILL, 0L);
+		options = Tensor.options().setMemoryBudget(spilling);
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(512L), options).build()) {
+			assertFalse(tensor.getData().isDirect());
+			assertEquals(0L, spilling.getUsedBytes());
+			assertEquals(1L, spilling.getSpilledCount());
+		}
+
+		MemoryBudget blocking = new MemoryBudget("blocking", 1024L, MemoryBudget.Policy.BLOCK, 10000L);
+		Tensor.Options blockingOptions = Tensor.options().setMemoryBudget(blocking);
+		Tensor held = TensorBuilder.builder(DataType.FLOAT, Shape.create(256L), blockingOptions).build();
+		Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(100L);
+			} catch (InterruptedException e) {
+			}
+			held.close();
+		});
+		releaser.start();
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(256L), blockingOptions).build()) {
+			assertEquals(1024L, blocking.getUsedBytes());
+			assertEquals(1L, blocking.getBlockedCount());
+		}
+		releaser.join();
+		assertEquals(0L, blocking.getUsedBytes());
+
+		//
+		// 内存池中的chunk在持有期间计入发起分配的预算，slab计入内存池自身的预算
+		//
+		MemoryBudget slabs = new MemoryBudget("slabs", null, 8192L, MemoryBudget.Policy.FAIL, 0L);
+		BufferPool pool = new BufferPool(4096, 4096, 0, slabs);
+		MemoryBudget pooled = new MemoryBudget("pooled", 8192L, MemoryBudget.Policy.FAIL, 0L);
+		Tensor.Options pooledOptions = Tensor.options().setAllocationMode(Tensor.AllocationMode.POOLED)
+				.setBufferPool(pool).setMemoryBudget(pooled);
+		TensorBuilder.builder(DataType.FLOAT, Shape.create(16L), pooledOptions).build().close();
+		assertEquals(0L, pooled.getUsedBytes());
+		assertEquals(4096L, slabs.getUsedBytes());
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(16L), pooledOptions).build();
+				Tensor large = TensorBuilder.builder(DataType.FLOAT, Shape.create(1024L), pooledOptions).build()) {
+			assertEquals(64L + 4096L, pooled.getUsedBytes());
+			assertEquals(8192L, slabs.getUsedBytes());
+			assertEquals(pool.getSlabBytes(), slabs.getUsedBytes());
+			try {
+				TensorBuilder.builder(DataType.FLOAT, Shape.create(512L), pooledOptions).build();
+				fail("Budget of slabs should be exceeded by a new slab");
+			} catch (TensorException e) {
+				assertEquals(NodeExceptionEnums.MEMORY_BUDGET_EXCEEDED.getErrorCode(), e.getErrorCode());
+			}
+			assertEquals(64L + 4096L, pooled.getUsedBytes());
+		}
+		assertEquals(0L, pooled.getUsedBytes());
+		assertEquals(8192L, slabs.getUsedBytes());
+
+		MemoryBudget pooledSpilling = new MemoryBudget("pooled spilling", 1024L, MemoryBudget.Policy.SPILL, 0L);
+		try (Tensor tensor = TensorBuilder.builder(DataType.FLOAT, Shape.create(512L),
+				pooledOptions.copy().setMemoryBudget(pooledSpilling)).build()) {
+			assertFalse(tensor.getData().isDirect());
+			assertEquals(0L, pooledSpilling.getUsedBytes());
+		}
+	}
+
+	@Test
+	public void testLeakedTensorReleasedByCleaner() throws Exception {
+		BufferPool pool = new BufferPool(4096, 16 * 1024, 0);
+		Tensor.Options options = Tensor.options().setAllocationMode(Tensor.AllocationMode.POOLED).setBufferPool(pool);
+
+		TensorBuilder.builder(DataType.FLOAT, Shape.create(16L), options).build();
+		assertEquals(64L, pool.getUsedBytes());
+
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (pool.getUsedBytes() > 0 && System.currentTimeMillis() < deadline) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertEquals(0L, pool.getUsedBytes());
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(64);
+		assertFalse(DirectBufferDealloc.deallocateDirectBuffer(direct.slice()));
+		assertTrue(DirectBufferDealloc.deallocateDirectBuffer(direct));
+	}
+
 	@SuppressWarnings("restriction")
 	@Test
 	public void testDirectMemAllocationAndDeallocation() {